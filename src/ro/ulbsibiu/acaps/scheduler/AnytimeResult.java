@@ -0,0 +1,133 @@
+package ro.ulbsibiu.acaps.scheduler;
+
+/**
+ * The result of an {@link AnytimeScheduler}: the best schedule found, how good
+ * it is and how the search went. An anytime result is immutable.
+ *
+ * @author cradu
+ *
+ */
+public class AnytimeResult {
+
+	/**
+	 * Why the search stopped.
+	 */
+	public enum StopReason {
+		/** the search did all its iterations before the time budget ran out */
+		COMPLETED,
+		/** the time budget ran out */
+		DEADLINE,
+		/** the search was cancelled (or its thread was interrupted) */
+		CANCELLED
+	}
+
+	/** the best schedule found */
+	private final ScheduleResult scheduleResult;
+
+	/** the cost of the best schedule (smaller is better) */
+	private final double cost;
+
+	/** the cost of the best starting schedule */
+	private final double initialCost;
+
+	/** why the search stopped */
+	private final StopReason stopReason;
+
+	/** how long the search took, in nanoseconds */
+	private final long elapsedNanos;
+
+	/** how many candidate schedules were evaluated */
+	private final long evaluated;
+
+	/** how many candidate schedules were accepted */
+	private final long accepted;
+
+	/**
+	 * Constructor
+	 *
+	 * @param scheduleResult
+	 *            the best schedule found
+	 * @param cost
+	 *            the cost of the best schedule (smaller is better)
+	 * @param initialCost
+	 *            the cost of the best starting schedule
+	 * @param stopReason
+	 *            why the search stopped
+	 * @param elapsedNanos
+	 *            how long the search took, in nanoseconds
+	 * @param evaluated
+	 *            how many candidate schedules were evaluated
+	 * @param accepted
+	 *            how many candidate schedules were accepted
+	 */
+	public AnytimeResult(ScheduleResult scheduleResult, double cost,
+			double initialCost, StopReason stopReason, long elapsedNanos,
+			long evaluated, long accepted) {
+		this.scheduleResult = scheduleResult;
+		this.cost = cost;
+		this.initialCost = initialCost;
+		this.stopReason = stopReason;
+		this.elapsedNanos = elapsedNanos;
+		this.evaluated = evaluated;
+		this.accepted = accepted;
+	}
+
+	/**
+	 * @return the best schedule found
+	 */
+	public ScheduleResult getScheduleResult() {
+		return scheduleResult;
+	}
+
+	/**
+	 * @return the cost of the best schedule (smaller is better; its meaning
+	 *         depends on the scheduler)
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * @return the cost of the best starting schedule (the warm start, if
+	 *         there is one)
+	 */
+	public double getInitialCost() {
+		return initialCost;
+	}
+
+	/**
+	 * @return why the search stopped
+	 */
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * @return how long the search took, in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return how many candidate schedules were evaluated
+	 */
+	public long getEvaluated() {
+		return evaluated;
+	}
+
+	/**
+	 * @return how many candidate schedules were accepted
+	 */
+	public long getAccepted() {
+		return accepted;
+	}
+
+	@Override
+	public String toString() {
+		return "cost " + cost + " (initially " + initialCost + "), "
+				+ stopReason + " after " + (elapsedNanos / 1000000) + " ms, "
+				+ evaluated + " evaluated, " + accepted + " accepted";
+	}
+
+}
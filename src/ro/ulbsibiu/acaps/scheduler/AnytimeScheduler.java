@@ -0,0 +1,40 @@
+package ro.ulbsibiu.acaps.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A search based {@link Scheduler} which can be stopped at any time: it is
+ * given a time budget and it returns the best schedule found when the budget
+ * runs out (or when the search is cancelled, or when it completes earlier).
+ * <p>
+ * The search may start from a given schedule (a warm start), like the one
+ * computed instantly by the
+ * {@link ro.ulbsibiu.acaps.scheduler.minExecTime.MinExecTimeScheduler}. The
+ * warm start doesn't need to be feasible for the search: for example, the
+ * tasks which share a core are given other cores.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public interface AnytimeScheduler extends Scheduler {
+
+	/**
+	 * Searches for a schedule until the time budget runs out.
+	 *
+	 * @param timeBudget
+	 *            the time budget (the wall-clock time)
+	 * @param unit
+	 *            the unit of the time budget
+	 * @param control
+	 *            lets another thread cancel the search (can be <tt>null</tt>)
+	 * @param warmStart
+	 *            the schedule from which the search starts (can be
+	 *            <tt>null</tt>)
+	 * @return the best schedule found and the search statistics, or
+	 *         <tt>null</tt> if the scheduling failed
+	 */
+	public abstract AnytimeResult computeSchedule(long timeBudget,
+			TimeUnit unit, SearchControl control, ScheduleResult warmStart);
+
+}
@@ -0,0 +1,390 @@
+package ro.ulbsibiu.acaps.scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.xml.ApcgWriter;
+
+/**
+ * The result of a {@link Scheduler}: the cores of an APCG (UID and core ID)
+ * and, for each core, its tasks (ID, execution time and power). It holds the
+ * same data as an {@link ApcgType}, but it is immutable and it is serialized
+ * to XML only on demand (see {@link #write(Writer, boolean)},
+ * {@link #write(File)} and {@link #toXml()}), so an in-process consumer doesn't have to unmarshal the
+ * APCG XML again.
+ * <p>
+ * A result is built with a {@link Builder}, in the same order in which an
+ * {@link ApcgWriter} writes an APCG.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ScheduleResult {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(ScheduleResult.class);
+
+	/** the ID of the Application Characterization Graph */
+	private final String apcgId;
+
+	/** the ID of the Communication Task Graph */
+	private final String ctgId;
+
+	/** the UID of each core */
+	private final String[] coreUids;
+
+	/** the ID of each core */
+	private final String[] coreIds;
+
+	/** the IDs of the tasks of each core */
+	private final String[][] taskIds;
+
+	/** the execution times of the tasks of each core */
+	private final double[][] execTimes;
+
+	/** the powers of the tasks of each core */
+	private final double[][] powers;
+
+	private ScheduleResult(String apcgId, String ctgId, String[] coreUids,
+			String[] coreIds, String[][] taskIds, double[][] execTimes,
+			double[][] powers) {
+		this.apcgId = apcgId;
+		this.ctgId = ctgId;
+		this.coreUids = coreUids;
+		this.coreIds = coreIds;
+		this.taskIds = taskIds;
+		this.execTimes = execTimes;
+		this.powers = powers;
+	}
+
+	/**
+	 * @return the ID of the Application Characterization Graph
+	 */
+	public String getApcgId() {
+		return apcgId;
+	}
+
+	/**
+	 * @return the ID of the Communication Task Graph
+	 */
+	public String getCtgId() {
+		return ctgId;
+	}
+
+	/**
+	 * @return the number of cores
+	 */
+	public int getCoreCount() {
+		return coreUids.length;
+	}
+
+	/**
+	 * @param core
+	 *            the index of a core
+	 * @return the UID of the core
+	 */
+	public String getCoreUid(int core) {
+		return coreUids[core];
+	}
+
+	/**
+	 * @param core
+	 *            the index of a core
+	 * @return the ID of the core (its type, from the core library)
+	 */
+	public String getCoreId(int core) {
+		return coreIds[core];
+	}
+
+	/**
+	 * @param core
+	 *            the index of a core
+	 * @return the number of tasks scheduled to the core
+	 */
+	public int getTaskCount(int core) {
+		return taskIds[core].length;
+	}
+
+	/**
+	 * @return the number of tasks scheduled to all the cores
+	 */
+	public int getTaskCount() {
+		int taskCount = 0;
+		for (int i = 0; i < taskIds.length; i++) {
+			taskCount += taskIds[i].length;
+		}
+		return taskCount;
+	}
+
+	/**
+	 * @param core
+	 *            the index of a core
+	 * @param task
+	 *            the index of a task of the core
+	 * @return the ID of the task
+	 */
+	public String getTaskId(int core, int task) {
+		return taskIds[core][task];
+	}
+
+	/**
+	 * @param core
+	 *            the index of a core
+	 * @param task
+	 *            the index of a task of the core
+	 * @return the execution time of the task, on the core
+	 */
+	public double getExecTime(int core, int task) {
+		return execTimes[core][task];
+	}
+
+	/**
+	 * @param core
+	 *            the index of a core
+	 * @param task
+	 *            the index of a task of the core
+	 * @return the power of the task, on the core
+	 */
+	public double getPower(int core, int task) {
+		return powers[core][task];
+	}
+
+	/**
+	 * Writes the APCG XML (the same XML as the one marshalled by JAXB).
+	 *
+	 * @param writer
+	 *            where the XML is written
+	 * @param formatted
+	 *            whether or not the XML is pretty printed
+	 *
+	 * @throws XMLStreamException
+	 *             if the XML cannot be written
+	 */
+	public void write(Writer writer, boolean formatted)
+			throws XMLStreamException {
+		Instrumentation.enter(Phase.MARSHAL);
+		try {
+			ApcgWriter apcgWriter = new ApcgWriter(writer, formatted);
+			apcgWriter.startApcg(apcgId, ctgId);
+			for (int i = 0; i < coreUids.length; i++) {
+				apcgWriter.startCore(coreUids[i], coreIds[i]);
+				for (int j = 0; j < taskIds[i].length; j++) {
+					apcgWriter.writeTask(taskIds[i][j], execTimes[i][j],
+							powers[i][j]);
+				}
+				apcgWriter.endCore();
+			}
+			apcgWriter.endApcg();
+		} finally {
+			Instrumentation.exit();
+		}
+	}
+
+	/**
+	 * Writes the APCG XML file (pretty printed). The XML is first written under
+	 * a temporary name and then renamed, so that a failed write never leaves a
+	 * partially written (or an empty) APCG XML. The time and the written
+	 * bytes are recorded as the {@link Phase#WRITE} phase.
+	 *
+	 * @param xmlFile
+	 *            the APCG XML file
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void write(File xmlFile) throws IOException {
+		Instrumentation.enter(Phase.WRITE);
+		try {
+			File tempFile = File.createTempFile(xmlFile.getName(), ".tmp",
+					xmlFile.getParentFile());
+			boolean written = false;
+			try {
+				PrintWriter pw = new PrintWriter(tempFile);
+				try {
+					write(pw, true);
+				} catch (XMLStreamException e) {
+					throw new IOException("Could not write " + xmlFile, e);
+				} finally {
+					pw.close();
+				}
+				if (pw.checkError()) {
+					throw new IOException("Could not write " + xmlFile);
+				}
+				// File.renameTo(...) doesn't replace an existing file on all
+				// platforms
+				if (!tempFile.renameTo(xmlFile)) {
+					xmlFile.delete();
+					if (!tempFile.renameTo(xmlFile)) {
+						throw new IOException("Could not rename " + tempFile
+								+ " to " + xmlFile);
+					}
+				}
+				written = true;
+			} finally {
+				if (!written) {
+					tempFile.delete();
+				}
+			}
+			if (Instrumentation.isEnabled()) {
+				Instrumentation.bytesWritten(xmlFile.length());
+			}
+		} finally {
+			Instrumentation.exit();
+		}
+	}
+
+	/**
+	 * @return the APCG XML, pretty printed (like {@link Scheduler#schedule()}
+	 *         returns it), or <tt>null</tt> if it cannot be written
+	 */
+	public String toXml() {
+		String apcgXml = null;
+		try {
+			StringWriter stringWriter = new StringWriter();
+			write(stringWriter, true);
+			apcgXml = stringWriter.toString();
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
+		}
+		return apcgXml;
+	}
+
+	/**
+	 * Builds a {@link ScheduleResult}: {@link #startCore(String, String)},
+	 * then {@link #addTask(String, double, double)} for each of its tasks,
+	 * for each core, and finally {@link #build()}. A builder is not thread
+	 * safe.
+	 */
+	public static class Builder {
+
+		private final String apcgId;
+
+		private final String ctgId;
+
+		private final List<String> coreUids = new ArrayList<String>();
+
+		private final List<String> coreIds = new ArrayList<String>();
+
+		private final List<String[]> taskIds = new ArrayList<String[]>();
+
+		private final List<double[]> execTimes = new ArrayList<double[]>();
+
+		private final List<double[]> powers = new ArrayList<double[]>();
+
+		/** the number of tasks added to the current core */
+		private int taskCount;
+
+		/**
+		 * Constructor
+		 *
+		 * @param apcgId
+		 *            the ID of the Application Characterization Graph
+		 * @param ctgId
+		 *            the ID of the Communication Task Graph
+		 */
+		public Builder(String apcgId, String ctgId) {
+			this.apcgId = apcgId;
+			this.ctgId = ctgId;
+		}
+
+		/** trims the task arrays of the current core to their length */
+		private void endCore() {
+			int core = coreUids.size() - 1;
+			if (core >= 0 && taskIds.get(core).length != taskCount) {
+				String[] ids = new String[taskCount];
+				double[] times = new double[taskCount];
+				double[] ps = new double[taskCount];
+				System.arraycopy(taskIds.get(core), 0, ids, 0, taskCount);
+				System.arraycopy(execTimes.get(core), 0, times, 0, taskCount);
+				System.arraycopy(powers.get(core), 0, ps, 0, taskCount);
+				taskIds.set(core, ids);
+				execTimes.set(core, times);
+				powers.set(core, ps);
+			}
+		}
+
+		/**
+		 * Adds a core; the following tasks are scheduled to it.
+		 *
+		 * @param uid
+		 *            the UID of the core
+		 * @param id
+		 *            the ID of the core
+		 * @return this builder
+		 */
+		public Builder startCore(String uid, String id) {
+			endCore();
+			coreUids.add(uid);
+			coreIds.add(id);
+			// most cores get a single task
+			taskIds.add(new String[1]);
+			execTimes.add(new double[1]);
+			powers.add(new double[1]);
+			taskCount = 0;
+			return this;
+		}
+
+		/**
+		 * Schedules a task to the last added core.
+		 *
+		 * @param id
+		 *            the ID of the task
+		 * @param execTime
+		 *            the execution time of the task, on the core
+		 * @param power
+		 *            the power of the task, on the core
+		 * @return this builder
+		 */
+		public Builder addTask(String id, double execTime, double power) {
+			logger.assertLog(!coreUids.isEmpty(),
+					"A core must be added before its tasks");
+			int core = coreUids.size() - 1;
+			if (taskCount == taskIds.get(core).length) {
+				int length = 2 * taskCount;
+				String[] ids = new String[length];
+				double[] times = new double[length];
+				double[] ps = new double[length];
+				System.arraycopy(taskIds.get(core), 0, ids, 0, taskCount);
+				System.arraycopy(execTimes.get(core), 0, times, 0, taskCount);
+				System.arraycopy(powers.get(core), 0, ps, 0, taskCount);
+				taskIds.set(core, ids);
+				execTimes.set(core, times);
+				powers.set(core, ps);
+			}
+			taskIds.get(core)[taskCount] = id;
+			execTimes.get(core)[taskCount] = execTime;
+			powers.get(core)[taskCount] = power;
+			taskCount++;
+			return this;
+		}
+
+		/**
+		 * @return the result (the builder must not be used afterwards)
+		 */
+		public ScheduleResult build() {
+			endCore();
+			return new ScheduleResult(apcgId, ctgId,
+					coreUids.toArray(new String[coreUids.size()]),
+					coreIds.toArray(new String[coreIds.size()]),
+					taskIds.toArray(new String[taskIds.size()][]),
+					execTimes.toArray(new double[execTimes.size()][]),
+					powers.toArray(new double[powers.size()][]));
+		}
+	}
+
+}
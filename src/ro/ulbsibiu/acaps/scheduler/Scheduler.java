@@ -13,6 +13,13 @@ import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
  * Network-on-Chip (NoCs).
  * </p>
  * 
+ * <p>
+ * A scheduler keeps only its configuration (the CTG, the tasks and the cores);
+ * everything computed while scheduling is local to a call. Hence,
+ * {@link #schedule()} and {@link #computeSchedule()} can be called by more
+ * threads at the same time, on the same scheduler.
+ * </p>
+ * 
  * @author cipi
  * 
  */
@@ -31,8 +38,22 @@ public interface Scheduler {
 	 * 
 	 * @see ApcgType
 	 * 
-	 * @return a String containing the APCG XML
+	 * @return a String containing the APCG XML, or <tt>null</tt> if the
+	 *         scheduling failed
 	 */
 	public abstract String schedule();
 
+	/**
+	 * Schedules the CTG tasks to the available cores, like {@link #schedule()}
+	 * does, but without serializing the APCG to XML. An APCG XML file is best
+	 * written from the result with
+	 * {@link ScheduleResult#write(java.io.Writer, boolean)}, which streams the
+	 * XML instead of building it as a String first.
+	 * 
+	 * @see ScheduleResult#toXml()
+	 * 
+	 * @return the scheduling, or <tt>null</tt> if the scheduling failed
+	 */
+	public abstract ScheduleResult computeSchedule();
+
 }
\ No newline at end of file
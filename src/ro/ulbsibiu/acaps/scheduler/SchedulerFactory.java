@@ -0,0 +1,27 @@
+package ro.ulbsibiu.acaps.scheduler;
+
+/**
+ * Creates the {@link Scheduler} for a Communication Task Graph. This allows
+ * drivers which process entire benchmark suites to work with any
+ * {@link Scheduler} implementation.
+ * 
+ * @author cradu
+ * 
+ */
+public interface SchedulerFactory {
+
+	/**
+	 * Creates a {@link Scheduler} for the given CTG.
+	 * 
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph
+	 * @param tasksFilePath
+	 *            the path to the directory with the task XMLs
+	 * @param coresFilePath
+	 *            the path to the directory with the core XMLs
+	 * @return the scheduler
+	 */
+	public abstract Scheduler create(String ctgId, String tasksFilePath,
+			String coresFilePath);
+
+}
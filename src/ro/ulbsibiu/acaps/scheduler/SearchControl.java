@@ -0,0 +1,31 @@
+package ro.ulbsibiu.acaps.scheduler;
+
+/**
+ * Lets another thread stop a running search (see {@link AnytimeScheduler}).
+ * The search checks {@link #isCancelled()} regularly and, once it is
+ * cancelled, it returns the best result found so far. A control can be shared
+ * by more searches: cancelling it stops all of them.
+ *
+ * @author cradu
+ *
+ */
+public class SearchControl {
+
+	/** whether or not the search was cancelled */
+	private volatile boolean cancelled;
+
+	/**
+	 * Asks the search to stop, as soon as possible.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return whether or not the search was cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+}
@@ -0,0 +1,260 @@
+package ro.ulbsibiu.acaps.scheduler.annealing;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A simulated annealing search chain, over the assignments of tasks to
+ * distinct cores. A neighbour of an assignment is obtained by giving a task
+ * another core: if the core is free, the task is moved to it, otherwise the
+ * two tasks swap their cores. The cost of an assignment is the sum of the
+ * costs of its (task, core) pairs, so the cost change of a move or of a swap
+ * is computed in O(1), from the cost matrix.
+ * <p>
+ * A chain remembers the best assignment it has seen. A chain is not thread
+ * safe, but different chains can run at the same time (the cost matrix is
+ * only read).
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+class AnnealingChain {
+
+	/** the costs, a row for each task type and a column for each core */
+	private final double[] costs;
+
+	/** the number of cores (the length of a cost row) */
+	private final int coreCount;
+
+	/** the offset of the cost row of each task */
+	private final int[] taskRows;
+
+	private final Random random;
+
+	/** the core of each task */
+	private final int[] taskCores;
+
+	/** the task of each core (-1 for a free core) */
+	private final int[] coreTasks;
+
+	/** the cost of the current assignment */
+	private double cost;
+
+	/** the best assignment seen by this chain */
+	private final int[] bestTaskCores;
+
+	/** the cost of the best assignment */
+	private double bestCost;
+
+	/** how many neighbours were evaluated */
+	private long evaluated;
+
+	/** how many neighbours were accepted */
+	private long accepted;
+
+	/**
+	 * Constructor
+	 *
+	 * @param costs
+	 *            the costs, a row for each task type and a column for each core
+	 * @param coreCount
+	 *            the number of cores (at least the number of tasks)
+	 * @param taskRows
+	 *            the offset of the cost row of each task
+	 * @param seed
+	 *            the seed of this chain's random numbers
+	 */
+	AnnealingChain(double[] costs, int coreCount, int[] taskRows, long seed) {
+		this.costs = costs;
+		this.coreCount = coreCount;
+		this.taskRows = taskRows;
+		this.random = new Random(seed);
+		this.taskCores = new int[taskRows.length];
+		this.coreTasks = new int[coreCount];
+		this.bestTaskCores = new int[taskRows.length];
+	}
+
+	private double computeCost() {
+		double sum = 0;
+		for (int i = 0; i < taskCores.length; i++) {
+			sum += costs[taskRows[i] + taskCores[i]];
+		}
+		return sum;
+	}
+
+	private void keepBest() {
+		bestCost = cost;
+		System.arraycopy(taskCores, 0, bestTaskCores, 0, taskCores.length);
+	}
+
+	/**
+	 * Starts from a random assignment.
+	 */
+	void startRandom() {
+		int[] cores = new int[coreCount];
+		for (int j = 0; j < coreCount; j++) {
+			cores[j] = j;
+		}
+		// a partial Fisher-Yates shuffle draws the distinct cores of the tasks
+		for (int i = 0; i < taskCores.length; i++) {
+			int k = i + random.nextInt(coreCount - i);
+			int core = cores[k];
+			cores[k] = cores[i];
+			cores[i] = core;
+		}
+		start(cores);
+	}
+
+	/**
+	 * Starts from the given assignment.
+	 *
+	 * @param cores
+	 *            the core of each task (only the first task count elements
+	 *            are used)
+	 */
+	void start(int[] cores) {
+		Arrays.fill(coreTasks, -1);
+		for (int i = 0; i < taskCores.length; i++) {
+			taskCores[i] = cores[i];
+			coreTasks[cores[i]] = i;
+		}
+		cost = computeCost();
+		keepBest();
+	}
+
+	/**
+	 * @return the cost change of giving the core to the task
+	 */
+	private double delta(int task, int core) {
+		int oldCore = taskCores[task];
+		int row = taskRows[task];
+		double delta = costs[row + core] - costs[row + oldCore];
+		int other = coreTasks[core];
+		if (other != -1) {
+			int otherRow = taskRows[other];
+			delta += costs[otherRow + oldCore] - costs[otherRow + core];
+		}
+		return delta;
+	}
+
+	/**
+	 * Gives the core to the task (the task on that core, if any, gets the old
+	 * core of the task).
+	 */
+	private void apply(int task, int core, double delta) {
+		int oldCore = taskCores[task];
+		int other = coreTasks[core];
+		taskCores[task] = core;
+		coreTasks[core] = task;
+		coreTasks[oldCore] = other;
+		if (other != -1) {
+			taskCores[other] = oldCore;
+		}
+		cost += delta;
+	}
+
+	/**
+	 * Estimates a starting temperature: the average cost increase of random
+	 * neighbours, so that most of them are accepted at first.
+	 *
+	 * @param samples
+	 *            how many neighbours are sampled
+	 * @return the temperature
+	 */
+	double estimateTemperature(int samples) {
+		double sum = 0;
+		int count = 0;
+		for (int s = 0; s < samples && coreCount > 1; s++) {
+			int task = random.nextInt(taskCores.length);
+			int core = random.nextInt(coreCount);
+			double delta = delta(task, core);
+			if (delta > 0) {
+				sum += delta;
+				count++;
+			}
+		}
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * Runs the chain, cooling geometrically between the given temperatures.
+	 *
+	 * @param iterations
+	 *            how many neighbours are evaluated
+	 * @param fromTemperature
+	 *            the temperature of the first iteration
+	 * @param toTemperature
+	 *            the temperature of the last iteration
+	 */
+	void run(long iterations, double fromTemperature, double toTemperature) {
+		if (taskCores.length == 0 || coreCount < 2) {
+			return;
+		}
+		double temperature = fromTemperature;
+		double cooling = iterations > 1 && fromTemperature > 0 ? Math.pow(
+				toTemperature / fromTemperature, 1.0 / (iterations - 1)) : 1;
+		for (long k = 0; k < iterations; k++) {
+			int task = random.nextInt(taskCores.length);
+			int core = random.nextInt(coreCount);
+			if (core != taskCores[task]) {
+				double delta = delta(task, core);
+				evaluated++;
+				if (delta <= 0
+						|| (temperature > 0 && random.nextDouble() < Math
+								.exp(-delta / temperature))) {
+					apply(task, core, delta);
+					accepted++;
+					if (cost < bestCost) {
+						keepBest();
+					}
+				}
+			}
+			temperature *= cooling;
+		}
+	}
+
+	/**
+	 * Computes again the cost of the current assignment, which drifts with
+	 * the rounding errors of the cost changes.
+	 */
+	void refreshCost() {
+		cost = computeCost();
+	}
+
+	/**
+	 * @return the cost of the current assignment
+	 */
+	double getCost() {
+		return cost;
+	}
+
+	/**
+	 * @return the cost of the best assignment seen by this chain
+	 */
+	double getBestCost() {
+		return bestCost;
+	}
+
+	/**
+	 * @return the best assignment seen by this chain (the core of each task)
+	 */
+	int[] getBestTaskCores() {
+		return bestTaskCores.clone();
+	}
+
+	/**
+	 * @return how many neighbours were evaluated
+	 */
+	long getEvaluated() {
+		return evaluated;
+	}
+
+	/**
+	 * @return how many neighbours were accepted
+	 */
+	long getAccepted() {
+		return accepted;
+	}
+
+}
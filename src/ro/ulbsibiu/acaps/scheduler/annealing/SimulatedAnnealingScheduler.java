@@ -0,0 +1,815 @@
+package ro.ulbsibiu.acaps.scheduler.annealing;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
+import ro.ulbsibiu.acaps.scheduler.AnytimeResult;
+import ro.ulbsibiu.acaps.scheduler.AnytimeResult.StopReason;
+import ro.ulbsibiu.acaps.scheduler.AnytimeScheduler;
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.SearchControl;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.MetricsCollector;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibrary;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibraryCache;
+import ro.ulbsibiu.acaps.scheduler.minExecTime.MinExecTimeScheduler;
+import ro.ulbsibiu.acaps.scheduler.xml.SchedulingXmlReader;
+import ro.ulbsibiu.acaps.scheduler.xml.TaskRecord;
+
+/**
+ * This @link{Scheduler} assigns each task to a different core, searching with
+ * simulated annealing for the assignment with the smallest weighted sum of
+ * execution times and powers. The execution times and the powers are
+ * normalized (divided by their maximum from the core library), so the weights
+ * say how much each of them matters.
+ * <p>
+ * More independent search chains (see {@link AnnealingChain}) run in
+ * parallel, in epochs. After each epoch, the chain with the worst current
+ * assignment continues from the best assignment found so far, by any chain.
+ * The chains only depend on the seed (not on the timing of the threads), so a
+ * run can be repeated.
+ * </p>
+ * <p>
+ * As an {@link AnytimeScheduler}, the search can also be given a time budget,
+ * after which it returns the best assignment found so far, and a warm start
+ * (e.g. the minimum execution time schedule, whose shared cores are replaced
+ * by the cheapest free ones).
+ * </p>
+ * <p>
+ * Notes:
+ * <ul>
+ * <li>There must be at least as many cores as tasks.</li>
+ * <li>A core which doesn't specify the type of a task, or which has a zero
+ * execution time for it (like for the minimum execution time scheduler, this
+ * means that the core didn't run the task), gets a penalty instead of a cost.</li>
+ * </ul>
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class SimulatedAnnealingScheduler implements AnytimeScheduler {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(SimulatedAnnealingScheduler.class);
+
+	private static final String SCHEDULER_ID = "5";
+
+	/** the default seed */
+	public static final long DEFAULT_SEED = 0;
+
+	/** the default number of search chains */
+	public static final int DEFAULT_CHAINS = 4;
+
+	/** the default number of iterations of a chain, for each task */
+	public static final int DEFAULT_ITERATIONS_PER_TASK = 1000;
+
+	/** how many times the chains exchange their best assignments */
+	private static final int EPOCHS = 20;
+
+	/** the final temperature, relative to the initial one */
+	private static final double FINAL_TEMPERATURE_RATIO = 1e-4;
+
+	/** how many neighbours are sampled to estimate the initial temperature */
+	private static final int TEMPERATURE_SAMPLES = 1000;
+
+	/**
+	 * how many iterations a chain does between two checks of the deadline and
+	 * of the cancellation
+	 */
+	private static final long SLICE_ITERATIONS = 1024;
+
+	/** the ID of the Application Characterization Graph */
+	private final String apcgId;
+
+	/** the ID of the Communication Task Graph */
+	private final String ctgId;
+
+	/** the XML files containing the tasks */
+	private final File[] taskXmls;
+
+	/** the directory with the XML files containing the cores */
+	private final File coresDir;
+
+	/** the weight of the (normalized) execution times */
+	private final double execTimeWeight;
+
+	/** the weight of the (normalized) powers */
+	private final double powerWeight;
+
+	/** the number of search chains */
+	private final int chainCount;
+
+	/** the number of iterations of each chain (0 for the default) */
+	private final long iterations;
+
+	/** the seed of the search */
+	private final long seed;
+
+	/**
+	 * Constructor (execution time and power have the same weight; default
+	 * seed, number of chains and iterations)
+	 *
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (cannot be empty)
+	 * @param tasksFilePath
+	 *            the XML files containing the tasks (cannot be empty)
+	 * @param coresFilePath
+	 *            the XML files containing the cores (cannot be empty)
+	 */
+	public SimulatedAnnealingScheduler(String ctgId, String tasksFilePath,
+			String coresFilePath) {
+		this(ctgId, tasksFilePath, coresFilePath, 1, 1, DEFAULT_CHAINS, 0,
+				DEFAULT_SEED);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (cannot be empty)
+	 * @param tasksFilePath
+	 *            the XML files containing the tasks (cannot be empty)
+	 * @param coresFilePath
+	 *            the XML files containing the cores (cannot be empty)
+	 * @param execTimeWeight
+	 *            the weight of the (normalized) execution times
+	 * @param powerWeight
+	 *            the weight of the (normalized) powers
+	 * @param chainCount
+	 *            the number of search chains (they run on at most as many
+	 *            threads as there are processors)
+	 * @param iterations
+	 *            the number of iterations of each chain (0 means
+	 *            {@link #DEFAULT_ITERATIONS_PER_TASK} for each task)
+	 * @param seed
+	 *            the seed of the search
+	 */
+	public SimulatedAnnealingScheduler(String ctgId, String tasksFilePath,
+			String coresFilePath, double execTimeWeight, double powerWeight,
+			int chainCount, long iterations, long seed) {
+		logger.assertLog(ctgId != null && ctgId.length() > 0,
+				"A CTG must be specified");
+		logger.assertLog(tasksFilePath != null && tasksFilePath.length() > 0,
+				"A tasks file path must be specified");
+		logger.assertLog(coresFilePath != null && coresFilePath.length() > 0,
+				"A tasks file path must be specified");
+		logger.assertLog(execTimeWeight >= 0 && powerWeight >= 0,
+				"The weights cannot be negative");
+		logger.assertLog(chainCount > 0, "At least one chain is needed");
+		logger.assertLog(iterations >= 0,
+				"The number of iterations cannot be negative");
+
+		this.apcgId = ctgId + "_" + getSchedulerId();
+		this.ctgId = ctgId;
+
+		File tasksFile = new File(tasksFilePath);
+		logger.assertLog(tasksFile.isDirectory(),
+				"The tasks file path doesn't point a directory");
+
+		File coresFile = new File(coresFilePath);
+		logger.assertLog(coresFile.isDirectory(),
+				"The cores file path doesn't point a directory");
+
+		taskXmls = tasksFile.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File file, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+
+		coresDir = coresFile;
+
+		this.execTimeWeight = execTimeWeight;
+		this.powerWeight = powerWeight;
+		this.chainCount = chainCount;
+		this.iterations = iterations;
+		this.seed = seed;
+	}
+
+	@Override
+	public String getSchedulerId() {
+		return SCHEDULER_ID;
+	}
+
+	/**
+	 * Builds the cost matrix: a row for each task type and a column for each
+	 * core.
+	 *
+	 * @param taskCount
+	 *            the number of tasks
+	 * @return the costs, row after row
+	 */
+	private double[] buildCosts(CoreLibrary coreLibrary, int taskCount) {
+		int coreCount = coreLibrary.getCoreCount();
+		int taskTypeCount = coreLibrary.getTaskTypeCount();
+		double maxExecTime = 0;
+		double maxPower = 0;
+		for (int i = 0; i < coreCount; i++) {
+			for (int t = 0; t < taskTypeCount; t++) {
+				if (coreLibrary.hasTaskType(i, t)) {
+					maxExecTime = Math.max(maxExecTime, coreLibrary
+							.getExecTime(i, t));
+					maxPower = Math.max(maxPower, coreLibrary.getPower(i, t));
+				}
+			}
+		}
+		// a normalized cost is at most execTimeWeight + powerWeight, so a
+		// penalty costs more than all the costs of an assignment together
+		double zeroPenalty = 1 + (execTimeWeight + powerWeight) * taskCount;
+		double missingPenalty = 1 + zeroPenalty * taskCount;
+
+		double[] costs = new double[taskTypeCount * coreCount];
+		for (int t = 0; t < taskTypeCount; t++) {
+			for (int i = 0; i < coreCount; i++) {
+				double cost;
+				if (!coreLibrary.hasTaskType(i, t)) {
+					cost = missingPenalty;
+				} else if (coreLibrary.getExecTime(i, t) == 0) {
+					cost = zeroPenalty;
+				} else {
+					cost = 0;
+					if (maxExecTime > 0) {
+						cost += execTimeWeight * coreLibrary.getExecTime(i, t)
+								/ maxExecTime;
+					}
+					if (maxPower > 0) {
+						cost += powerWeight * coreLibrary.getPower(i, t)
+								/ maxPower;
+					}
+				}
+				costs[t * coreCount + i] = cost;
+			}
+		}
+		return costs;
+	}
+
+	/**
+	 * The outcome of a search: the best assignment and how the search went.
+	 */
+	private static class SearchOutcome {
+
+		/** the best assignment found (the core of each task) */
+		private int[] taskCores;
+
+		/** the cost of the best assignment */
+		private double cost;
+
+		/** the cost of the best starting assignment */
+		private double initialCost;
+
+		/** why the search stopped */
+		private StopReason stopReason = StopReason.COMPLETED;
+
+		/** how many neighbours were evaluated */
+		private long evaluated;
+
+		/** how many neighbours were accepted */
+		private long accepted;
+	}
+
+	/**
+	 * @return the temperature after the given fraction of the search
+	 */
+	private static double temperature(double initialTemperature,
+			double fraction) {
+		return initialTemperature
+				* Math.pow(FINAL_TEMPERATURE_RATIO, Math.min(1, fraction));
+	}
+
+	/**
+	 * @return whether or not the search should stop
+	 */
+	private static boolean isStopped(SearchControl control, SearchControl stop) {
+		return stop.isCancelled() || (control != null && control.isCancelled());
+	}
+
+	/**
+	 * Runs the search chains. Without a time budget, each chain does its
+	 * iterations and the search can be repeated (it only depends on the seed).
+	 * With a time budget, the epochs share the budget and the temperature
+	 * follows the elapsed time instead of the iterations.
+	 *
+	 * @param costs
+	 *            the costs, a row for each task type and a column for each core
+	 * @param coreCount
+	 *            the number of cores
+	 * @param taskRows
+	 *            the offset of the cost row of each task
+	 * @param warmTaskCores
+	 *            the assignment from which the first chain starts (can be
+	 *            <tt>null</tt>, then all the chains start from random
+	 *            assignments)
+	 * @param budgetNanos
+	 *            the time budget, in nanoseconds (0 for none)
+	 * @param control
+	 *            lets another thread cancel the search (can be <tt>null</tt>)
+	 * @return the best assignment found and the search statistics
+	 */
+	private SearchOutcome search(double[] costs, int coreCount, int[] taskRows,
+			int[] warmTaskCores, final long budgetNanos,
+			final SearchControl control) throws ExecutionException {
+		final long startTime = System.nanoTime();
+		long chainIterations = iterations > 0 ? iterations
+				: (long) DEFAULT_ITERATIONS_PER_TASK * taskRows.length;
+		final long epochIterations = Math.max(1, chainIterations / EPOCHS);
+
+		final AnnealingChain[] chains = new AnnealingChain[chainCount];
+		for (int c = 0; c < chainCount; c++) {
+			// the chains get unrelated seeds
+			chains[c] = new AnnealingChain(costs, coreCount, taskRows, seed
+					+ c * 0x9E3779B97F4A7C15L);
+			if (c == 0 && warmTaskCores != null) {
+				chains[c].start(warmTaskCores);
+			} else {
+				chains[c].startRandom();
+			}
+		}
+		SearchOutcome outcome = new SearchOutcome();
+		outcome.initialCost = chains[0].getCost();
+		for (int c = 1; c < chainCount; c++) {
+			outcome.initialCost = Math.min(outcome.initialCost, chains[c]
+					.getCost());
+		}
+		final double initialTemperature = chains[0]
+				.estimateTemperature(TEMPERATURE_SAMPLES);
+
+		// stops the chains when the search is interrupted
+		final SearchControl stop = new SearchControl();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+				chainCount, Runtime.getRuntime().availableProcessors()));
+		int best = 0;
+		try {
+			// without neighbours, there is nothing to search
+			boolean searchable = taskRows.length > 0 && coreCount > 1;
+			for (int e = 0; e < EPOCHS && searchable; e++) {
+				final int epoch = e;
+				final long epochEnd = startTime + budgetNanos * (e + 1) / EPOCHS;
+				List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(
+						chainCount);
+				for (int c = 0; c < chainCount; c++) {
+					final AnnealingChain chain = chains[c];
+					tasks.add(new Callable<Object>() {
+
+						@Override
+						public Object call() {
+							// the chain runs in slices, so that it stops soon
+							// after a cancellation or after the deadline
+							if (budgetNanos > 0) {
+								long now = System.nanoTime();
+								while (now - epochEnd < 0
+										&& !isStopped(control, stop)) {
+									double t = temperature(initialTemperature,
+											(double) (now - startTime)
+													/ budgetNanos);
+									chain.run(SLICE_ITERATIONS, t, t);
+									now = System.nanoTime();
+								}
+							} else {
+								long done = 0;
+								while (done < epochIterations
+										&& !isStopped(control, stop)) {
+									long slice = Math.min(SLICE_ITERATIONS,
+											epochIterations - done);
+									chain.run(slice, temperature(
+											initialTemperature,
+											(epoch + (double) done
+													/ epochIterations)
+													/ EPOCHS), temperature(
+											initialTemperature,
+											(epoch + (double) (done + slice)
+													/ epochIterations)
+													/ EPOCHS));
+									done += slice;
+								}
+							}
+							chain.refreshCost();
+							return null;
+						}
+					});
+				}
+				for (Future<Object> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+
+				// the worst chain continues from the best assignment
+				best = 0;
+				int worst = 0;
+				for (int c = 1; c < chainCount; c++) {
+					if (chains[c].getBestCost() < chains[best].getBestCost()) {
+						best = c;
+					}
+					if (chains[c].getCost() > chains[worst].getCost()) {
+						worst = c;
+					}
+				}
+				if (worst != best) {
+					chains[worst].start(chains[best].getBestTaskCores());
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Epoch " + e + ": best cost "
+							+ chains[best].getBestCost() + " (chain " + best
+							+ ")");
+				}
+				if (isStopped(control, stop)) {
+					outcome.stopReason = StopReason.CANCELLED;
+					break;
+				}
+				if (budgetNanos > 0 && e == EPOCHS - 1) {
+					outcome.stopReason = StopReason.DEADLINE;
+				}
+			}
+		} catch (InterruptedException e) {
+			// the chains stop and the best assignment so far is returned
+			stop.cancel();
+			outcome.stopReason = StopReason.CANCELLED;
+			executor.shutdown();
+			awaitTermination(executor);
+			Thread.currentThread().interrupt();
+			best = 0;
+			for (int c = 1; c < chainCount; c++) {
+				if (chains[c].getBestCost() < chains[best].getBestCost()) {
+					best = c;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (int c = 0; c < chainCount; c++) {
+			outcome.evaluated += chains[c].getEvaluated();
+			outcome.accepted += chains[c].getAccepted();
+		}
+		outcome.taskCores = chains[best].getBestTaskCores();
+		outcome.cost = chains[best].getBestCost();
+		if (logger.isDebugEnabled()) {
+			logger.debug(chainCount + " chains evaluated " + outcome.evaluated
+					+ " neighbours and accepted " + outcome.accepted
+					+ "; the best cost is " + outcome.cost + " ("
+					+ outcome.stopReason + ")");
+		}
+		return outcome;
+	}
+
+	/**
+	 * Waits for the chains to stop, even if the current thread is interrupted
+	 * (its interrupted status is cleared).
+	 */
+	private static void awaitTermination(ExecutorService executor) {
+		while (!executor.isTerminated()) {
+			try {
+				executor.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				// the chains were asked to stop, so they stop soon
+			}
+		}
+	}
+
+	/**
+	 * Turns a schedule into an assignment of the tasks to distinct cores. The
+	 * tasks and the cores are matched by their IDs. When more tasks share a
+	 * core, only the first one keeps it. The tasks without a core (shared,
+	 * unknown or missing from the schedule) get the cheapest free cores.
+	 *
+	 * @param warmStart
+	 *            the schedule (e.g. a minimum execution time schedule)
+	 * @return the core of each task
+	 */
+	private int[] repairWarmStart(CoreLibrary coreLibrary, TaskRecord[] tasks,
+			double[] costs, int[] taskRows, ScheduleResult warmStart) {
+		int coreCount = coreLibrary.getCoreCount();
+		Map<String, Integer> taskIndexes = new HashMap<String, Integer>();
+		for (int i = tasks.length - 1; i >= 0; i--) {
+			taskIndexes.put(tasks[i].getID(), i);
+		}
+		Map<String, Integer> coreIndexes = new HashMap<String, Integer>();
+		for (int j = coreCount - 1; j >= 0; j--) {
+			coreIndexes.put(coreLibrary.getCoreId(j), j);
+		}
+
+		int[] taskCores = new int[tasks.length];
+		Arrays.fill(taskCores, -1);
+		boolean[] taken = new boolean[coreCount];
+		for (int c = 0; c < warmStart.getCoreCount(); c++) {
+			Integer core = coreIndexes.get(warmStart.getCoreId(c));
+			for (int t = 0; t < warmStart.getTaskCount(c); t++) {
+				Integer task = taskIndexes.get(warmStart.getTaskId(c, t));
+				if (core != null && task != null && taskCores[task] == -1
+						&& !taken[core]) {
+					taskCores[task] = core;
+					taken[core] = true;
+				}
+			}
+		}
+
+		int repaired = 0;
+		for (int i = 0; i < tasks.length; i++) {
+			if (taskCores[i] == -1) {
+				int cheapest = -1;
+				for (int j = 0; j < coreCount; j++) {
+					if (!taken[j]
+							&& (cheapest == -1 || costs[taskRows[i] + j] < costs[taskRows[i]
+									+ cheapest])) {
+						cheapest = j;
+					}
+				}
+				taskCores[i] = cheapest;
+				taken[cheapest] = true;
+				repaired++;
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("The warm start was repaired: " + repaired + " of "
+					+ tasks.length + " tasks got another core");
+		}
+		return taskCores;
+	}
+
+	/**
+	 * Schedules the CTG tasks to the available cores so that the weighted sum
+	 * of execution times and powers is as small as possible.
+	 *
+	 * @see ApcgType
+	 *
+	 * @return a String containing the APCG XML
+	 */
+	@Override
+	public String schedule() {
+		ScheduleResult scheduleResult = computeSchedule();
+		return scheduleResult == null ? null : scheduleResult.toXml();
+	}
+
+	@Override
+	public ScheduleResult computeSchedule() {
+		AnytimeResult anytimeResult = computeSchedule(0, TimeUnit.NANOSECONDS,
+				null, null);
+		return anytimeResult == null ? null : anytimeResult.getScheduleResult();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A time budget which is not positive means no deadline: each chain does
+	 * all its iterations (unless the search is cancelled). With a warm start,
+	 * the first chain starts from it and the other chains start from random
+	 * assignments.
+	 * </p>
+	 */
+	@Override
+	public AnytimeResult computeSchedule(long timeBudget, TimeUnit unit,
+			SearchControl control, ScheduleResult warmStart) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Simulated annealing scheduling started");
+		}
+
+		long startTime = System.nanoTime();
+		AnytimeResult anytimeResult = null;
+		try {
+			CoreLibrary coreLibrary = CoreLibraryCache.load(coresDir);
+			int coreCount = coreLibrary.getCoreCount();
+			logger.assertLog(taskXmls.length <= coreCount,
+					"The simulated annealing scheduler requires a core for each task. However, there are "
+							+ taskXmls.length + " tasks and only " + coreCount
+							+ " cores!");
+			if (taskXmls.length <= coreCount) {
+				TaskRecord[] tasks = new TaskRecord[taskXmls.length];
+				int[] taskTypeIndexes = new int[taskXmls.length];
+				int[] taskRows = new int[taskXmls.length];
+				boolean known = true;
+				for (int i = 0; i < taskXmls.length; i++) {
+					tasks[i] = SchedulingXmlReader.readTask(taskXmls[i]);
+					taskTypeIndexes[i] = coreLibrary.getTaskTypeIndex(tasks[i]
+							.getType());
+					if (taskTypeIndexes[i] == -1) {
+						logger.assertLog(false, "The task type "
+								+ tasks[i].getType()
+								+ " was not found in the specification of any core");
+						known = false;
+					}
+					taskRows[i] = taskTypeIndexes[i] * coreCount;
+				}
+				if (known) {
+					double[] costs = buildCosts(coreLibrary, tasks.length);
+					int[] warmTaskCores = null;
+					if (warmStart != null) {
+						warmTaskCores = repairWarmStart(coreLibrary, tasks,
+								costs, taskRows, warmStart);
+					}
+					// the time spent reading counts against the budget
+					long budgetNanos = 0;
+					if (timeBudget > 0) {
+						budgetNanos = Math.max(1, unit.toNanos(timeBudget)
+								- (System.nanoTime() - startTime));
+					}
+					SearchOutcome outcome = search(costs, coreCount, taskRows,
+							warmTaskCores, budgetNanos, control);
+					anytimeResult = new AnytimeResult(buildScheduleResult(
+							coreLibrary, tasks, taskTypeIndexes,
+							outcome.taskCores), outcome.cost,
+							outcome.initialCost, outcome.stopReason, System
+									.nanoTime()
+									- startTime, outcome.evaluated,
+							outcome.accepted);
+				}
+			}
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
+		} catch (ExecutionException e) {
+			logger.error("A search chain failed", e.getCause());
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Simulated annealing scheduling finished");
+		}
+
+		return anytimeResult;
+	}
+
+	private ScheduleResult buildScheduleResult(CoreLibrary coreLibrary,
+			TaskRecord[] tasks, int[] taskTypeIndexes, int[] taskCores) {
+		ScheduleResult.Builder builder = new ScheduleResult.Builder(apcgId,
+				ctgId);
+		for (int i = 0; i < tasks.length; i++) {
+			int core = taskCores[i];
+			int taskType = taskTypeIndexes[i];
+			logger.assertLog(coreLibrary.hasTaskType(core, taskType),
+					"The task type " + tasks[i].getType()
+							+ " was not found in the specification of core with ID "
+							+ coreLibrary.getCoreId(core));
+			if (logger.isInfoEnabled()) {
+				logger.info("Task " + i + " is scheduled to core "
+						+ coreLibrary.getCoreName(core) + " (ID "
+						+ coreLibrary.getCoreId(core) + ")");
+			}
+			// each task is assigned to a different core
+			builder.startCore(tasks[i].getID(), coreLibrary.getCoreId(core));
+			builder.addTask(tasks[i].getID(), coreLibrary.getExecTime(core,
+					taskType), coreLibrary.getPower(core, taskType));
+		}
+		return builder.build();
+	}
+
+	public static void main(String[] args) throws FileNotFoundException {
+		System.err
+				.println("usage:   java SimulatedAnnealingScheduler.class [-exec {weight}] [-power {weight}] [-chains {N}] [-iterations {N}] [-seed {seed}] [-budget {milliseconds}] [-report {CSV or JSON file}] [E3S benchmarks]");
+		System.err
+				.println("note:	 each CTG is only scheduled individually (e.g.: folders named like ctg-0+1 are ignored)");
+		System.err
+				.println("note:	 with a time budget, the search starts from the minimum execution time schedule and stops when the budget runs out");
+		System.err
+				.println("example 1 (specify the tgff file): java SimulatedAnnealingScheduler.class -power 0.5 -seed 7 ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff ../CTG-XML/xml/e3s/telecom-mocsyn.tgff");
+		System.err
+				.println("example 2 (schedule the entire E3S benchmark suite): java SimulatedAnnealingScheduler.class");
+		System.err
+				.println("example 3 (report the time of each phase, for each CTG): java SimulatedAnnealingScheduler.class -report phases.csv");
+		double execTimeWeight = 1;
+		double powerWeight = 1;
+		int chainCount = DEFAULT_CHAINS;
+		long iterations = 0;
+		long seed = DEFAULT_SEED;
+		long budget = 0;
+		File report = null;
+		int first = 0;
+		while (args != null && first + 1 < args.length
+				&& args[first].startsWith("-")) {
+			if ("-exec".equals(args[first])) {
+				execTimeWeight = Double.parseDouble(args[first + 1]);
+			} else if ("-power".equals(args[first])) {
+				powerWeight = Double.parseDouble(args[first + 1]);
+			} else if ("-chains".equals(args[first])) {
+				chainCount = Integer.parseInt(args[first + 1]);
+			} else if ("-iterations".equals(args[first])) {
+				iterations = Long.parseLong(args[first + 1]);
+			} else if ("-seed".equals(args[first])) {
+				seed = Long.parseLong(args[first + 1]);
+			} else if ("-budget".equals(args[first])) {
+				budget = Long.parseLong(args[first + 1]);
+			} else if ("-report".equals(args[first])) {
+				report = new File(args[first + 1]);
+			} else {
+				logger.error("Unknown option " + args[first]);
+				return;
+			}
+			first += 2;
+		}
+		MetricsCollector metrics = null;
+		if (report != null) {
+			metrics = new MetricsCollector();
+			metrics.register();
+		}
+		File[] tgffFiles = null;
+		if (args == null || args.length == first) {
+			File e3sDir = new File(".." + File.separator + "CTG-XML"
+					+ File.separator + "xml" + File.separator + "e3s");
+			logger.assertLog(e3sDir.isDirectory(),
+					"Could not find the E3S benchmarks directory!");
+			tgffFiles = e3sDir.listFiles(new FilenameFilter() {
+
+				@Override
+				public boolean accept(File dir, String name) {
+					return name.endsWith(".tgff");
+				}
+			});
+		} else {
+			tgffFiles = new File[args.length - first];
+			for (int i = first; i < args.length; i++) {
+				tgffFiles[i - first] = new File(args[i]);
+			}
+		}
+		for (int i = 0; i < tgffFiles.length; i++) {
+			String path = tgffFiles[i].getPath() + File.separator;
+			File e3sBenchmark = tgffFiles[i];
+			String[] ctgs = e3sBenchmark.list(new FilenameFilter() {
+
+				@Override
+				public boolean accept(File dir, String name) {
+					return dir.isDirectory() && name.startsWith("ctg-");
+				}
+			});
+			for (int j = 0; j < ctgs.length; j++) {
+				String ctgId = ctgs[j].substring("ctg-".length());
+				if (!ctgId.contains("+")) {
+					logger.info("Scheduling " + path + " with a simulated annealing scheduler");
+					String tasksPath = path + "ctg-" + ctgId + File.separator
+							+ "tasks";
+					AnytimeScheduler scheduler = new SimulatedAnnealingScheduler(
+							ctgId, tasksPath, path + "cores", execTimeWeight,
+							powerWeight, chainCount, iterations, seed);
+					String apcgId = ctgId + "_" + scheduler.getSchedulerId();
+					Instrumentation.beginCtg(e3sBenchmark.getName(), ctgId,
+							scheduler.getSchedulerId());
+					try {
+						ScheduleResult scheduleResult;
+						Instrumentation.enter(Phase.SEARCH);
+						try {
+							if (budget > 0) {
+								ScheduleResult warmStart = new MinExecTimeScheduler(
+										ctgId, tasksPath, path + "cores")
+										.computeSchedule();
+								AnytimeResult anytimeResult = scheduler
+										.computeSchedule(budget,
+												TimeUnit.MILLISECONDS, null,
+												warmStart);
+								logger.info("Search result: " + anytimeResult);
+								scheduleResult = anytimeResult == null ? null
+										: anytimeResult.getScheduleResult();
+							} else {
+								scheduleResult = scheduler.computeSchedule();
+							}
+						} finally {
+							Instrumentation.exit();
+						}
+						String xmlFileName = path + "ctg-" + ctgId
+								+ File.separator + "apcg-" + apcgId + ".xml";
+						if (scheduleResult == null) {
+							logger.error("CTG " + ctgId
+									+ " could not be scheduled; " + xmlFileName
+									+ " is not written");
+							continue;
+						}
+						logger.info("Saving the scheduling XML file "
+								+ xmlFileName);
+						try {
+							scheduleResult.write(new File(xmlFileName));
+						} catch (IOException e) {
+							logger.error("Could not write " + xmlFileName, e);
+						}
+					} finally {
+						Instrumentation.endCtg();
+					}
+				}
+			}
+			logger.info("Finished with e3s" + File.separator
+					+ tgffFiles[i].getName());
+		}
+		if (metrics != null) {
+			metrics.unregister();
+			metrics.writeReport(report);
+		}
+		logger.info("Done.");
+	}
+
+}
@@ -0,0 +1,182 @@
+package ro.ulbsibiu.acaps.scheduler.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Computes content hashes (SHA-1) of the inputs of a scheduler, so that a
+ * scheduling whose inputs did not change can be skipped. The digest of a
+ * directory covers the names and the contents of its XML files (in the order
+ * of their names), so it doesn't depend on modification times.
+ * <p>
+ * The digest of an APCG's inputs is kept next to the APCG XML, in a file with
+ * the same name and the {@link #EXTENSION} extension.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public final class InputDigest {
+
+	/** the extension of the file which keeps the digest of an APCG's inputs */
+	public static final String EXTENSION = ".sha1";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private InputDigest() {
+		// only static methods
+	}
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform must support SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+	private static void update(MessageDigest messageDigest, String s) {
+		byte[] bytes = s.getBytes(UTF8);
+		// the length separates consecutive strings
+		messageDigest.update((byte) (bytes.length >>> 24));
+		messageDigest.update((byte) (bytes.length >>> 16));
+		messageDigest.update((byte) (bytes.length >>> 8));
+		messageDigest.update((byte) bytes.length);
+		messageDigest.update(bytes);
+	}
+
+	/**
+	 * Computes the digest of the XML files from a directory.
+	 *
+	 * @param dir
+	 *            the directory
+	 * @return the digest, as a hexadecimal string
+	 *
+	 * @throws IOException
+	 *             if a file cannot be read
+	 */
+	public static String digestDirectory(File dir) throws IOException {
+		File[] xmls = dir.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File file, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+		if (xmls == null) {
+			throw new FileNotFoundException("Cannot list the directory " + dir);
+		}
+		Arrays.sort(xmls);
+
+		MessageDigest messageDigest = newMessageDigest();
+		byte[] buffer = new byte[8192];
+		for (int i = 0; i < xmls.length; i++) {
+			update(messageDigest, xmls[i].getName());
+			update(messageDigest, Long.toString(xmls[i].length()));
+			InputStream inputStream = new FileInputStream(xmls[i]);
+			try {
+				int n;
+				while ((n = inputStream.read(buffer)) != -1) {
+					messageDigest.update(buffer, 0, n);
+				}
+			} finally {
+				inputStream.close();
+			}
+		}
+		return toHex(messageDigest.digest());
+	}
+
+	/**
+	 * Combines the given digests (and strings) into a single digest.
+	 *
+	 * @param parts
+	 *            the digests (or any other strings, like a scheduler ID)
+	 * @return the digest, as a hexadecimal string
+	 */
+	public static String combine(String... parts) {
+		MessageDigest messageDigest = newMessageDigest();
+		for (int i = 0; i < parts.length; i++) {
+			update(messageDigest, parts[i]);
+		}
+		return toHex(messageDigest.digest());
+	}
+
+	/**
+	 * @param apcgXml
+	 *            the APCG XML file
+	 * @return the file which keeps the digest of the APCG's inputs
+	 */
+	public static File getDigestFile(File apcgXml) {
+		return new File(apcgXml.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Reads the digest of the inputs from which the given APCG was produced.
+	 *
+	 * @param apcgXml
+	 *            the APCG XML file
+	 * @return the digest, or <tt>null</tt> if it was not recorded
+	 *
+	 * @throws IOException
+	 *             if the digest file exists but cannot be read
+	 */
+	public static String read(File apcgXml) throws IOException {
+		String digest = null;
+		File digestFile = getDigestFile(apcgXml);
+		if (digestFile.isFile()) {
+			BufferedReader reader = new BufferedReader(new FileReader(
+					digestFile));
+			try {
+				digest = reader.readLine();
+			} finally {
+				reader.close();
+			}
+		}
+		return digest;
+	}
+
+	/**
+	 * Records the digest of the inputs from which the given APCG was
+	 * produced.
+	 *
+	 * @param apcgXml
+	 *            the APCG XML file
+	 * @param digest
+	 *            the digest
+	 *
+	 * @throws IOException
+	 *             if the digest file cannot be written
+	 */
+	public static void write(File apcgXml, String digest) throws IOException {
+		PrintWriter pw = new PrintWriter(getDigestFile(apcgXml));
+		try {
+			pw.println(digest);
+		} finally {
+			pw.close();
+		}
+	}
+
+}
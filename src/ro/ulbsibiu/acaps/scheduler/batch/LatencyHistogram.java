@@ -0,0 +1,119 @@
+package ro.ulbsibiu.acaps.scheduler.batch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of latencies, in nanoseconds. The buckets have a
+ * logarithmic scale: each power of two is split into {@link #SUB_BUCKETS}
+ * buckets, so a percentile is found with an error of at most 1 /
+ * {@link #SUB_BUCKETS} (12.5%), for any latency. Recording a latency takes
+ * two atomic increments and an atomic addition; the histogram can be read
+ * while it is being updated (the reads are not a consistent snapshot, but
+ * each latency is eventually counted).
+ *
+ * @author cradu
+ *
+ */
+class LatencyHistogram {
+
+	/** how many buckets each power of two is split into */
+	private static final int SUB_BUCKETS = 8;
+
+	/** log2(SUB_BUCKETS) */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/** the number of latencies in each bucket */
+	private final AtomicLongArray buckets = new AtomicLongArray(
+			64 * SUB_BUCKETS);
+
+	/** the number of latencies */
+	private final AtomicLong count = new AtomicLong();
+
+	/** the sum of the latencies */
+	private final AtomicLong sum = new AtomicLong();
+
+	/**
+	 * @return the bucket of the latency
+	 */
+	private static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) Math.max(0, nanos);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS))
+				& (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return the largest latency of the bucket
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket % SUB_BUCKETS;
+		long lower = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+		return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param nanos
+	 *            the latency, in nanoseconds
+	 */
+	void record(long nanos) {
+		buckets.incrementAndGet(bucket(nanos));
+		sum.addAndGet(nanos);
+		count.incrementAndGet();
+	}
+
+	/**
+	 * @return how many latencies were recorded
+	 */
+	long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the average latency, in nanoseconds (0 if none was recorded)
+	 */
+	double getAverage() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * @param percentile
+	 *            the percentile (between 0 and 100)
+	 * @return the latency below which the given percentage of the latencies
+	 *         are (rounded up to the end of its bucket), in nanoseconds (0 if
+	 *         none was recorded)
+	 */
+	long getPercentile(double percentile) {
+		long[] counts = new long[buckets.length()];
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		int i = 0;
+		while (i < counts.length - 1) {
+			seen += counts[i];
+			if (seen >= rank) {
+				break;
+			}
+			i++;
+		}
+		return upperBound(i);
+	}
+
+}
@@ -0,0 +1,47 @@
+package ro.ulbsibiu.acaps.scheduler.batch;
+
+import java.util.Map;
+
+/**
+ * The live counters of a pipelined suite run, exposed through JMX (see
+ * {@link PipelineRunner}). Each counter is given for each stage (parse,
+ * schedule and write), in the order of the stages.
+ *
+ * @author cradu
+ *
+ */
+public interface PipelineRunMXBean {
+
+	/**
+	 * @return how many CTGs wait in the input queue of each stage, right now
+	 */
+	public abstract Map<String, Integer> getQueueDepths();
+
+	/**
+	 * @return the largest number of CTGs seen in the input queue of each stage
+	 */
+	public abstract Map<String, Integer> getPeakQueueDepths();
+
+	/**
+	 * @return how many CTGs each stage has processed
+	 */
+	public abstract Map<String, Long> getProcessed();
+
+	/**
+	 * @return the fraction of the time (between 0 and 1) in which the threads
+	 *         of each stage were busy, since the run started
+	 */
+	public abstract Map<String, Double> getUtilisations();
+
+	/**
+	 * @return the time the threads of each stage were blocked because the
+	 *         next queue was full (backpressure), in milliseconds
+	 */
+	public abstract Map<String, Double> getBlockedMillis();
+
+	/**
+	 * @return how many CTGs could not be parsed, scheduled or written
+	 */
+	public abstract long getFailures();
+
+}
@@ -0,0 +1,566 @@
+package ro.ulbsibiu.acaps.scheduler.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.MetricsCollector;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.workspace.BenchmarkWorkspace;
+
+/**
+ * Schedules entire benchmark suites in a pipeline with three stages: parse
+ * (reads the task and core XMLs of a CTG into a {@link BenchmarkWorkspace}),
+ * schedule (runs the {@link Scheduler}) and write (marshals the APCG and
+ * writes its XML). Each stage has its own threads, so the CPU bound
+ * scheduling and the I/O bound parsing and writing overlap. The stages are
+ * connected by bounded queues: a stage which gets ahead of the next one blocks
+ * when the queue between them is full (backpressure), so the number of CTGs
+ * held in memory is limited.
+ * <p>
+ * The number of threads of each stage and the capacity of the queues are
+ * configurable. To tune them, the depth of each stage's input queue and the
+ * utilisation of its threads can be watched through JMX, while the pipeline
+ * runs (see {@link PipelineRunMXBean}), and they are logged at the end.
+ * </p>
+ * <p>
+ * The schedulers which can work from a workspace are supported: random (0),
+ * direct (1) and minimum execution time (2). The APCG XMLs are the same as
+ * the ones produced by the {@link SuiteRunner}.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class PipelineRunner implements PipelineRunMXBean {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(PipelineRunner.class);
+
+	/** the JMX name under which pipelines are registered by default */
+	public static final String DEFAULT_NAME = "ro.ulbsibiu.acaps.scheduler:type=PipelineRun";
+
+	/** the CTG which tells a stage thread that there are no more CTGs */
+	private static final CtgItem END = new CtgItem(null, null);
+
+	/** the ID of the scheduler */
+	private final String schedulerId;
+
+	/** the number of threads of the parse, schedule and write stages */
+	private final int[] threadCounts;
+
+	/** the capacity of the queues between the stages */
+	private final int queueCapacity;
+
+	private final AtomicLong failures = new AtomicLong();
+
+	/** how many APCG XMLs were written */
+	private final AtomicLong written = new AtomicLong();
+
+	/** the stages of the current (or last) run (<tt>null</tt> before a run) */
+	private volatile List<Stage> stages;
+
+	/** when the current (or last) run started */
+	private volatile long start;
+
+	/** when the last run ended (0 while a run is in progress) */
+	private volatile long end;
+
+	/** the name under which this pipeline is registered (if it is) */
+	private ObjectName objectName;
+
+	/**
+	 * A CTG which goes through the pipeline. Each stage adds what it computed;
+	 * the queues publish it safely to the next stage.
+	 */
+	private static final class CtgItem {
+
+		private final File benchmark;
+
+		private final String ctgId;
+
+		/** set by the parse stage (and dropped by the schedule stage) */
+		private BenchmarkWorkspace workspace;
+
+		/** set by the schedule stage */
+		private ScheduleResult result;
+
+		CtgItem(File benchmark, String ctgId) {
+			this.benchmark = benchmark;
+			this.ctgId = ctgId;
+		}
+	}
+
+	/**
+	 * A stage of the pipeline. Its threads take the CTGs from the input queue,
+	 * process them and put them in the input queue of the next stage. The last
+	 * thread of a stage which ends, ends the next stage.
+	 */
+	private abstract class Stage implements Runnable {
+
+		private final String name;
+
+		private final int threadCount;
+
+		private final BlockingQueue<CtgItem> input;
+
+		/** the next stage (<tt>null</tt> for the last stage) */
+		private final Stage next;
+
+		/** how many threads of the stage still run */
+		private final AtomicInteger running;
+
+		private final AtomicLong processed = new AtomicLong();
+
+		/** the time spent processing CTGs, by all the threads */
+		private final AtomicLong busyNanos = new AtomicLong();
+
+		/** the time spent waiting for room in the next queue */
+		private final AtomicLong blockedNanos = new AtomicLong();
+
+		private final AtomicInteger peakQueueDepth = new AtomicInteger();
+
+		Stage(String name, int threadCount, BlockingQueue<CtgItem> input,
+				Stage next) {
+			this.name = name;
+			this.threadCount = threadCount;
+			this.input = input;
+			this.next = next;
+			this.running = new AtomicInteger(threadCount);
+		}
+
+		/**
+		 * Records the current depth of the input queue, if it is the largest
+		 * so far (the end markers are put only after the last CTG, so they are
+		 * never counted).
+		 */
+		void recordQueueDepth() {
+			int depth = input.size();
+			int peak = peakQueueDepth.get();
+			while (depth > peak && !peakQueueDepth.compareAndSet(peak, depth)) {
+				peak = peakQueueDepth.get();
+			}
+		}
+
+		/**
+		 * Processes a CTG.
+		 *
+		 * @return whether or not the CTG can go to the next stage
+		 */
+		abstract boolean process(CtgItem item) throws XMLStreamException,
+				IOException;
+
+		@Override
+		public void run() {
+			try {
+				CtgItem item = input.take();
+				while (item != END) {
+					long begin = System.nanoTime();
+					boolean processedOk = false;
+					// each stage records its part of the CTG on its own
+					// thread (see MetricsCollector)
+					Instrumentation.beginCtg(item.benchmark.getName(),
+							item.ctgId, schedulerId);
+					try {
+						processedOk = process(item);
+					} catch (XMLStreamException e) {
+						logger.error("StAX encountered an error", e);
+					} catch (IOException e) {
+						logger.error("Could not write the APCG of CTG "
+								+ item.ctgId + " of " + item.benchmark, e);
+					} catch (Throwable e) {
+						// not even an Error may end the thread: if the last
+						// thread of a stage ended, the stages before it would
+						// block forever on its full input queue
+						logger.error("CTG " + item.ctgId + " of "
+								+ item.benchmark + " failed in the " + name
+								+ " stage", e);
+					} finally {
+						Instrumentation.endCtg();
+					}
+					busyNanos.addAndGet(System.nanoTime() - begin);
+					processed.incrementAndGet();
+					if (!processedOk) {
+						failures.incrementAndGet();
+					} else if (next != null) {
+						begin = System.nanoTime();
+						next.input.put(item);
+						blockedNanos.addAndGet(System.nanoTime() - begin);
+						next.recordQueueDepth();
+					}
+					item = input.take();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				if (running.decrementAndGet() == 0 && next != null) {
+					try {
+						for (int i = 0; i < next.threadCount; i++) {
+							next.input.put(END);
+						}
+					} catch (InterruptedException e) {
+						// the whole pipeline is being stopped
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param schedulerId
+	 *            the ID of the scheduler (0, 1 or 2)
+	 * @param parseThreads
+	 *            the number of threads which parse the task and core XMLs
+	 *            (must be positive)
+	 * @param scheduleThreads
+	 *            the number of threads which schedule the CTGs (must be
+	 *            positive)
+	 * @param writeThreads
+	 *            the number of threads which write the APCG XMLs (must be
+	 *            positive)
+	 * @param queueCapacity
+	 *            how many CTGs can wait between two stages (must be positive)
+	 */
+	public PipelineRunner(String schedulerId, int parseThreads,
+			int scheduleThreads, int writeThreads, int queueCapacity) {
+		logger.assertLog(WorkspaceRunner.isWorkspaceScheduler(schedulerId),
+				"Scheduler " + schedulerId + " cannot run in a pipeline");
+		logger.assertLog(parseThreads > 0 && scheduleThreads > 0
+				&& writeThreads > 0, "Each stage needs at least one thread");
+		logger.assertLog(queueCapacity > 0,
+				"The queue capacity must be positive");
+		this.schedulerId = schedulerId;
+		this.threadCounts = new int[] { parseThreads, scheduleThreads,
+				writeThreads };
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Registers this pipeline with the platform MBean server.
+	 *
+	 * @param name
+	 *            the JMX object name (e.g. {@link #DEFAULT_NAME})
+	 * @return whether or not the pipeline was registered
+	 */
+	public synchronized boolean register(String name) {
+		boolean registered = false;
+		try {
+			ObjectName objectName = new ObjectName(name);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					objectName);
+			this.objectName = objectName;
+			registered = true;
+		} catch (JMException e) {
+			logger.error("Could not register the pipeline as " + name, e);
+		}
+		return registered;
+	}
+
+	/**
+	 * Unregisters this pipeline from the platform MBean server (if it was
+	 * registered).
+	 */
+	public synchronized void unregister() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+						objectName);
+			} catch (JMException e) {
+				logger.warn("Could not unregister the pipeline", e);
+			}
+			objectName = null;
+		}
+	}
+
+	/**
+	 * Schedules all the CTGs from the given benchmarks. This method blocks
+	 * until all CTGs went through the pipeline.
+	 *
+	 * @param tgffFiles
+	 *            the benchmark (.tgff) directories
+	 * @return how many APCG XMLs were written
+	 *
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for the pipeline
+	 *             (the pipeline is stopped)
+	 */
+	public long run(File[] tgffFiles) throws InterruptedException {
+		BlockingQueue<CtgItem> parseQueue = new LinkedBlockingQueue<CtgItem>();
+		Stage write = new Stage("write", threadCounts[2],
+				new ArrayBlockingQueue<CtgItem>(queueCapacity), null) {
+
+			@Override
+			boolean process(CtgItem item) throws IOException {
+				File xmlFile = new File(item.benchmark, "ctg-" + item.ctgId
+						+ File.separator + "apcg-" + item.result.getApcgId()
+						+ ".xml");
+				logger.info("Saving the scheduling XML file " + xmlFile);
+				item.result.write(xmlFile);
+				written.incrementAndGet();
+				return true;
+			}
+		};
+		Stage schedule = new Stage("schedule", threadCounts[1],
+				new ArrayBlockingQueue<CtgItem>(queueCapacity), write) {
+
+			@Override
+			boolean process(CtgItem item) {
+				Scheduler scheduler = WorkspaceRunner.createScheduler(
+						schedulerId, item.workspace, item.ctgId);
+				Instrumentation.enter(Phase.SEARCH);
+				try {
+					item.result = scheduler.computeSchedule();
+				} finally {
+					Instrumentation.exit();
+				}
+				// the tasks are not needed anymore
+				item.workspace = null;
+				return item.result != null;
+			}
+		};
+		Stage parse = new Stage("parse", threadCounts[0], parseQueue, schedule) {
+
+			@Override
+			boolean process(CtgItem item) throws XMLStreamException {
+				item.workspace = BenchmarkWorkspace.load(item.benchmark,
+						item.ctgId);
+				return true;
+			}
+		};
+
+		for (int i = 0; i < tgffFiles.length; i++) {
+			String[] ctgIds = SuiteRunner.findCtgIds(tgffFiles[i]);
+			for (int j = 0; j < ctgIds.length; j++) {
+				parseQueue.add(new CtgItem(tgffFiles[i], ctgIds[j]));
+			}
+		}
+		parse.recordQueueDepth();
+		for (int i = 0; i < parse.threadCount; i++) {
+			parseQueue.add(END);
+		}
+
+		failures.set(0);
+		written.set(0);
+		start = System.nanoTime();
+		end = 0;
+		stages = Arrays.asList(parse, schedule, write);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCounts[0]
+				+ threadCounts[1] + threadCounts[2]);
+		try {
+			for (Stage stage : stages) {
+				for (int i = 0; i < stage.threadCount; i++) {
+					executor.execute(stage);
+				}
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			end = System.nanoTime();
+		}
+		return written.get();
+	}
+
+	@Override
+	public Map<String, Integer> getQueueDepths() {
+		Map<String, Integer> depths = new LinkedHashMap<String, Integer>();
+		List<Stage> stages = this.stages;
+		if (stages != null) {
+			for (Stage stage : stages) {
+				// the end markers are not CTGs
+				int depth = 0;
+				for (CtgItem item : stage.input) {
+					if (item != END) {
+						depth++;
+					}
+				}
+				depths.put(stage.name, depth);
+			}
+		}
+		return depths;
+	}
+
+	@Override
+	public Map<String, Integer> getPeakQueueDepths() {
+		Map<String, Integer> depths = new LinkedHashMap<String, Integer>();
+		List<Stage> stages = this.stages;
+		if (stages != null) {
+			for (Stage stage : stages) {
+				depths.put(stage.name, stage.peakQueueDepth.get());
+			}
+		}
+		return depths;
+	}
+
+	@Override
+	public Map<String, Long> getProcessed() {
+		Map<String, Long> processed = new LinkedHashMap<String, Long>();
+		List<Stage> stages = this.stages;
+		if (stages != null) {
+			for (Stage stage : stages) {
+				processed.put(stage.name, stage.processed.get());
+			}
+		}
+		return processed;
+	}
+
+	@Override
+	public Map<String, Double> getUtilisations() {
+		Map<String, Double> utilisations = new LinkedHashMap<String, Double>();
+		List<Stage> stages = this.stages;
+		if (stages != null) {
+			long elapsed = (end == 0 ? System.nanoTime() : end) - start;
+			for (Stage stage : stages) {
+				utilisations.put(stage.name, elapsed <= 0 ? 0
+						: (double) stage.busyNanos.get()
+								/ (elapsed * stage.threadCount));
+			}
+		}
+		return utilisations;
+	}
+
+	@Override
+	public Map<String, Double> getBlockedMillis() {
+		Map<String, Double> blocked = new LinkedHashMap<String, Double>();
+		List<Stage> stages = this.stages;
+		if (stages != null) {
+			for (Stage stage : stages) {
+				blocked.put(stage.name, stage.blockedNanos.get() / 1e6);
+			}
+		}
+		return blocked;
+	}
+
+	@Override
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * Logs, for each stage, its threads, how many CTGs it processed, the
+	 * utilisation of its threads, the peak depth of its input queue and how
+	 * long it was blocked by the next stage.
+	 */
+	public void logStages() {
+		List<Stage> stages = this.stages;
+		if (stages != null) {
+			Map<String, Double> utilisations = getUtilisations();
+			for (Stage stage : stages) {
+				logger.info(stage.name + " stage: " + stage.threadCount
+						+ " threads, " + stage.processed.get()
+						+ " CTGs, utilisation "
+						+ String.format("%.1f", 100 * utilisations.get(stage.name))
+						+ "%, peak queue depth " + stage.peakQueueDepth.get()
+						+ ", blocked "
+						+ String.format("%.3f", stage.blockedNanos.get() / 1e6)
+						+ " ms");
+			}
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		System.err
+				.println("usage:   java PipelineRunner.class {scheduler ID} [-parse {threads}] [-schedule {threads}] [-write {threads}] [-queue {capacity}] [-jmx] [-report {CSV or JSON file}] [E3S benchmarks]");
+		System.err
+				.println("note:	 scheduler IDs: 0 = random, 1 = direct, 2 = minimum execution time; each CTG is only scheduled individually (e.g.: folders named like ctg-0+1 are ignored)");
+		System.err
+				.println("example 1 (specify the tgff file): java PipelineRunner.class 2 -parse 2 -schedule 8 -write 2 ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff");
+		System.err
+				.println("example 2 (watch the queues through JMX, as " + DEFAULT_NAME + "): java -Dcom.sun.management.jmxremote PipelineRunner.class 2 -queue 4 -jmx");
+		System.err
+				.println("example 3 (report the time of each phase, for each CTG): java PipelineRunner.class 2 -report phases.csv");
+		if (args == null || args.length == 0) {
+			logger.error("The scheduler ID must be specified!");
+			return;
+		}
+		if (!WorkspaceRunner.isWorkspaceScheduler(args[0])) {
+			logger.error("Scheduler " + args[0] + " cannot run in a pipeline");
+			return;
+		}
+		int parseThreads = 2;
+		int scheduleThreads = Runtime.getRuntime().availableProcessors();
+		int writeThreads = 2;
+		int queueCapacity = 16;
+		boolean jmx = false;
+		File report = null;
+		int first = 1;
+		while (first < args.length && args[first].startsWith("-")) {
+			if ("-parse".equals(args[first]) && first + 1 < args.length) {
+				parseThreads = Integer.parseInt(args[first + 1]);
+				first += 2;
+			} else if ("-schedule".equals(args[first])
+					&& first + 1 < args.length) {
+				scheduleThreads = Integer.parseInt(args[first + 1]);
+				first += 2;
+			} else if ("-write".equals(args[first]) && first + 1 < args.length) {
+				writeThreads = Integer.parseInt(args[first + 1]);
+				first += 2;
+			} else if ("-queue".equals(args[first]) && first + 1 < args.length) {
+				queueCapacity = Integer.parseInt(args[first + 1]);
+				first += 2;
+			} else if ("-jmx".equals(args[first])) {
+				jmx = true;
+				first++;
+			} else if ("-report".equals(args[first]) && first + 1 < args.length) {
+				report = new File(args[first + 1]);
+				first += 2;
+			} else {
+				logger.error("Unknown option " + args[first]);
+				return;
+			}
+		}
+		String[] paths = Arrays.copyOfRange(args, first, args.length);
+
+		PipelineRunner pipeline = new PipelineRunner(args[0], parseThreads,
+				scheduleThreads, writeThreads, queueCapacity);
+		if (jmx) {
+			pipeline.register(DEFAULT_NAME);
+		}
+		MetricsCollector metrics = null;
+		if (report != null) {
+			metrics = new MetricsCollector();
+			metrics.register();
+		}
+		long start = System.nanoTime();
+		long written = pipeline.run(SuiteRunner.findBenchmarks(paths));
+		logger.info(written + " APCGs written (" + pipeline.getFailures()
+				+ " CTGs failed) in "
+				+ String.format("%.3f", (System.nanoTime() - start) / 1e6)
+				+ " ms");
+		pipeline.logStages();
+		pipeline.unregister();
+		if (metrics != null) {
+			metrics.unregister();
+			metrics.writeReport(report);
+		}
+		logger.info("Done.");
+	}
+
+}
@@ -0,0 +1,70 @@
+package ro.ulbsibiu.acaps.scheduler.batch;
+
+import java.util.Map;
+
+/**
+ * The live counters of a suite run, exposed through JMX (see
+ * {@link SuiteRunMonitor}). The latencies are given for each scheduler ID.
+ *
+ * @author cradu
+ *
+ */
+public interface SuiteRunMXBean {
+
+	/**
+	 * @return how many CTGs were scheduled (the skipped ones are not counted)
+	 */
+	public abstract long getCtgsScheduled();
+
+	/**
+	 * @return how many CTGs were skipped, because their inputs did not change
+	 */
+	public abstract long getCtgsSkipped();
+
+	/**
+	 * @return how many CTGs could not be scheduled
+	 */
+	public abstract long getFailures();
+
+	/**
+	 * @return how many CTGs are being scheduled right now
+	 */
+	public abstract int getInFlight();
+
+	/**
+	 * @return how many CTGs were scheduled per second, since the monitor was
+	 *         created
+	 */
+	public abstract double getCtgsPerSecond();
+
+	/**
+	 * @return the time since the monitor was created, in milliseconds
+	 */
+	public abstract long getElapsedMillis();
+
+	/**
+	 * @return the average time needed to schedule a CTG (including writing
+	 *         its APCG XML), in milliseconds, for each scheduler ID
+	 */
+	public abstract Map<String, Double> getAverageLatencyMillis();
+
+	/**
+	 * @return the 99th percentile of the time needed to schedule a CTG
+	 *         (including writing its APCG XML), in milliseconds, for each
+	 *         scheduler ID
+	 */
+	public abstract Map<String, Double> getP99LatencyMillis();
+
+	/**
+	 * @return the time spent parsing XML files, by all the CTGs, in
+	 *         milliseconds
+	 */
+	public abstract double getParseMillis();
+
+	/**
+	 * @return the time spent marshalling APCG XMLs, by all the CTGs, in
+	 *         milliseconds
+	 */
+	public abstract double getMarshalMillis();
+
+}
@@ -0,0 +1,228 @@
+package ro.ulbsibiu.acaps.scheduler.batch;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.instrumentation.CtgMetrics;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.InstrumentationListener;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+
+/**
+ * Counts the progress of a suite run, so that it can be watched through JMX
+ * while it runs (see {@link SuiteRunMXBean}). The scheduler threads update
+ * the counters with atomic operations only (no locks), and the counters can
+ * be read at any time.
+ * <p>
+ * The parse and marshal times come from the
+ * {@link ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation}: the
+ * monitor is also an {@link InstrumentationListener}, and the times stay 0
+ * while the instrumentation is disabled.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class SuiteRunMonitor implements SuiteRunMXBean,
+		InstrumentationListener {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(SuiteRunMonitor.class);
+
+	/** the JMX name under which monitors are registered by default */
+	public static final String DEFAULT_NAME = "ro.ulbsibiu.acaps.scheduler:type=SuiteRun";
+
+	/** when the monitor was created */
+	private final long start = System.nanoTime();
+
+	private final AtomicLong ctgsScheduled = new AtomicLong();
+
+	private final AtomicLong ctgsSkipped = new AtomicLong();
+
+	private final AtomicLong failures = new AtomicLong();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicLong parseNanos = new AtomicLong();
+
+	private final AtomicLong marshalNanos = new AtomicLong();
+
+	/** the latencies of each scheduler ID */
+	private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	/** the name under which this monitor is registered (if it is) */
+	private ObjectName objectName;
+
+	/**
+	 * Registers this monitor with the platform MBean server.
+	 *
+	 * @param name
+	 *            the JMX object name (e.g. {@link #DEFAULT_NAME})
+	 * @return whether or not the monitor was registered
+	 */
+	public synchronized boolean register(String name) {
+		boolean registered = false;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(name);
+			server.registerMBean(this, objectName);
+			this.objectName = objectName;
+			registered = true;
+		} catch (JMException e) {
+			logger.error("Could not register the suite run monitor as " + name,
+					e);
+		}
+		return registered;
+	}
+
+	/**
+	 * Unregisters this monitor from the platform MBean server (if it was
+	 * registered).
+	 */
+	public synchronized void unregister() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+						objectName);
+			} catch (JMException e) {
+				logger.warn("Could not unregister the suite run monitor", e);
+			}
+			objectName = null;
+		}
+	}
+
+	/**
+	 * Counts a CTG whose scheduling started.
+	 */
+	void ctgStarted() {
+		inFlight.incrementAndGet();
+	}
+
+	/**
+	 * Counts a CTG which was scheduled (or skipped).
+	 *
+	 * @param schedulerId
+	 *            the ID of the scheduler
+	 * @param nanos
+	 *            the time needed by the CTG, in nanoseconds
+	 * @param skipped
+	 *            whether the CTG was skipped, because its inputs did not
+	 *            change
+	 */
+	void ctgFinished(String schedulerId, long nanos, boolean skipped) {
+		inFlight.decrementAndGet();
+		if (skipped) {
+			ctgsSkipped.incrementAndGet();
+		} else {
+			LatencyHistogram histogram = latencies.get(schedulerId);
+			if (histogram == null) {
+				LatencyHistogram created = new LatencyHistogram();
+				histogram = latencies.putIfAbsent(schedulerId, created);
+				if (histogram == null) {
+					histogram = created;
+				}
+			}
+			histogram.record(nanos);
+			ctgsScheduled.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Counts a CTG which could not be scheduled.
+	 */
+	void ctgFailed() {
+		inFlight.decrementAndGet();
+		failures.incrementAndGet();
+	}
+
+	@Override
+	public void ctgFinished(CtgMetrics metrics) {
+		parseNanos.addAndGet(metrics.getPhaseNanos(Phase.PARSE));
+		marshalNanos.addAndGet(metrics.getPhaseNanos(Phase.MARSHAL));
+	}
+
+	@Override
+	public long getCtgsScheduled() {
+		return ctgsScheduled.get();
+	}
+
+	@Override
+	public long getCtgsSkipped() {
+		return ctgsSkipped.get();
+	}
+
+	@Override
+	public long getFailures() {
+		return failures.get();
+	}
+
+	@Override
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	@Override
+	public double getCtgsPerSecond() {
+		long elapsed = System.nanoTime() - start;
+		return elapsed <= 0 ? 0 : ctgsScheduled.get() * 1e9 / elapsed;
+	}
+
+	@Override
+	public long getElapsedMillis() {
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	@Override
+	public Map<String, Double> getAverageLatencyMillis() {
+		Map<String, Double> averages = new TreeMap<String, Double>();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			averages.put(entry.getKey(), entry.getValue().getAverage() / 1e6);
+		}
+		return averages;
+	}
+
+	@Override
+	public Map<String, Double> getP99LatencyMillis() {
+		Map<String, Double> percentiles = new TreeMap<String, Double>();
+		for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			percentiles.put(entry.getKey(),
+					entry.getValue().getPercentile(99) / 1e6);
+		}
+		return percentiles;
+	}
+
+	@Override
+	public double getParseMillis() {
+		return parseNanos.get() / 1e6;
+	}
+
+	@Override
+	public double getMarshalMillis() {
+		return marshalNanos.get() / 1e6;
+	}
+
+	@Override
+	public String toString() {
+		return getCtgsScheduled() + " CTGs scheduled, " + getCtgsSkipped()
+				+ " skipped, " + getFailures() + " failed, " + getInFlight()
+				+ " in flight; " + String.format("%.2f", getCtgsPerSecond())
+				+ " CTGs/s; average latency " + getAverageLatencyMillis()
+				+ " ms, p99 " + getP99LatencyMillis() + " ms; parse "
+				+ String.format("%.3f", getParseMillis()) + " ms, marshal "
+				+ String.format("%.3f", getMarshalMillis()) + " ms";
+	}
+
+}
@@ -0,0 +1,726 @@
+package ro.ulbsibiu.acaps.scheduler.batch;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.SchedulerFactory;
+import ro.ulbsibiu.acaps.scheduler.annealing.SimulatedAnnealingScheduler;
+import ro.ulbsibiu.acaps.scheduler.combined.CombinedCtgScheduler;
+import ro.ulbsibiu.acaps.scheduler.direct.DirectScheduler;
+import ro.ulbsibiu.acaps.scheduler.hungarian.HungarianScheduler;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.CtgMetrics;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.MetricsReport;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.minExecTime.MinExecTimeScheduler;
+import ro.ulbsibiu.acaps.scheduler.random.RandomScheduler;
+
+/**
+ * Schedules entire benchmark suites (like E3S), with any {@link Scheduler}.
+ * The CTGs are independent from each other, so they are scheduled in parallel,
+ * by a configurable number of threads. The threads take the CTGs from a
+ * shared queue, so that a thread which finishes early simply takes the next
+ * CTG.
+ * <p>
+ * Each CTG produces the same APCG XML file as the <tt>main()</tt> method of
+ * the scheduler (<tt>ctg-{CTG ID}/apcg-{CTG ID}_{scheduler ID}.xml</tt>). At
+ * the end, the time spent with each CTG is reported. When the
+ * {@link Instrumentation} is enabled, the time of each phase is recorded too
+ * (see {@link CtgTiming#getMetrics()}). The progress of a run can be watched
+ * through JMX, with a {@link SuiteRunMonitor}.
+ * </p>
+ * <p>
+ * In incremental mode, the content hash of each CTG's inputs (its task XMLs,
+ * the core XMLs and the scheduler ID) is recorded next to its APCG XML (see
+ * {@link InputDigest}). A CTG whose inputs have the same hash as when its APCG
+ * XML was written is not scheduled again.
+ * </p>
+ * <p>
+ * In combined mode, the combined CTGs (folders named like ctg-0+1) are
+ * scheduled too, with a {@link CombinedCtgScheduler}: their member CTGs are
+ * scheduled in parallel, by a separate pool of threads, and they produce a
+ * single APCG XML (<tt>ctg-0+1/apcg-0+1_{scheduler ID}.xml</tt>).
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class SuiteRunner {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(SuiteRunner.class);
+
+	/** creates the scheduler for each CTG */
+	private final SchedulerFactory schedulerFactory;
+
+	/** how many CTGs are scheduled at the same time */
+	private final int parallelism;
+
+	/** whether or not the CTGs with unchanged inputs are skipped */
+	private final boolean incremental;
+
+	/** counts the progress of the run (can be <tt>null</tt>) */
+	private final SuiteRunMonitor monitor;
+
+	/** whether or not the combined CTGs are scheduled too */
+	private final boolean combined;
+
+	/**
+	 * schedules the member CTGs of the combined CTGs (<tt>null</tt> if not in
+	 * combined mode, or if no run is in progress)
+	 */
+	private volatile ExecutorService memberExecutor;
+
+	/**
+	 * The time needed to schedule a CTG (this includes writing its APCG XML),
+	 * or to find out that it can be skipped.
+	 *
+	 * @author cradu
+	 *
+	 */
+	public static final class CtgTiming {
+
+		/** the benchmark (the .tgff directory) */
+		private final String benchmark;
+
+		/** the ID of the Communication Task Graph */
+		private final String ctgId;
+
+		/** the ID of the scheduler */
+		private final String schedulerId;
+
+		/** the written APCG XML file */
+		private final File apcgXml;
+
+		/** the time, in nanoseconds */
+		private final long nanos;
+
+		/** whether the CTG was skipped, because its inputs did not change */
+		private final boolean skipped;
+
+		/** the metrics of the CTG (<tt>null</tt> if not instrumented) */
+		private CtgMetrics metrics;
+
+		CtgTiming(String benchmark, String ctgId, String schedulerId,
+				File apcgXml, long nanos, boolean skipped) {
+			this.benchmark = benchmark;
+			this.ctgId = ctgId;
+			this.schedulerId = schedulerId;
+			this.apcgXml = apcgXml;
+			this.nanos = nanos;
+			this.skipped = skipped;
+		}
+
+		public String getBenchmark() {
+			return benchmark;
+		}
+
+		public String getCtgId() {
+			return ctgId;
+		}
+
+		public String getSchedulerId() {
+			return schedulerId;
+		}
+
+		public File getApcgXml() {
+			return apcgXml;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public boolean isSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * @return the metrics of the CTG, or <tt>null</tt> if the
+		 *         {@link Instrumentation} was disabled
+		 */
+		public CtgMetrics getMetrics() {
+			return metrics;
+		}
+
+	}
+
+	/**
+	 * Schedules one CTG and writes its APCG XML.
+	 */
+	private class CtgJob implements Callable<CtgTiming> {
+
+		private final File benchmark;
+
+		private final String ctgId;
+
+		/** the digest of the core XMLs (<tt>null</tt> if not incremental) */
+		private final String coresDigest;
+
+		CtgJob(File benchmark, String ctgId, String coresDigest) {
+			this.benchmark = benchmark;
+			this.ctgId = ctgId;
+			this.coresDigest = coresDigest;
+		}
+
+		@Override
+		public CtgTiming call() throws IOException {
+			// the scheduler ID is known only after the scheduler is created
+			Instrumentation.beginCtg(benchmark.getName(), ctgId, null);
+			if (monitor != null) {
+				monitor.ctgStarted();
+			}
+			CtgTiming timing = null;
+			try {
+				timing = schedule();
+			} finally {
+				CtgMetrics metrics = Instrumentation.endCtg();
+				if (timing != null) {
+					timing.metrics = metrics;
+				}
+				if (monitor != null) {
+					if (timing != null) {
+						monitor.ctgFinished(timing.getSchedulerId(), timing
+								.getNanos(), timing.isSkipped());
+					} else {
+						monitor.ctgFailed();
+					}
+				}
+			}
+			return timing;
+		}
+
+		/**
+		 * @return the digest of the task XMLs of the CTG (of all its member
+		 *         CTGs, for a combined CTG)
+		 */
+		private String digestTasks(String path) throws IOException {
+			String[] ctgIds = { ctgId };
+			if (CombinedCtgScheduler.isCombined(ctgId)) {
+				ctgIds = CombinedCtgScheduler.getMemberCtgIds(ctgId);
+			}
+			String[] digests = new String[ctgIds.length];
+			for (int i = 0; i < ctgIds.length; i++) {
+				digests[i] = InputDigest.digestDirectory(new File(path + "ctg-"
+						+ ctgIds[i] + File.separator + "tasks"));
+			}
+			return InputDigest.combine(digests);
+		}
+
+		private CtgTiming schedule() throws IOException {
+			long start = System.nanoTime();
+			String path = benchmark.getPath() + File.separator;
+			String tasksFilePath = path + "ctg-" + ctgId + File.separator
+					+ "tasks";
+			Scheduler scheduler;
+			Instrumentation.enter(Phase.LISTING);
+			try {
+				if (CombinedCtgScheduler.isCombined(ctgId)) {
+					scheduler = new CombinedCtgScheduler(schedulerFactory,
+							benchmark.getPath(), ctgId, memberExecutor);
+				} else {
+					scheduler = schedulerFactory.create(ctgId, tasksFilePath,
+							path + "cores");
+				}
+			} finally {
+				Instrumentation.exit();
+			}
+			Instrumentation.setSchedulerId(scheduler.getSchedulerId());
+			String apcgId = ctgId + "_" + scheduler.getSchedulerId();
+			File xmlFile = new File(path + "ctg-" + ctgId + File.separator
+					+ "apcg-" + apcgId + ".xml");
+
+			String inputDigest = null;
+			if (coresDigest != null) {
+				inputDigest = InputDigest.combine(scheduler.getSchedulerId(),
+						coresDigest, digestTasks(path));
+				if (xmlFile.isFile()
+						&& inputDigest.equals(InputDigest.read(xmlFile))) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("The inputs of " + xmlFile
+								+ " did not change; skipping it");
+					}
+					return new CtgTiming(benchmark.getName(), ctgId,
+							scheduler.getSchedulerId(), xmlFile,
+							System.nanoTime() - start, true);
+				}
+			}
+
+			ScheduleResult scheduleResult;
+			Instrumentation.enter(Phase.SEARCH);
+			try {
+				scheduleResult = scheduler.computeSchedule();
+			} finally {
+				Instrumentation.exit();
+			}
+			if (scheduleResult == null) {
+				// the previous APCG XML and its digest are left as they are
+				logger.error("CTG " + ctgId + " of " + benchmark
+						+ " could not be scheduled; " + xmlFile
+						+ " is not written");
+				return null;
+			}
+			Instrumentation.enter(Phase.WRITE);
+			try {
+				// if the APCG XML is not replaced, it has no digest anymore,
+				// so the next incremental run schedules the CTG again
+				File digestFile = InputDigest.getDigestFile(xmlFile);
+				if (digestFile.exists() && !digestFile.delete()) {
+					throw new IOException("Could not delete " + digestFile);
+				}
+				logger.info("Saving the scheduling XML file " + xmlFile);
+				scheduleResult.write(xmlFile);
+				if (inputDigest != null) {
+					InputDigest.write(xmlFile, inputDigest);
+				}
+			} finally {
+				Instrumentation.exit();
+			}
+			return new CtgTiming(benchmark.getName(), ctgId, scheduler
+					.getSchedulerId(), xmlFile,
+					System.nanoTime() - start, false);
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param schedulerFactory
+	 *            creates the scheduler for each CTG
+	 * @param parallelism
+	 *            how many CTGs are scheduled at the same time (must be
+	 *            positive)
+	 */
+	public SuiteRunner(SchedulerFactory schedulerFactory, int parallelism) {
+		this(schedulerFactory, parallelism, false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param schedulerFactory
+	 *            creates the scheduler for each CTG
+	 * @param parallelism
+	 *            how many CTGs are scheduled at the same time (must be
+	 *            positive)
+	 * @param incremental
+	 *            whether or not the CTGs whose inputs did not change since
+	 *            their APCG XML was written are skipped
+	 */
+	public SuiteRunner(SchedulerFactory schedulerFactory, int parallelism,
+			boolean incremental) {
+		this(schedulerFactory, parallelism, incremental, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param schedulerFactory
+	 *            creates the scheduler for each CTG
+	 * @param parallelism
+	 *            how many CTGs are scheduled at the same time (must be
+	 *            positive)
+	 * @param incremental
+	 *            whether or not the CTGs whose inputs did not change since
+	 *            their APCG XML was written are skipped
+	 * @param monitor
+	 *            counts the progress of the run, e.g. for JMX (can be
+	 *            <tt>null</tt>)
+	 */
+	public SuiteRunner(SchedulerFactory schedulerFactory, int parallelism,
+			boolean incremental, SuiteRunMonitor monitor) {
+		this(schedulerFactory, parallelism, incremental, monitor, false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param schedulerFactory
+	 *            creates the scheduler for each CTG
+	 * @param parallelism
+	 *            how many CTGs are scheduled at the same time (must be
+	 *            positive); in combined mode, it is also how many member CTGs
+	 *            are scheduled at the same time
+	 * @param incremental
+	 *            whether or not the CTGs whose inputs did not change since
+	 *            their APCG XML was written are skipped
+	 * @param monitor
+	 *            counts the progress of the run, e.g. for JMX (can be
+	 *            <tt>null</tt>)
+	 * @param combined
+	 *            whether or not the combined CTGs (folders named like
+	 *            ctg-0+1) are scheduled too
+	 */
+	public SuiteRunner(SchedulerFactory schedulerFactory, int parallelism,
+			boolean incremental, SuiteRunMonitor monitor, boolean combined) {
+		logger.assertLog(schedulerFactory != null,
+				"A scheduler factory must be specified");
+		logger.assertLog(parallelism > 0, "The parallelism must be positive");
+		this.schedulerFactory = schedulerFactory;
+		this.parallelism = parallelism;
+		this.incremental = incremental;
+		this.monitor = monitor;
+		this.combined = combined;
+	}
+
+	/**
+	 * Finds the CTGs of a benchmark. Combined CTGs (folders named like
+	 * ctg-0+1) are ignored. The CTG IDs are sorted, so that the order in which
+	 * the CTGs are processed and reported does not depend on the file system.
+	 *
+	 * @param benchmark
+	 *            the benchmark (.tgff) directory
+	 * @return the CTG IDs
+	 */
+	public static String[] findCtgIds(File benchmark) {
+		String[] ctgs = benchmark.list(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return dir.isDirectory() && name.startsWith("ctg-");
+			}
+		});
+		List<String> ctgIds = new ArrayList<String>();
+		if (ctgs != null) {
+			Arrays.sort(ctgs);
+			for (int i = 0; i < ctgs.length; i++) {
+				String ctgId = ctgs[i].substring("ctg-".length());
+				if (!ctgId.contains("+")) {
+					ctgIds.add(ctgId);
+				}
+			}
+		}
+		return ctgIds.toArray(new String[ctgIds.size()]);
+	}
+
+	/**
+	 * Finds the combined CTGs of a benchmark (folders named like ctg-0+1). The
+	 * CTG IDs are sorted.
+	 *
+	 * @param benchmark
+	 *            the benchmark (.tgff) directory
+	 * @return the IDs of the combined CTGs (e.g. 0+1)
+	 */
+	public static String[] findCombinedCtgIds(File benchmark) {
+		String[] ctgs = benchmark.list(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return dir.isDirectory() && name.startsWith("ctg-");
+			}
+		});
+		List<String> ctgIds = new ArrayList<String>();
+		if (ctgs != null) {
+			Arrays.sort(ctgs);
+			for (int i = 0; i < ctgs.length; i++) {
+				String ctgId = ctgs[i].substring("ctg-".length());
+				if (CombinedCtgScheduler.isCombined(ctgId)) {
+					ctgIds.add(ctgId);
+				}
+			}
+		}
+		return ctgIds.toArray(new String[ctgIds.size()]);
+	}
+
+	/**
+	 * Finds the benchmarks (.tgff directories) to be scheduled.
+	 *
+	 * @param paths
+	 *            the benchmark paths; when none is given, the entire E3S
+	 *            benchmark suite (../CTG-XML/xml/e3s) is used
+	 * @return the benchmark directories
+	 */
+	public static File[] findBenchmarks(String[] paths) {
+		File[] tgffFiles = null;
+		if (paths == null || paths.length == 0) {
+			File e3sDir = new File(".." + File.separator + "CTG-XML"
+					+ File.separator + "xml" + File.separator + "e3s");
+			logger.assertLog(e3sDir.isDirectory(),
+					"Could not find the E3S benchmarks directory!");
+			tgffFiles = e3sDir.listFiles(new FilenameFilter() {
+
+				@Override
+				public boolean accept(File dir, String name) {
+					return name.endsWith(".tgff");
+				}
+			});
+			if (tgffFiles == null) {
+				tgffFiles = new File[0];
+			}
+			Arrays.sort(tgffFiles);
+		} else {
+			tgffFiles = new File[paths.length];
+			for (int i = 0; i < paths.length; i++) {
+				tgffFiles[i] = new File(paths[i]);
+			}
+		}
+		return tgffFiles;
+	}
+
+	/**
+	 * Schedules all the CTGs from the given benchmarks. This method blocks
+	 * until all CTGs are scheduled.
+	 *
+	 * @param tgffFiles
+	 *            the benchmark (.tgff) directories
+	 * @return the timing of each CTG, in the order benchmarks and CTGs were
+	 *         given (CTGs which failed are not included)
+	 *
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for the CTGs to
+	 *             be scheduled
+	 */
+	public List<CtgTiming> run(File[] tgffFiles) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		if (combined) {
+			// a combined CTG waits for its members, so they cannot be
+			// scheduled by the same threads
+			memberExecutor = Executors.newFixedThreadPool(parallelism);
+		}
+		List<Future<CtgTiming>> futures = new ArrayList<Future<CtgTiming>>();
+		try {
+			for (int i = 0; i < tgffFiles.length; i++) {
+				String coresDigest = null;
+				if (incremental) {
+					// computed only once, for all the CTGs of the benchmark
+					try {
+						coresDigest = InputDigest.digestDirectory(new File(
+								tgffFiles[i], "cores"));
+					} catch (IOException e) {
+						logger.error("Could not hash the cores of "
+								+ tgffFiles[i]
+								+ "; all its CTGs will be scheduled", e);
+					}
+				}
+				String[] ctgIds = findCtgIds(tgffFiles[i]);
+				for (int j = 0; j < ctgIds.length; j++) {
+					futures.add(executor.submit(new CtgJob(tgffFiles[i],
+							ctgIds[j], coresDigest)));
+				}
+				if (combined) {
+					String[] combinedCtgIds = findCombinedCtgIds(tgffFiles[i]);
+					for (int j = 0; j < combinedCtgIds.length; j++) {
+						futures.add(executor.submit(new CtgJob(tgffFiles[i],
+								combinedCtgIds[j], coresDigest)));
+					}
+				}
+			}
+			List<CtgTiming> timings = new ArrayList<CtgTiming>(futures.size());
+			for (Future<CtgTiming> future : futures) {
+				try {
+					CtgTiming timing = future.get();
+					if (timing != null) {
+						timings.add(timing);
+					}
+				} catch (ExecutionException e) {
+					logger.error("A CTG could not be scheduled", e.getCause());
+				}
+			}
+			return timings;
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			if (memberExecutor != null) {
+				memberExecutor.shutdownNow();
+				memberExecutor.awaitTermination(Long.MAX_VALUE,
+						TimeUnit.NANOSECONDS);
+				memberExecutor = null;
+			}
+		}
+	}
+
+	/**
+	 * Logs the time spent with each CTG and the total time.
+	 *
+	 * @param timings
+	 *            the CTG timings
+	 * @param wallNanos
+	 *            the wall clock time of the entire run, in nanoseconds
+	 */
+	public static void logSummary(List<CtgTiming> timings, long wallNanos) {
+		long total = 0;
+		int skipped = 0;
+		for (CtgTiming timing : timings) {
+			total += timing.getNanos();
+			if (timing.isSkipped()) {
+				skipped++;
+			}
+			logger.info(timing.getBenchmark() + File.separator + "ctg-"
+					+ timing.getCtgId() + ": "
+					+ String.format("%.3f", timing.getNanos() / 1e6) + " ms"
+					+ (timing.isSkipped() ? " (skipped)" : ""));
+		}
+		logger.info((timings.size() - skipped) + " CTGs scheduled and "
+				+ skipped + " skipped (unchanged inputs) in "
+				+ String.format("%.3f", wallNanos / 1e6) + " ms ("
+				+ String.format("%.3f", total / 1e6) + " ms of CTG time)");
+	}
+
+	/**
+	 * @param schedulerId
+	 *            the ID of a {@link Scheduler} which needs only the CTG, its
+	 *            tasks and the cores
+	 * @return a factory for the scheduler, or <tt>null</tt> if the ID is
+	 *         unknown
+	 */
+	public static SchedulerFactory getSchedulerFactory(String schedulerId) {
+		SchedulerFactory factory = null;
+		if ("0".equals(schedulerId)) {
+			factory = new SchedulerFactory() {
+
+				@Override
+				public Scheduler create(String ctgId, String tasksFilePath,
+						String coresFilePath) {
+					return new RandomScheduler(ctgId, tasksFilePath,
+							coresFilePath);
+				}
+			};
+		} else if ("1".equals(schedulerId)) {
+			factory = new SchedulerFactory() {
+
+				@Override
+				public Scheduler create(String ctgId, String tasksFilePath,
+						String coresFilePath) {
+					return new DirectScheduler(ctgId, tasksFilePath,
+							coresFilePath);
+				}
+			};
+		} else if ("2".equals(schedulerId)) {
+			factory = new SchedulerFactory() {
+
+				@Override
+				public Scheduler create(String ctgId, String tasksFilePath,
+						String coresFilePath) {
+					return new MinExecTimeScheduler(ctgId, tasksFilePath,
+							coresFilePath);
+				}
+			};
+		} else if ("4".equals(schedulerId)) {
+			factory = new SchedulerFactory() {
+
+				@Override
+				public Scheduler create(String ctgId, String tasksFilePath,
+						String coresFilePath) {
+					return new HungarianScheduler(ctgId, tasksFilePath,
+							coresFilePath);
+				}
+			};
+		} else if ("5".equals(schedulerId)) {
+			factory = new SchedulerFactory() {
+
+				@Override
+				public Scheduler create(String ctgId, String tasksFilePath,
+						String coresFilePath) {
+					return new SimulatedAnnealingScheduler(ctgId,
+							tasksFilePath, coresFilePath);
+				}
+			};
+		}
+		return factory;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		System.err
+				.println("usage:   java SuiteRunner.class {scheduler ID} [-threads {number of threads}] [-incremental] [-report {CSV or JSON file}] [-jmx] [-combined] [E3S benchmarks]");
+		System.err
+				.println("note:	 scheduler IDs: 0 = random, 1 = direct, 2 = minimum execution time, 4 = Hungarian, 5 = simulated annealing; each CTG is only scheduled individually (e.g.: folders named like ctg-0+1 are ignored), unless -combined is given");
+		System.err
+				.println("example 1 (specify the tgff file): java SuiteRunner.class 2 -threads 8 ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff ../CTG-XML/xml/e3s/telecom-mocsyn.tgff");
+		System.err
+				.println("example 2 (schedule the entire E3S benchmark suite): java SuiteRunner.class 2");
+		System.err
+				.println("example 3 (reschedule only the CTGs whose tasks, cores or scheduler changed): java SuiteRunner.class 2 -incremental");
+		System.err
+				.println("example 4 (report the time of each phase, for each CTG): java SuiteRunner.class 2 -report phases.csv");
+		System.err
+				.println("example 5 (watch the progress through JMX, as " + SuiteRunMonitor.DEFAULT_NAME + "): java -Dcom.sun.management.jmxremote SuiteRunner.class 2 -jmx");
+		System.err
+				.println("example 6 (schedule the combined CTGs too, e.g. ctg-0+1, with their member CTGs in parallel): java SuiteRunner.class 2 -combined");
+		if (args == null || args.length == 0) {
+			logger.error("The scheduler ID must be specified!");
+			return;
+		}
+		SchedulerFactory factory = getSchedulerFactory(args[0]);
+		if (factory == null) {
+			logger.error("Unknown scheduler ID " + args[0]);
+			return;
+		}
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		boolean incremental = false;
+		File report = null;
+		boolean jmx = false;
+		boolean combined = false;
+		int first = 1;
+		while (first < args.length && args[first].startsWith("-")) {
+			if ("-threads".equals(args[first]) && first + 1 < args.length) {
+				parallelism = Integer.parseInt(args[first + 1]);
+				first += 2;
+			} else if ("-incremental".equals(args[first])) {
+				incremental = true;
+				first++;
+			} else if ("-report".equals(args[first]) && first + 1 < args.length) {
+				report = new File(args[first + 1]);
+				first += 2;
+			} else if ("-jmx".equals(args[first])) {
+				jmx = true;
+				first++;
+			} else if ("-combined".equals(args[first])) {
+				combined = true;
+				first++;
+			} else {
+				logger.error("Unknown option " + args[first]);
+				return;
+			}
+		}
+		String[] paths = Arrays.copyOfRange(args, first, args.length);
+
+		SuiteRunMonitor monitor = null;
+		if (jmx) {
+			monitor = new SuiteRunMonitor();
+			monitor.register(SuiteRunMonitor.DEFAULT_NAME);
+			// the parse and marshal times come from the instrumentation
+			Instrumentation.addListener(monitor);
+		}
+		Instrumentation.setEnabled(report != null || jmx);
+		long start = System.nanoTime();
+		List<CtgTiming> timings = new SuiteRunner(factory, parallelism,
+				incremental, monitor, combined).run(findBenchmarks(paths));
+		logSummary(timings, System.nanoTime() - start);
+		if (monitor != null) {
+			logger.info(monitor);
+		}
+		if (report != null) {
+			List<CtgMetrics> metrics = new ArrayList<CtgMetrics>(timings
+					.size());
+			for (CtgTiming timing : timings) {
+				if (timing.getMetrics() != null) {
+					metrics.add(timing.getMetrics());
+				}
+			}
+			try {
+				MetricsReport.write(metrics, report);
+				logger.info("Saved the phase report " + report);
+			} catch (IOException e) {
+				logger.error("Could not write the phase report " + report, e);
+			}
+		}
+		logger.info("Done.");
+	}
+
+}
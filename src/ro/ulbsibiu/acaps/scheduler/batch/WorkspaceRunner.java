@@ -0,0 +1,371 @@
+package ro.ulbsibiu.acaps.scheduler.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.direct.DirectScheduler;
+import ro.ulbsibiu.acaps.scheduler.fadse.FadseOutputBasedScheduler;
+import ro.ulbsibiu.acaps.scheduler.fadse.FadseSolution;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.MetricsCollector;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.minExecTime.MinExecTimeScheduler;
+import ro.ulbsibiu.acaps.scheduler.random.RandomScheduler;
+import ro.ulbsibiu.acaps.scheduler.workspace.BenchmarkWorkspace;
+
+/**
+ * Schedules entire benchmark suites with several schedulers in a single pass.
+ * Each benchmark is loaded only once, into a {@link BenchmarkWorkspace}, and
+ * all the schedulers of all its CTGs work on that in-memory model. For each
+ * CTG, the random (0), direct (1) and minimum execution time (2) schedulers
+ * are run, one after the other. When a FADSE solution is given, the FADSE
+ * output based scheduler (3) is run last, with the APCG just computed by one
+ * of the other schedulers as template (nothing is read back from the APCG
+ * XMLs).
+ * <p>
+ * The CTGs are scheduled in parallel, like with the {@link SuiteRunner}, and
+ * they produce the same APCG XML files as the <tt>main()</tt> method of each
+ * scheduler (<tt>ctg-{CTG ID}/apcg-{CTG ID}_{scheduler ID}.xml</tt>).
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class WorkspaceRunner {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(WorkspaceRunner.class);
+
+	/** the IDs of the schedulers which are run from a workspace */
+	private static final String[] SCHEDULER_IDS = { "0", "1", "2" };
+
+	/** the IDs of the schedulers to run (0, 1 and / or 2), in this order */
+	private final String[] schedulerIds;
+
+	/** the FADSE solution (<tt>null</tt> if FADSE is not run) */
+	private final FadseSolution fadseSolution;
+
+	/** the ID of the scheduler whose APCG is the FADSE template */
+	private final String templateSchedulerId;
+
+	/** how many CTGs are scheduled at the same time */
+	private final int parallelism;
+
+	/** how many APCGs could not be computed or written, in the last run */
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * Schedules one CTG with all the schedulers and writes its APCG XMLs. The
+	 * job tells whether or not all the APCGs of the CTG were written.
+	 */
+	private class CtgJob implements Callable<Boolean> {
+
+		private final BenchmarkWorkspace workspace;
+
+		private final String ctgId;
+
+		CtgJob(BenchmarkWorkspace workspace, String ctgId) {
+			this.workspace = workspace;
+			this.ctgId = ctgId;
+		}
+
+		@Override
+		public Boolean call() throws IOException {
+			boolean written = true;
+			Map<String, ScheduleResult> results = new HashMap<String, ScheduleResult>();
+			for (int i = 0; i < schedulerIds.length; i++) {
+				Instrumentation.beginCtg(workspace.getBenchmark().getName(),
+						ctgId, schedulerIds[i]);
+				try {
+					ScheduleResult result = schedule(createScheduler(
+							schedulerIds[i], workspace, ctgId));
+					results.put(schedulerIds[i], result);
+					written &= write(schedulerIds[i], result);
+				} finally {
+					Instrumentation.endCtg();
+				}
+			}
+			if (fadseSolution != null) {
+				ScheduleResult template = results.get(templateSchedulerId);
+				if (template == null) {
+					logger.error("CTG " + ctgId + " has no template APCG ("
+							+ templateSchedulerId
+							+ "); FADSE is not run for it");
+					failures.incrementAndGet();
+					written = false;
+				} else {
+					Scheduler scheduler = new FadseOutputBasedScheduler(
+							template, fadseSolution, workspace, ctgId);
+					Instrumentation.beginCtg(workspace.getBenchmark()
+							.getName(), ctgId, scheduler.getSchedulerId());
+					try {
+						written &= write(scheduler.getSchedulerId(),
+								schedule(scheduler));
+					} finally {
+						Instrumentation.endCtg();
+					}
+				}
+			}
+			return written;
+		}
+
+		/**
+		 * @return the APCG computed by the scheduler, or <tt>null</tt> if it
+		 *         could not be computed
+		 */
+		private ScheduleResult schedule(Scheduler scheduler) {
+			Instrumentation.enter(Phase.SEARCH);
+			try {
+				return scheduler.computeSchedule();
+			} finally {
+				Instrumentation.exit();
+			}
+		}
+
+		/**
+		 * @return whether or not the APCG was written
+		 */
+		private boolean write(String schedulerId, ScheduleResult result)
+				throws IOException {
+			if (result == null) {
+				logger.error("CTG " + ctgId + " of " + workspace.getBenchmark()
+						+ " could not be scheduled with scheduler "
+						+ schedulerId);
+				failures.incrementAndGet();
+				return false;
+			}
+			File xmlFile = new File(workspace.getCtgDir(ctgId), "apcg-"
+					+ result.getApcgId() + ".xml");
+			logger.info("Saving the scheduling XML file " + xmlFile);
+			result.write(xmlFile);
+			return true;
+		}
+	}
+
+	/**
+	 * @param schedulerId
+	 *            the ID of a scheduler which can run from a workspace (0, 1 or
+	 *            2)
+	 * @return whether or not the scheduler can run from a workspace
+	 */
+	static boolean isWorkspaceScheduler(String schedulerId) {
+		return Arrays.asList(SCHEDULER_IDS).contains(schedulerId);
+	}
+
+	/**
+	 * Creates a scheduler which works from a workspace.
+	 *
+	 * @param schedulerId
+	 *            the ID of the scheduler (0, 1 or 2)
+	 * @param workspace
+	 *            the workspace of the benchmark
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph
+	 * @return the scheduler
+	 */
+	static Scheduler createScheduler(String schedulerId,
+			BenchmarkWorkspace workspace, String ctgId) {
+		logger.assertLog(isWorkspaceScheduler(schedulerId), "Scheduler "
+				+ schedulerId + " cannot run from a workspace");
+		Scheduler scheduler;
+		if ("0".equals(schedulerId)) {
+			scheduler = new RandomScheduler(workspace, ctgId);
+		} else if ("1".equals(schedulerId)) {
+			scheduler = new DirectScheduler(workspace, ctgId);
+		} else {
+			scheduler = new MinExecTimeScheduler(workspace, ctgId);
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param schedulerIds
+	 *            the IDs of the schedulers to run (0, 1 and / or 2)
+	 * @param fadseSolution
+	 *            the FADSE solution (<tt>null</tt> if FADSE is not run)
+	 * @param templateSchedulerId
+	 *            the ID of the scheduler whose APCG is the FADSE template (it
+	 *            must be one of the scheduler IDs; ignored if FADSE is not
+	 *            run)
+	 * @param parallelism
+	 *            how many CTGs are scheduled at the same time (must be
+	 *            positive)
+	 */
+	public WorkspaceRunner(String[] schedulerIds, FadseSolution fadseSolution,
+			String templateSchedulerId, int parallelism) {
+		logger.assertLog(schedulerIds != null, "No scheduler ID is given");
+		for (int i = 0; i < schedulerIds.length; i++) {
+			logger.assertLog(isWorkspaceScheduler(schedulerIds[i]),
+					"Scheduler " + schedulerIds[i]
+							+ " cannot run from a workspace");
+		}
+		logger.assertLog(fadseSolution == null
+				|| Arrays.asList(schedulerIds).contains(templateSchedulerId),
+				"The template scheduler " + templateSchedulerId
+						+ " must be run too");
+		logger.assertLog(parallelism > 0, "The parallelism must be positive");
+		this.schedulerIds = schedulerIds.clone();
+		this.fadseSolution = fadseSolution;
+		this.templateSchedulerId = templateSchedulerId;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Loads each benchmark once and schedules all its CTGs with all the
+	 * schedulers. This method blocks until all CTGs are scheduled.
+	 *
+	 * @param tgffFiles
+	 *            the benchmark (.tgff) directories
+	 * @return how many CTGs were scheduled (by all the schedulers); the
+	 *         APCGs which could not be computed or written are counted by
+	 *         {@link #getFailures()}
+	 *
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for the CTGs to
+	 *             be scheduled
+	 */
+	public int run(File[] tgffFiles) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+		int scheduled = 0;
+		failures.set(0);
+		try {
+			for (int i = 0; i < tgffFiles.length; i++) {
+				BenchmarkWorkspace workspace;
+				long start = System.nanoTime();
+				try {
+					workspace = BenchmarkWorkspace.load(tgffFiles[i]);
+				} catch (XMLStreamException e) {
+					logger.error("StAX encountered an error", e);
+					continue;
+				}
+				logger.info("Loaded " + tgffFiles[i] + " in "
+						+ String.format("%.3f", (System.nanoTime() - start) / 1e6)
+						+ " ms");
+				String[] ctgIds = workspace.getCtgIds();
+				for (int j = 0; j < ctgIds.length; j++) {
+					futures.add(executor.submit(new CtgJob(workspace,
+							ctgIds[j])));
+				}
+			}
+			for (Future<Boolean> future : futures) {
+				try {
+					if (future.get()) {
+						scheduled++;
+					}
+				} catch (ExecutionException e) {
+					logger.error("A CTG could not be scheduled", e.getCause());
+					failures.incrementAndGet();
+				}
+			}
+			return scheduled;
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * @return how many APCGs could not be computed or written, in the last
+	 *         run
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		System.err
+				.println("usage:   java WorkspaceRunner.class [-threads {number of threads}] [-schedulers {scheduler IDs}] [-fadse {template scheduler ID} {FADSE output}] [-report {CSV or JSON file}] [E3S benchmarks]");
+		System.err
+				.println("note:	 scheduler IDs: 0 = random, 1 = direct, 2 = minimum execution time (all by default); with -fadse, the FADSE output based scheduler (3) is run too; each CTG is only scheduled individually (e.g.: folders named like ctg-0+1 are ignored)");
+		System.err
+				.println("example 1 (specify the tgff file): java WorkspaceRunner.class -threads 8 ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff");
+		System.err
+				.println("example 2 (schedule the entire E3S benchmark suite with 1 and 2, then with FADSE): java WorkspaceRunner.class -schedulers 1,2 -fadse 2 core-0_0=12|core-0_1=32|");
+		System.err
+				.println("example 3 (report the time of each phase, for each CTG and scheduler): java WorkspaceRunner.class -report phases.csv");
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		String[] schedulerIds = SCHEDULER_IDS;
+		FadseSolution fadseSolution = null;
+		String templateSchedulerId = null;
+		File report = null;
+		int first = 0;
+		while (first < args.length && args[first].startsWith("-")) {
+			if ("-threads".equals(args[first]) && first + 1 < args.length) {
+				parallelism = Integer.parseInt(args[first + 1]);
+				first += 2;
+			} else if ("-schedulers".equals(args[first])
+					&& first + 1 < args.length) {
+				schedulerIds = args[first + 1].split(",");
+				first += 2;
+			} else if ("-fadse".equals(args[first]) && first + 2 < args.length) {
+				templateSchedulerId = args[first + 1];
+				// the FADSE solution is parsed only once, for all CTGs
+				fadseSolution = FadseSolution.parse(args[first + 2]);
+				first += 3;
+			} else if ("-report".equals(args[first]) && first + 1 < args.length) {
+				report = new File(args[first + 1]);
+				first += 2;
+			} else {
+				logger.error("Unknown option " + args[first]);
+				return;
+			}
+		}
+		for (int i = 0; i < schedulerIds.length; i++) {
+			if (!isWorkspaceScheduler(schedulerIds[i])) {
+				logger.error("Unknown scheduler ID " + schedulerIds[i]);
+				return;
+			}
+		}
+		if (fadseSolution != null
+				&& !Arrays.asList(schedulerIds).contains(templateSchedulerId)) {
+			logger.error("The template scheduler " + templateSchedulerId
+					+ " must be one of the scheduler IDs");
+			return;
+		}
+		String[] paths = Arrays.copyOfRange(args, first, args.length);
+
+		MetricsCollector metrics = null;
+		if (report != null) {
+			metrics = new MetricsCollector();
+			metrics.register();
+		}
+		long start = System.nanoTime();
+		WorkspaceRunner runner = new WorkspaceRunner(schedulerIds,
+				fadseSolution, templateSchedulerId, parallelism);
+		int scheduled = runner.run(SuiteRunner.findBenchmarks(paths));
+		logger.info(scheduled + " CTGs scheduled (" + runner.getFailures()
+				+ " APCGs failed) in "
+				+ String.format("%.3f", (System.nanoTime() - start) / 1e6)
+				+ " ms");
+		if (metrics != null) {
+			metrics.unregister();
+			metrics.writeReport(report);
+		}
+		logger.info("Done.");
+	}
+
+}
@@ -0,0 +1,127 @@
+package ro.ulbsibiu.acaps.scheduler.benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.SchedulerFactory;
+import ro.ulbsibiu.acaps.scheduler.batch.SuiteRunner;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.CtgMetrics;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+
+/**
+ * Measures what building an APCG costs, for the schedulers which read their
+ * tasks from the file system: how many XML files are parsed and how many
+ * bytes are allocated for each APCG, and how long it takes. The parses are
+ * counted by the {@link Instrumentation}; the allocations are measured with
+ * the HotSpot specific thread allocation counter (they are reported as ? on
+ * JVMs which don't have it).
+ * <p>
+ * The core library of the benchmark is loaded (and cached) during the warm
+ * up, so the reported parses are the task XMLs a scheduler reads for one
+ * APCG.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ApcgAssemblyBenchmark {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(ApcgAssemblyBenchmark.class);
+
+	private static final int WARMUP_ITERATIONS = 20;
+
+	/** prevents the JIT compiler from eliminating the schedules */
+	private static int blackhole;
+
+	/**
+	 * @return the bytes allocated so far by the current thread, or -1 if the
+	 *         JVM cannot tell
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Builds the APCG of each CTG, <tt>iterations</tt> times.
+	 *
+	 * @return the number of files parsed, the allocated bytes (or -1) and the
+	 *         time, in nanoseconds, for all the APCGs
+	 */
+	private static long[] run(SchedulerFactory factory, File benchmark,
+			String[] ctgIds, int iterations) {
+		String path = benchmark.getPath() + File.separator;
+		long parses = 0;
+		long start = System.nanoTime();
+		long startBytes = allocatedBytes();
+		for (int i = 0; i < iterations; i++) {
+			for (int j = 0; j < ctgIds.length; j++) {
+				Instrumentation.beginCtg(benchmark.getName(), ctgIds[j], null);
+				Scheduler scheduler = factory.create(ctgIds[j], path + "ctg-"
+						+ ctgIds[j] + File.separator + "tasks", path + "cores");
+				ScheduleResult result = scheduler.computeSchedule();
+				CtgMetrics metrics = Instrumentation.endCtg();
+				blackhole += result == null ? 0 : result.getCoreCount();
+				parses += metrics.getFilesParsed();
+			}
+		}
+		long bytes = startBytes == -1 ? -1 : allocatedBytes() - startBytes;
+		return new long[] { parses, bytes, System.nanoTime() - start };
+	}
+
+	public static void main(String[] args) {
+		System.err
+				.println("usage:   java ApcgAssemblyBenchmark.class [benchmark (.tgff) directory] [iterations]");
+		System.err
+				.println("example: java ApcgAssemblyBenchmark.class ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff 200");
+		File benchmark = new File(".." + File.separator + "CTG-XML"
+				+ File.separator + "xml" + File.separator + "e3s"
+				+ File.separator + "auto-indust-mocsyn.tgff");
+		int iterations = 100;
+		if (args != null && args.length > 0) {
+			benchmark = new File(args[0]);
+		}
+		if (args != null && args.length > 1) {
+			iterations = Integer.parseInt(args[1]);
+		}
+		logger.assertLog(benchmark.isDirectory(), "Could not find the "
+				+ benchmark + " directory!");
+		String[] ctgIds = SuiteRunner.findCtgIds(benchmark);
+
+		// the scheduler logs would be measured too
+		Logger.getLogger("ro.ulbsibiu.acaps.scheduler").setLevel(Level.WARN);
+		logger.setLevel(Level.INFO);
+		Instrumentation.setEnabled(true);
+		String[] schedulerIds = { "0", "1", "2" };
+		for (int i = 0; i < schedulerIds.length; i++) {
+			SchedulerFactory factory = SuiteRunner
+					.getSchedulerFactory(schedulerIds[i]);
+			run(factory, benchmark, ctgIds, WARMUP_ITERATIONS);
+			long[] cost = run(factory, benchmark, ctgIds, iterations);
+			long apcgs = (long) iterations * ctgIds.length;
+			logger.info("Scheduler " + schedulerIds[i] + ": "
+					+ String.format("%.1f", (double) cost[0] / apcgs)
+					+ " XMLs parsed, "
+					+ (cost[1] == -1 ? "?" : String.format("%.1f",
+							cost[1] / 1024.0 / apcgs)) + " KB allocated, "
+					+ String.format("%.1f", cost[2] / 1e3 / apcgs)
+					+ " us per APCG");
+		}
+		logger.info("Done (blackhole " + blackhole + ").");
+	}
+
+}
@@ -0,0 +1,203 @@
+package ro.ulbsibiu.acaps.scheduler.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.random.RandomScheduler;
+
+/**
+ * Stress check for the re-entrancy of the schedulers: a single instance of
+ * each scheduler is shared by a pool of threads, which all call
+ * {@link Scheduler#schedule()} at the same time, many times. Every APCG XML
+ * must be identical to the one produced by a single threaded call.
+ * <p>
+ * The {@link RandomScheduler} gives a different APCG each time, so its APCGs
+ * are only checked to be valid: each task is scheduled exactly once and each
+ * task gets its own core.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ConcurrentScheduleCheck {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(ConcurrentScheduleCheck.class);
+
+	private static final long SEED = 0;
+
+	private static final String[] SCHEDULER_IDS = { "0", "1", "2", "3", "4",
+			"5" };
+
+	/**
+	 * @return the problems of a random schedule (an empty string if there is
+	 *         none)
+	 */
+	private static String validate(ScheduleResult scheduleResult, int taskCount) {
+		if (scheduleResult == null) {
+			return "no schedule";
+		}
+		Set<String> taskIds = new HashSet<String>(taskCount * 2);
+		Set<String> coreUids = new HashSet<String>(taskCount * 2);
+		for (int i = 0; i < scheduleResult.getCoreCount(); i++) {
+			if (!coreUids.add(scheduleResult.getCoreUid(i))) {
+				return "core UID " + scheduleResult.getCoreUid(i)
+						+ " is used twice";
+			}
+			if (scheduleResult.getTaskCount(i) != 1) {
+				return "core UID " + scheduleResult.getCoreUid(i) + " has "
+						+ scheduleResult.getTaskCount(i) + " tasks";
+			}
+			if (!taskIds.add(scheduleResult.getTaskId(i, 0))) {
+				return "task " + scheduleResult.getTaskId(i, 0)
+						+ " is scheduled twice";
+			}
+		}
+		return taskIds.size() == taskCount ? "" : taskIds.size() + " of "
+				+ taskCount + " tasks are scheduled";
+	}
+
+	/**
+	 * Calls the scheduler concurrently and compares each APCG with the
+	 * expected one.
+	 *
+	 * @return the number of wrong APCGs
+	 */
+	private static int check(final Scheduler scheduler, final int taskCount,
+			int threads, final int calls) throws InterruptedException {
+		final boolean random = scheduler instanceof RandomScheduler;
+		final String expected = random ? null : scheduler.schedule();
+		final CountDownLatch startGate = new CountDownLatch(1);
+		List<Callable<Integer>> workers = new ArrayList<Callable<Integer>>(
+				threads);
+		for (int i = 0; i < threads; i++) {
+			workers.add(new Callable<Integer>() {
+
+				@Override
+				public Integer call() throws InterruptedException {
+					startGate.await();
+					int failures = 0;
+					for (int j = 0; j < calls; j++) {
+						if (random) {
+							String problems = validate(scheduler
+									.computeSchedule(), taskCount);
+							if (problems.length() > 0) {
+								logger.error("Wrong random APCG: " + problems);
+								failures++;
+							}
+						} else if (!expected.equals(scheduler.schedule())) {
+							failures++;
+						}
+					}
+					return failures;
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		int failures = 0;
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>(
+					threads);
+			for (Callable<Integer> worker : workers) {
+				futures.add(executor.submit(worker));
+			}
+			// all the threads start scheduling at the same time
+			startGate.countDown();
+			for (Future<Integer> future : futures) {
+				try {
+					failures += future.get();
+				} catch (ExecutionException e) {
+					logger.error("A schedule failed", e.getCause());
+					failures += calls;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return failures;
+	}
+
+	public static void main(String[] args) throws IOException, JAXBException,
+			XMLStreamException, InterruptedException {
+		System.err
+				.println("usage:   java ConcurrentScheduleCheck.class [-tasks {task count}] [-cores {core count}] [-threads {threads}] [-calls {calls per thread}] [-dir {work directory}]");
+		System.err
+				.println("example: java ConcurrentScheduleCheck.class -tasks 200 -cores 400 -threads 8 -calls 20");
+		int taskCount = 200;
+		int coreCount = 400;
+		int threads = Runtime.getRuntime().availableProcessors() * 2;
+		int calls = 20;
+		File workDir = new File(System.getProperty("java.io.tmpdir"),
+				"scheduler-benchmark");
+		for (int i = 0; args != null && i + 1 < args.length; i += 2) {
+			if ("-tasks".equals(args[i])) {
+				taskCount = Integer.parseInt(args[i + 1]);
+			} else if ("-cores".equals(args[i])) {
+				coreCount = Integer.parseInt(args[i + 1]);
+			} else if ("-threads".equals(args[i])) {
+				threads = Integer.parseInt(args[i + 1]);
+			} else if ("-calls".equals(args[i])) {
+				calls = Integer.parseInt(args[i + 1]);
+			} else if ("-dir".equals(args[i])) {
+				workDir = new File(args[i + 1]);
+			} else {
+				logger.error("Unknown option " + args[i]);
+				return;
+			}
+		}
+		logger.assertLog(coreCount >= taskCount,
+				"Some of the schedulers need a core for each task");
+
+		// the schedulers log each task
+		Logger.getLogger("ro.ulbsibiu.acaps.scheduler").setLevel(Level.WARN);
+		logger.setLevel(Level.INFO);
+
+		File benchmark = new File(workDir, "concurrent-" + taskCount + "-"
+				+ coreCount + ".tgff");
+		SuiteGenerator generator = new SuiteGenerator(SEED, taskCount,
+				coreCount);
+		generator.generate(benchmark);
+		String fadseOutput = generator.generateFadseOutput();
+
+		int totalFailures = 0;
+		for (int i = 0; i < SCHEDULER_IDS.length; i++) {
+			Scheduler scheduler = SchedulerBenchmark.createScheduler(
+					SCHEDULER_IDS[i], benchmark, fadseOutput);
+			long start = System.nanoTime();
+			int failures = check(scheduler, taskCount, threads, calls);
+			logger.info(scheduler.getClass().getSimpleName() + ": "
+					+ (threads * calls) + " concurrent schedules on "
+					+ threads + " threads, " + failures + " wrong APCGs ("
+					+ ((System.nanoTime() - start) / 1000000) + " ms)");
+			totalFailures += failures;
+		}
+		if (totalFailures > 0) {
+			logger.error(totalFailures + " APCGs were wrong");
+			System.exit(1);
+		}
+		logger.info("Done.");
+	}
+
+}
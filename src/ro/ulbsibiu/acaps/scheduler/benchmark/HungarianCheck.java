@@ -0,0 +1,177 @@
+package ro.ulbsibiu.acaps.scheduler.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.hungarian.HungarianAlgorithm;
+
+/**
+ * Regression check for the {@link HungarianAlgorithm}: it solves many random
+ * small assignment problems and compares the cost of each assignment with the
+ * minimum found by brute force. The costs are drawn from a small set which
+ * mixes small integers, fractions and large penalties (like the ones used by
+ * the {@link ro.ulbsibiu.acaps.scheduler.hungarian.HungarianScheduler}), so
+ * that there are many ties, and rows often share their costs. A problem which
+ * is not solved within a second counts as a hang.
+ *
+ * @author cradu
+ *
+ */
+public class HungarianCheck {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(HungarianCheck.class);
+
+	/** the most columns of a problem (the brute force takes O(m!) time) */
+	private static final int MAX_COLUMNS = 7;
+
+	/** the relative error which is tolerated for the cost of an assignment */
+	private static final double TOLERANCE = 1e-9;
+
+	/**
+	 * @return the minimum cost of an assignment of the rows to distinct
+	 *         columns, starting with the given row
+	 */
+	private static double bruteForce(double[] costs, int columnCount,
+			int[] rowOffsets, int row, boolean[] used) {
+		if (row == rowOffsets.length) {
+			return 0;
+		}
+		double min = Double.POSITIVE_INFINITY;
+		for (int j = 0; j < columnCount; j++) {
+			if (!used[j]) {
+				used[j] = true;
+				min = Math.min(min, costs[rowOffsets[row] + j]
+						+ bruteForce(costs, columnCount, rowOffsets, row + 1,
+								used));
+				used[j] = false;
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * @return the problems of an assignment (an empty string if there is none)
+	 */
+	private static String validate(double[] costs, int columnCount,
+			int[] rowOffsets, int[] assignment) {
+		if (assignment.length != rowOffsets.length) {
+			return assignment.length + " rows are assigned";
+		}
+		boolean[] used = new boolean[columnCount];
+		double cost = 0;
+		for (int i = 0; i < assignment.length; i++) {
+			if (assignment[i] < 0 || assignment[i] >= columnCount
+					|| used[assignment[i]]) {
+				return "row " + i + " gets column " + assignment[i];
+			}
+			used[assignment[i]] = true;
+			cost += costs[rowOffsets[i] + assignment[i]];
+		}
+		double min = bruteForce(costs, columnCount, rowOffsets, 0,
+				new boolean[columnCount]);
+		if (cost - min > TOLERANCE * Math.max(1, Math.abs(min))) {
+			return "cost " + cost + " instead of " + min;
+		}
+		return "";
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		System.err
+				.println("usage:   java HungarianCheck.class [-problems {number of problems}] [-seed {seed}]");
+		System.err
+				.println("example: java HungarianCheck.class -problems 100000 -seed 7");
+		int problems = 20000;
+		long seed = 0;
+		int first = 0;
+		while (args != null && first + 1 < args.length
+				&& args[first].startsWith("-")) {
+			if ("-problems".equals(args[first])) {
+				problems = Integer.parseInt(args[first + 1]);
+			} else if ("-seed".equals(args[first])) {
+				seed = Long.parseLong(args[first + 1]);
+			} else {
+				logger.error("Unknown option " + args[first]);
+				return;
+			}
+			first += 2;
+		}
+
+		// a hung solver thread must not keep the JVM alive
+		ExecutorService executor = Executors
+				.newCachedThreadPool(new ThreadFactory() {
+
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		Random random = new Random(seed);
+		double penalty = 1 + 1e-4 * MAX_COLUMNS;
+		double[] values = { 0, 1, 2, 3, 0.5, 1.0 / 3, 0.1, 1e-5, 3e-5,
+				2.5e-5, penalty, 1 + penalty * MAX_COLUMNS };
+		int wrong = 0;
+		int hung = 0;
+		long start = System.nanoTime();
+		for (int p = 0; p < problems; p++) {
+			final int m = 1 + random.nextInt(MAX_COLUMNS);
+			int n = 1 + random.nextInt(m);
+			int distinctRows = 1 + random.nextInt(n);
+			final double[] costs = new double[distinctRows * m];
+			for (int k = 0; k < costs.length; k++) {
+				costs[k] = values[random.nextInt(values.length)];
+			}
+			final int[] rowOffsets = new int[n];
+			for (int i = 0; i < n; i++) {
+				rowOffsets[i] = random.nextInt(distinctRows) * m;
+			}
+			Future<int[]> future = executor.submit(new Callable<int[]>() {
+
+				@Override
+				public int[] call() {
+					return HungarianAlgorithm.solve(costs, m, rowOffsets);
+				}
+			});
+			String problem;
+			try {
+				problem = validate(costs, m, rowOffsets, future.get(1,
+						TimeUnit.SECONDS));
+			} catch (TimeoutException e) {
+				problem = "no assignment within a second";
+				hung++;
+				future.cancel(true);
+			} catch (ExecutionException e) {
+				problem = "failed: " + e.getCause();
+			}
+			if (problem.length() > 0) {
+				if (!problem.startsWith("no assignment")) {
+					wrong++;
+				}
+				logger.error("Problem " + p + " (" + n + " x " + m
+						+ ", row offsets " + Arrays.toString(rowOffsets)
+						+ ", costs " + Arrays.toString(costs) + "): "
+						+ problem);
+			}
+		}
+		executor.shutdownNow();
+		logger.info(problems + " problems, " + wrong + " wrong assignments, "
+				+ hung + " hangs ("
+				+ String.format("%.3f", (System.nanoTime() - start) / 1e6)
+				+ " ms)");
+	}
+
+}
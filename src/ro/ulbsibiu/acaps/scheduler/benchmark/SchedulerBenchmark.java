@@ -0,0 +1,340 @@
+package ro.ulbsibiu.acaps.scheduler.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.annealing.SimulatedAnnealingScheduler;
+import ro.ulbsibiu.acaps.scheduler.direct.DirectScheduler;
+import ro.ulbsibiu.acaps.scheduler.fadse.FadseOutputBasedScheduler;
+import ro.ulbsibiu.acaps.scheduler.hungarian.HungarianScheduler;
+import ro.ulbsibiu.acaps.scheduler.minExecTime.MinExecTimeScheduler;
+import ro.ulbsibiu.acaps.scheduler.random.RandomScheduler;
+
+/**
+ * Measures {@link Scheduler#schedule()} for all the schedulers, on synthetic
+ * benchmarks (see {@link SuiteGenerator}) of different task counts and core
+ * library sizes. For each scheduler and each (task count, core count) pair,
+ * the time per schedule and the memory allocated per task are reported. The
+ * results are written as JSON, so that they can be compared across versions.
+ * <p>
+ * Each measurement is preceded by warmup iterations, so that the JIT compiler
+ * has optimized the scheduler and the core library is already loaded. The
+ * allocated memory is measured with the HotSpot specific
+ * {@link com.sun.management.ThreadMXBean}; on other JVMs it is reported as -1.
+ * </p>
+ * <p>
+ * The {@link RandomScheduler}, the {@link DirectScheduler}, the
+ * {@link HungarianScheduler} and the {@link SimulatedAnnealingScheduler} need
+ * at least as many cores as tasks, so they are skipped for the benchmarks with
+ * fewer cores.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class SchedulerBenchmark {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(SchedulerBenchmark.class);
+
+	private static final long SEED = 0;
+
+	private static final String[] SCHEDULER_IDS = { "0", "1", "2", "3", "4",
+			"5" };
+
+	/** prevents the JIT compiler from eliminating the schedules */
+	private static int blackhole;
+
+	/**
+	 * The measurement of a scheduler on a benchmark.
+	 */
+	private static final class Result {
+
+		private final String scheduler;
+
+		private final int taskCount;
+
+		private final int coreCount;
+
+		private final int iterations;
+
+		private final double nanosPerSchedule;
+
+		private final long minNanos;
+
+		private final long maxNanos;
+
+		private final double bytesPerTask;
+
+		Result(String scheduler, int taskCount, int coreCount, int iterations,
+				double nanosPerSchedule, long minNanos, long maxNanos,
+				double bytesPerTask) {
+			this.scheduler = scheduler;
+			this.taskCount = taskCount;
+			this.coreCount = coreCount;
+			this.iterations = iterations;
+			this.nanosPerSchedule = nanosPerSchedule;
+			this.minNanos = minNanos;
+			this.maxNanos = maxNanos;
+			this.bytesPerTask = bytesPerTask;
+		}
+	}
+
+	static Scheduler createScheduler(String schedulerId,
+			File benchmark, String fadseOutput) {
+		String path = benchmark.getPath() + File.separator;
+		String ctgId = SuiteGenerator.CTG_ID;
+		String tasksFilePath = path + "ctg-" + ctgId + File.separator + "tasks";
+		String coresFilePath = path + "cores";
+		Scheduler scheduler = null;
+		if ("0".equals(schedulerId)) {
+			scheduler = new RandomScheduler(ctgId, tasksFilePath,
+					coresFilePath);
+		} else if ("1".equals(schedulerId)) {
+			scheduler = new DirectScheduler(ctgId, tasksFilePath,
+					coresFilePath);
+		} else if ("2".equals(schedulerId)) {
+			scheduler = new MinExecTimeScheduler(ctgId, tasksFilePath,
+					coresFilePath);
+		} else if ("3".equals(schedulerId)) {
+			scheduler = new FadseOutputBasedScheduler(path + "ctg-" + ctgId
+					+ File.separator + "apcg-" + ctgId + "_"
+					+ SuiteGenerator.TEMPLATE_APCG_ID + ".xml", fadseOutput,
+					ctgId, tasksFilePath, coresFilePath);
+		} else if ("4".equals(schedulerId)) {
+			scheduler = new HungarianScheduler(ctgId, tasksFilePath,
+					coresFilePath);
+		} else if ("5".equals(schedulerId)) {
+			scheduler = new SimulatedAnnealingScheduler(ctgId, tasksFilePath,
+					coresFilePath);
+		}
+		return scheduler;
+	}
+
+	/**
+	 * @return the bytes allocated so far by the current thread, or -1 if the
+	 *         JVM cannot tell
+	 */
+	private static long getAllocatedBytes() {
+		long bytes = -1;
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotSpotBean = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (hotSpotBean.isThreadAllocatedMemorySupported()
+					&& hotSpotBean.isThreadAllocatedMemoryEnabled()) {
+				bytes = hotSpotBean.getThreadAllocatedBytes(Thread
+						.currentThread().getId());
+			}
+		}
+		return bytes;
+	}
+
+	private static void logFailure(String name, int taskCount, int coreCount) {
+		logger.error(name + " (" + taskCount + " tasks, " + coreCount
+				+ " cores) could not schedule the CTG; it is not measured");
+	}
+
+	/**
+	 * @return the measured times, or <tt>null</tt> if the scheduler could not
+	 *         schedule the CTG
+	 */
+	private static Result measure(String schedulerId, File benchmark,
+			SuiteGenerator generator, int taskCount, int coreCount,
+			int warmupIterations, int iterations) {
+		String fadseOutput = generator.generateFadseOutput();
+		String name = null;
+		for (int i = 0; i < warmupIterations; i++) {
+			Scheduler scheduler = createScheduler(schedulerId, benchmark,
+					fadseOutput);
+			name = scheduler.getClass().getSimpleName();
+			String apcgXml = scheduler.schedule();
+			if (apcgXml == null) {
+				logFailure(name, taskCount, coreCount);
+				return null;
+			}
+			blackhole += apcgXml.length();
+		}
+
+		long total = 0;
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		long allocated = 0;
+		for (int i = 0; i < iterations; i++) {
+			Scheduler scheduler = createScheduler(schedulerId, benchmark,
+					fadseOutput);
+			name = scheduler.getClass().getSimpleName();
+			long bytes = getAllocatedBytes();
+			long start = System.nanoTime();
+			String apcgXml = scheduler.schedule();
+			long nanos = System.nanoTime() - start;
+			if (bytes != -1) {
+				allocated += getAllocatedBytes() - bytes;
+			} else {
+				allocated = -1;
+			}
+			if (apcgXml == null) {
+				logFailure(name, taskCount, coreCount);
+				return null;
+			}
+			blackhole += apcgXml.length();
+			total += nanos;
+			min = Math.min(min, nanos);
+			max = Math.max(max, nanos);
+		}
+
+		double bytesPerTask = allocated == -1 ? -1 : (double) allocated
+				/ ((long) iterations * taskCount);
+		Result result = new Result(name, taskCount, coreCount, iterations,
+				(double) total / iterations, min, max, bytesPerTask);
+		logger.info(name + " (" + taskCount + " tasks, " + coreCount
+				+ " cores): "
+				+ String.format("%.3f", result.nanosPerSchedule / 1e6)
+				+ " ms per schedule, "
+				+ String.format("%.1f", result.bytesPerTask)
+				+ " bytes per task");
+		return result;
+	}
+
+	private static void writeJson(List<Result> results, File jsonFile)
+			throws IOException {
+		PrintWriter pw = new PrintWriter(new OutputStreamWriter(
+				new FileOutputStream(jsonFile), "UTF-8"));
+		try {
+			pw.println("[");
+			for (int i = 0; i < results.size(); i++) {
+				Result result = results.get(i);
+				pw.println("    {");
+				pw.println("        \"benchmark\" : \"" + result.scheduler
+						+ ".schedule\",");
+				pw.println("        \"params\" : {");
+				pw.println("            \"taskCount\" : \"" + result.taskCount
+						+ "\",");
+				pw.println("            \"coreCount\" : \"" + result.coreCount
+						+ "\"");
+				pw.println("        },");
+				pw.println("        \"iterations\" : " + result.iterations
+						+ ",");
+				pw.println("        \"primaryMetric\" : {");
+				pw.println("            \"score\" : "
+						+ result.nanosPerSchedule + ",");
+				pw.println("            \"scoreMin\" : " + result.minNanos
+						+ ",");
+				pw.println("            \"scoreMax\" : " + result.maxNanos
+						+ ",");
+				pw.println("            \"scoreUnit\" : \"ns/op\"");
+				pw.println("        },");
+				pw.println("        \"secondaryMetrics\" : {");
+				pw.println("            \"alloc.norm.task\" : {");
+				pw.println("                \"score\" : " + result.bytesPerTask
+						+ ",");
+				pw.println("                \"scoreUnit\" : \"B/task\"");
+				pw.println("            }");
+				pw.println("        }");
+				pw.println(i < results.size() - 1 ? "    }," : "    }");
+			}
+			pw.println("]");
+		} finally {
+			pw.close();
+		}
+	}
+
+	private static int[] parseInts(String s) {
+		String[] parts = s.split(",");
+		int[] ints = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			ints[i] = Integer.parseInt(parts[i].trim());
+		}
+		return ints;
+	}
+
+	public static void main(String[] args) throws IOException, JAXBException,
+			XMLStreamException {
+		System.err
+				.println("usage:   java SchedulerBenchmark.class [-tasks {task counts}] [-cores {core counts}] [-warmup {iterations}] [-iterations {iterations}] [-dir {work directory}] [-json {results file}]");
+		System.err
+				.println("example: java SchedulerBenchmark.class -tasks 10,100,500 -cores 500,1000 -iterations 5 -json scheduler-benchmark.json");
+		int[] taskCounts = { 10, 100, 500 };
+		int[] coreCounts = { 500, 1000 };
+		int warmupIterations = 3;
+		int iterations = 5;
+		File workDir = new File(System.getProperty("java.io.tmpdir"),
+				"scheduler-benchmark");
+		File jsonFile = new File("scheduler-benchmark.json");
+		for (int i = 0; args != null && i + 1 < args.length; i += 2) {
+			if ("-tasks".equals(args[i])) {
+				taskCounts = parseInts(args[i + 1]);
+			} else if ("-cores".equals(args[i])) {
+				coreCounts = parseInts(args[i + 1]);
+			} else if ("-warmup".equals(args[i])) {
+				warmupIterations = Integer.parseInt(args[i + 1]);
+			} else if ("-iterations".equals(args[i])) {
+				iterations = Integer.parseInt(args[i + 1]);
+			} else if ("-dir".equals(args[i])) {
+				workDir = new File(args[i + 1]);
+			} else if ("-json".equals(args[i])) {
+				jsonFile = new File(args[i + 1]);
+			} else {
+				logger.error("Unknown option " + args[i]);
+				return;
+			}
+		}
+		logger.assertLog(iterations > 0, "At least one iteration is needed");
+
+		// the schedulers log each task; that would be measured as well
+		Logger.getLogger("ro.ulbsibiu.acaps.scheduler").setLevel(Level.WARN);
+		logger.setLevel(Level.INFO);
+
+		List<Result> results = new ArrayList<Result>();
+		for (int i = 0; i < taskCounts.length; i++) {
+			for (int j = 0; j < coreCounts.length; j++) {
+				int taskCount = taskCounts[i];
+				int coreCount = coreCounts[j];
+				File benchmark = new File(workDir, "synthetic-" + taskCount
+						+ "-" + coreCount + ".tgff");
+				SuiteGenerator generator = new SuiteGenerator(SEED, taskCount,
+						coreCount);
+				generator.generate(benchmark);
+				for (int k = 0; k < SCHEDULER_IDS.length; k++) {
+					if (coreCount < taskCount
+							&& ("0".equals(SCHEDULER_IDS[k])
+									|| "1".equals(SCHEDULER_IDS[k])
+									|| "4".equals(SCHEDULER_IDS[k]) || "5"
+									.equals(SCHEDULER_IDS[k]))) {
+						logger.info("Scheduler " + SCHEDULER_IDS[k]
+								+ " skipped (" + taskCount + " tasks, only "
+								+ coreCount + " cores)");
+						continue;
+					}
+					Result result = measure(SCHEDULER_IDS[k], benchmark,
+							generator, taskCount, coreCount, warmupIterations,
+							iterations);
+					if (result != null) {
+						results.add(result);
+					}
+				}
+			}
+		}
+
+		writeJson(results, jsonFile);
+		logger.info("Results written to " + jsonFile + " (blackhole "
+				+ blackhole + ")");
+	}
+
+}
@@ -0,0 +1,359 @@
+package ro.ulbsibiu.acaps.scheduler.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.ctg.xml.core.CoreType;
+import ro.ulbsibiu.acaps.ctg.xml.task.TaskType;
+import ro.ulbsibiu.acaps.scheduler.xml.ApcgWriter;
+import ro.ulbsibiu.acaps.scheduler.xml.JaxbContextPool;
+
+/**
+ * Generates a synthetic benchmark, with the same layout as the E3S benchmarks:
+ * <tt>{benchmark}.tgff/cores/core-{i}.xml</tt>,
+ * <tt>{benchmark}.tgff/ctg-{N}/tasks/task-{i}.xml</tt> and, for each CTG, a
+ * template APCG (<tt>{benchmark}.tgff/ctg-{N}/apcg-{N}_{template APCG
+ * ID}.xml</tt>), which can be used by the
+ * {@link ro.ulbsibiu.acaps.scheduler.fadse.FadseOutputBasedScheduler}.
+ * <p>
+ * The tasks (of each CTG) and the cores have consecutive IDs, starting from 0,
+ * so that the {@link ro.ulbsibiu.acaps.scheduler.direct.DirectScheduler} finds
+ * a core for each task (as long as there are at least as many cores as
+ * tasks). Each core specifies all the task types. A configurable fraction of
+ * the execution times is zero (like in E3S, for the task types a core didn't
+ * run); the others follow an {@link ExecTimeDistribution}. The powers are
+ * uniformly distributed. The same seed always generates the same benchmark.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class SuiteGenerator {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(SuiteGenerator.class);
+
+	/** the ID of the first generated CTG */
+	public static final String CTG_ID = "0";
+
+	/** the template APCG is written as if it was produced by this scheduler */
+	public static final String TEMPLATE_APCG_ID = "2";
+
+	private static final int DEFAULT_TASK_TYPE_COUNT = 32;
+
+	/** the mean execution time */
+	private static final double EXEC_TIME = 5e-4;
+
+	private static final double MAX_POWER = 10;
+
+	/**
+	 * How the (non zero) execution times are distributed. All the
+	 * distributions have the same mean.
+	 *
+	 * @author cradu
+	 *
+	 */
+	public enum ExecTimeDistribution {
+		/** uniform, between 0 and twice the mean */
+		UNIFORM,
+		/** exponential (many fast cores, few slow ones) */
+		EXPONENTIAL,
+		/** normal, with the standard deviation a quarter of the mean */
+		NORMAL,
+		/** log-normal (a long tail of slow cores) */
+		LOG_NORMAL
+	}
+
+	/** the seed of the random number generator */
+	private final long seed;
+
+	/** how many CTGs the benchmark has */
+	private final int ctgCount;
+
+	/** how many tasks each CTG has */
+	private final int taskCount;
+
+	/** how many distinct task types the tasks and the cores have */
+	private final int taskTypeCount;
+
+	/** how many cores the core library has */
+	private final int coreCount;
+
+	/** the fraction (between 0 and 1) of execution times which are zero */
+	private final double zeroExecTimeFraction;
+
+	/** how the (non zero) execution times are distributed */
+	private final ExecTimeDistribution execTimeDistribution;
+
+	/**
+	 * Constructor (one CTG, 32 task types, uniformly distributed execution
+	 * times, none of them zero)
+	 *
+	 * @param seed
+	 *            the seed of the random number generator
+	 * @param taskCount
+	 *            how many tasks the CTG has (must be positive)
+	 * @param coreCount
+	 *            how many cores the core library has (must be positive)
+	 */
+	public SuiteGenerator(long seed, int taskCount, int coreCount) {
+		this(seed, 1, taskCount, DEFAULT_TASK_TYPE_COUNT, coreCount, 0,
+				ExecTimeDistribution.UNIFORM);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param seed
+	 *            the seed of the random number generator
+	 * @param ctgCount
+	 *            how many CTGs the benchmark has (must be positive)
+	 * @param taskCount
+	 *            how many tasks each CTG has (must be positive)
+	 * @param taskTypeCount
+	 *            how many distinct task types the tasks and the cores have
+	 *            (must be positive)
+	 * @param coreCount
+	 *            how many cores the core library has (must be positive)
+	 * @param zeroExecTimeFraction
+	 *            the fraction (between 0 and 1) of execution times which are
+	 *            zero
+	 * @param execTimeDistribution
+	 *            how the (non zero) execution times are distributed
+	 */
+	public SuiteGenerator(long seed, int ctgCount, int taskCount,
+			int taskTypeCount, int coreCount, double zeroExecTimeFraction,
+			ExecTimeDistribution execTimeDistribution) {
+		logger.assertLog(ctgCount > 0, "The CTG count must be positive");
+		logger.assertLog(taskCount > 0, "The task count must be positive");
+		logger.assertLog(taskTypeCount > 0,
+				"The task type count must be positive");
+		logger.assertLog(coreCount > 0, "The core count must be positive");
+		logger.assertLog(zeroExecTimeFraction >= 0
+				&& zeroExecTimeFraction <= 1,
+				"The fraction of zero execution times must be between 0 and 1");
+		logger.assertLog(execTimeDistribution != null,
+				"An execution time distribution must be specified");
+		this.seed = seed;
+		this.ctgCount = ctgCount;
+		this.taskCount = taskCount;
+		this.taskTypeCount = taskTypeCount;
+		this.coreCount = coreCount;
+		this.zeroExecTimeFraction = zeroExecTimeFraction;
+		this.execTimeDistribution = execTimeDistribution;
+	}
+
+	private double nextExecTime(Random random) {
+		double execTime = 0;
+		if (random.nextDouble() >= zeroExecTimeFraction) {
+			switch (execTimeDistribution) {
+			case UNIFORM:
+				execTime = 2 * EXEC_TIME * random.nextDouble();
+				break;
+			case EXPONENTIAL:
+				execTime = -EXEC_TIME * Math.log(1 - random.nextDouble());
+				break;
+			case NORMAL:
+				execTime = EXEC_TIME + EXEC_TIME / 4 * random.nextGaussian();
+				break;
+			case LOG_NORMAL:
+				// sigma = 1, mu chosen so that the mean is EXEC_TIME
+				execTime = EXEC_TIME * Math.exp(random.nextGaussian() - 0.5);
+				break;
+			}
+			// zero means "not run", so a generated time must be positive
+			if (execTime <= 0) {
+				execTime = Double.MIN_VALUE;
+			}
+		}
+		return execTime;
+	}
+
+	/**
+	 * Writes the benchmark. Existing files are overwritten.
+	 *
+	 * @param benchmark
+	 *            the benchmark (.tgff) directory
+	 *
+	 * @throws IOException
+	 *             if a file cannot be written
+	 * @throws JAXBException
+	 *             if a core or task XML cannot be marshalled
+	 * @throws XMLStreamException
+	 *             if a template APCG cannot be written
+	 */
+	public void generate(File benchmark) throws IOException, JAXBException,
+			XMLStreamException {
+		Random random = new Random(seed);
+
+		File coresDir = new File(benchmark, "cores");
+		mkdirs(coresDir);
+		double[][] execTimes = new double[coreCount][taskTypeCount];
+		double[][] powers = new double[coreCount][taskTypeCount];
+		ro.ulbsibiu.acaps.ctg.xml.core.ObjectFactory coreFactory = new ro.ulbsibiu.acaps.ctg.xml.core.ObjectFactory();
+		for (int i = 0; i < coreCount; i++) {
+			CoreType core = new CoreType();
+			core.setID(Integer.toString(i));
+			core.setName("core" + i);
+			for (int j = 0; j < taskTypeCount; j++) {
+				execTimes[i][j] = nextExecTime(random);
+				powers[i][j] = MAX_POWER * random.nextDouble();
+				ro.ulbsibiu.acaps.ctg.xml.core.TaskType task = new ro.ulbsibiu.acaps.ctg.xml.core.TaskType();
+				task.setType(Integer.toString(j));
+				task.setExecTime(execTimes[i][j]);
+				task.setPower(powers[i][j]);
+				core.getTask().add(task);
+			}
+			marshal(JaxbContextPool.CORE, coreFactory.createCore(core),
+					new File(coresDir, "core-" + i + ".xml"));
+		}
+
+		for (int c = 0; c < ctgCount; c++) {
+			generateCtg(benchmark, Integer.toString(c), random, execTimes,
+					powers);
+		}
+
+		if (logger.isInfoEnabled()) {
+			logger.info("Generated benchmark " + benchmark + " with "
+					+ ctgCount + " CTGs of " + taskCount + " tasks, "
+					+ taskTypeCount + " task types and " + coreCount
+					+ " cores");
+		}
+	}
+
+	private void generateCtg(File benchmark, String ctgId, Random random,
+			double[][] execTimes, double[][] powers) throws IOException,
+			JAXBException, XMLStreamException {
+		File ctgDir = new File(benchmark, "ctg-" + ctgId);
+		File tasksDir = new File(ctgDir, "tasks");
+		mkdirs(tasksDir);
+
+		int[] taskTypes = new int[taskCount];
+		ro.ulbsibiu.acaps.ctg.xml.task.ObjectFactory taskFactory = new ro.ulbsibiu.acaps.ctg.xml.task.ObjectFactory();
+		for (int i = 0; i < taskCount; i++) {
+			taskTypes[i] = random.nextInt(taskTypeCount);
+			TaskType task = new TaskType();
+			task.setID(Integer.toString(i));
+			task.setName("task" + i);
+			task.setType(Integer.toString(taskTypes[i]));
+			marshal(JaxbContextPool.TASK, taskFactory.createTask(task),
+					new File(tasksDir, "task-" + i + ".xml"));
+		}
+
+		// the template APCG assigns each task to its own core
+		Writer writer = open(new File(ctgDir, "apcg-" + ctgId + "_"
+				+ TEMPLATE_APCG_ID + ".xml"));
+		try {
+			ApcgWriter apcgWriter = new ApcgWriter(writer, true);
+			apcgWriter.startApcg(ctgId + "_" + TEMPLATE_APCG_ID, ctgId);
+			for (int i = 0; i < taskCount; i++) {
+				int core = i % coreCount;
+				apcgWriter.startCore(Integer.toString(i), Integer
+						.toString(core));
+				apcgWriter.writeTask(Integer.toString(i),
+						execTimes[core][taskTypes[i]],
+						powers[core][taskTypes[i]]);
+				apcgWriter.endCore();
+			}
+			apcgWriter.endApcg();
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Generates an output from FADSE for the template APCGs: each core UID
+	 * (of each CTG) gets a random core ID.
+	 *
+	 * @return the output from FADSE
+	 */
+	public String generateFadseOutput() {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder(ctgCount * taskCount * 16);
+		for (int c = 0; c < ctgCount; c++) {
+			for (int i = 0; i < taskCount; i++) {
+				sb.append("core-").append(c).append("_").append(i).append("=")
+						.append(random.nextInt(coreCount)).append("|");
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void mkdirs(File dir) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Could not create the directory " + dir);
+		}
+	}
+
+	private static Writer open(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				file), "UTF-8"));
+	}
+
+	private static void marshal(JaxbContextPool pool, JAXBElement<?> element,
+			File file) throws IOException, JAXBException {
+		Writer writer = open(file);
+		try {
+			pool.marshal(element, writer, true);
+		} finally {
+			writer.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException,
+			JAXBException, XMLStreamException {
+		System.err
+				.println("usage:   java SuiteGenerator.class {benchmark directory} [-seed {seed}] [-ctgs {CTG count}] [-tasks {task count}] [-types {task type count}] [-cores {core count}] [-zero {fraction of zero execution times}] [-distribution {UNIFORM|EXPONENTIAL|NORMAL|LOG_NORMAL}]");
+		System.err
+				.println("example: java SuiteGenerator.class ../CTG-XML/xml/synthetic/stress-10k.tgff -tasks 10000 -types 500 -cores 2000 -zero 0.3 -distribution LOG_NORMAL");
+		if (args == null || args.length == 0 || args.length % 2 == 0) {
+			logger.error("The benchmark directory must be specified!");
+			return;
+		}
+		long seed = 0;
+		int ctgCount = 1;
+		int taskCount = 100;
+		int taskTypeCount = DEFAULT_TASK_TYPE_COUNT;
+		int coreCount = 100;
+		double zeroExecTimeFraction = 0;
+		ExecTimeDistribution execTimeDistribution = ExecTimeDistribution.UNIFORM;
+		for (int i = 1; i + 1 < args.length; i += 2) {
+			if ("-seed".equals(args[i])) {
+				seed = Long.parseLong(args[i + 1]);
+			} else if ("-ctgs".equals(args[i])) {
+				ctgCount = Integer.parseInt(args[i + 1]);
+			} else if ("-tasks".equals(args[i])) {
+				taskCount = Integer.parseInt(args[i + 1]);
+			} else if ("-types".equals(args[i])) {
+				taskTypeCount = Integer.parseInt(args[i + 1]);
+			} else if ("-cores".equals(args[i])) {
+				coreCount = Integer.parseInt(args[i + 1]);
+			} else if ("-zero".equals(args[i])) {
+				zeroExecTimeFraction = Double.parseDouble(args[i + 1]);
+			} else if ("-distribution".equals(args[i])) {
+				execTimeDistribution = ExecTimeDistribution.valueOf(args[i + 1]);
+			} else {
+				logger.error("Unknown option " + args[i]);
+				return;
+			}
+		}
+		new SuiteGenerator(seed, ctgCount, taskCount, taskTypeCount,
+				coreCount, zeroExecTimeFraction, execTimeDistribution)
+				.generate(new File(args[0]));
+		logger.info("Done.");
+	}
+
+}
@@ -0,0 +1,106 @@
+package ro.ulbsibiu.acaps.scheduler.benchmark;
+
+import java.io.File;
+import java.io.FilenameFilter;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.ctg.xml.core.CoreType;
+import ro.ulbsibiu.acaps.scheduler.xml.CoreRecord;
+import ro.ulbsibiu.acaps.scheduler.xml.JaxbContextPool;
+import ro.ulbsibiu.acaps.scheduler.xml.SchedulingXmlReader;
+
+/**
+ * Compares the time needed to read a core library with JAXB (which binds
+ * entire documents) and with the {@link SchedulingXmlReader} (which extracts
+ * only the fields needed for scheduling). Both readers are first warmed up,
+ * so that the JIT compiler has optimized them before they are measured.
+ *
+ * @author cradu
+ *
+ */
+public class XmlReaderBenchmark {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(XmlReaderBenchmark.class);
+
+	private static final int WARMUP_ITERATIONS = 20;
+
+	/** prevents the JIT compiler from eliminating the reads */
+	private static int blackhole;
+
+	private static long readWithJaxb(File[] coreXmls, int iterations)
+			throws JAXBException {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			for (int j = 0; j < coreXmls.length; j++) {
+				CoreType core = JaxbContextPool.CORE.unmarshal(coreXmls[j],
+						CoreType.class);
+				blackhole += core.getTask().size();
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static long readWithStax(File[] coreXmls, int iterations)
+			throws XMLStreamException {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			for (int j = 0; j < coreXmls.length; j++) {
+				CoreRecord core = SchedulingXmlReader.readCore(coreXmls[j]);
+				blackhole += core.getTaskTypeCount();
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	public static void main(String[] args) throws JAXBException,
+			XMLStreamException {
+		System.err
+				.println("usage:   java XmlReaderBenchmark.class [cores directory] [iterations]");
+		System.err
+				.println("example: java XmlReaderBenchmark.class ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff/cores 200");
+		File coresDir = new File(".." + File.separator + "CTG-XML"
+				+ File.separator + "xml" + File.separator + "e3s"
+				+ File.separator + "auto-indust-mocsyn.tgff" + File.separator
+				+ "cores");
+		int iterations = 100;
+		if (args != null && args.length > 0) {
+			coresDir = new File(args[0]);
+		}
+		if (args != null && args.length > 1) {
+			iterations = Integer.parseInt(args[1]);
+		}
+		logger.assertLog(coresDir.isDirectory(), "Could not find the "
+				+ coresDir + " directory!");
+		File[] coreXmls = coresDir.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+
+		logger.info("Warming up with " + coreXmls.length + " core XMLs");
+		readWithJaxb(coreXmls, WARMUP_ITERATIONS);
+		readWithStax(coreXmls, WARMUP_ITERATIONS);
+
+		long jaxbNanos = readWithJaxb(coreXmls, iterations);
+		long staxNanos = readWithStax(coreXmls, iterations);
+		long reads = (long) iterations * coreXmls.length;
+		logger.info("JAXB: " + String.format("%.1f", (double) jaxbNanos / reads)
+				+ " ns per core XML");
+		logger.info("StAX: " + String.format("%.1f", (double) staxNanos / reads)
+				+ " ns per core XML");
+		logger.info("Speedup: "
+				+ String.format("%.2f", (double) jaxbNanos / staxNanos)
+				+ " (blackhole " + blackhole + ")");
+	}
+
+}
@@ -0,0 +1,240 @@
+package ro.ulbsibiu.acaps.scheduler.combined;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.SchedulerFactory;
+
+/**
+ * Schedules a combined application (a folder named like ctg-0+1): its member
+ * CTGs (ctg-0 and ctg-1) are scheduled together, against the core library of
+ * the benchmark, and they produce a single APCG (for CTG 0+1). Each member CTG
+ * is scheduled by its own {@link Scheduler} (created by a
+ * {@link SchedulerFactory}), so any scheduler can be combined. The members are
+ * independent, so they are scheduled in parallel when an executor is given.
+ * <p>
+ * The cores of the combined APCG are the cores of the member APCGs, in the
+ * order of the members, with disjoint UIDs: they are renumbered with
+ * consecutive UIDs starting from 0. The core IDs (the core types, from the
+ * shared core library) and the tasks are kept as they are. Hence, the task IDs
+ * must be unique across all the member CTGs: a combined CTG whose members
+ * share a task ID is not scheduled (it gets no APCG).
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class CombinedCtgScheduler implements Scheduler {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(CombinedCtgScheduler.class);
+
+	/** separates the member CTG IDs in the ID of a combined CTG */
+	public static final String SEPARATOR = "+";
+
+	/** the ID of the combined Communication Task Graph (e.g. 0+1) */
+	private final String ctgId;
+
+	/** the IDs of the member CTGs */
+	private final String[] memberCtgIds;
+
+	/** the scheduler of each member CTG */
+	private final Scheduler[] members;
+
+	/**
+	 * schedules the member CTGs in parallel (<tt>null</tt> if they are
+	 * scheduled one after the other, by the calling thread)
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Constructor
+	 *
+	 * @param schedulerFactory
+	 *            creates the scheduler of each member CTG
+	 * @param benchmarkFilePath
+	 *            the path to the benchmark (.tgff) directory
+	 * @param ctgId
+	 *            the ID of the combined Communication Task Graph (e.g. 0+1)
+	 * @param executor
+	 *            schedules the member CTGs in parallel (<tt>null</tt> if they
+	 *            are scheduled one after the other). It must not be the
+	 *            executor which runs this scheduler, because this scheduler
+	 *            waits for its members.
+	 */
+	public CombinedCtgScheduler(SchedulerFactory schedulerFactory,
+			String benchmarkFilePath, String ctgId, ExecutorService executor) {
+		logger.assertLog(schedulerFactory != null,
+				"A scheduler factory must be specified");
+		logger.assertLog(isCombined(ctgId), "CTG " + ctgId
+				+ " is not a combined CTG");
+
+		String path = benchmarkFilePath + File.separator;
+		this.ctgId = ctgId;
+		this.memberCtgIds = getMemberCtgIds(ctgId);
+		this.members = new Scheduler[memberCtgIds.length];
+		for (int i = 0; i < memberCtgIds.length; i++) {
+			String tasksFilePath = path + "ctg-" + memberCtgIds[i]
+					+ File.separator + "tasks";
+			logger.assertLog(new File(tasksFilePath).isDirectory(),
+					"The tasks of member CTG " + memberCtgIds[i] + " of CTG "
+							+ ctgId + " were not found");
+			members[i] = schedulerFactory.create(memberCtgIds[i],
+					tasksFilePath, path + "cores");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * @param ctgId
+	 *            the ID of a Communication Task Graph
+	 * @return whether or not the CTG is a combined one (e.g. 0+1)
+	 */
+	public static boolean isCombined(String ctgId) {
+		return ctgId.contains(SEPARATOR);
+	}
+
+	/**
+	 * @param ctgId
+	 *            the ID of a combined Communication Task Graph (e.g. 0+1)
+	 * @return the IDs of its member CTGs (e.g. 0 and 1)
+	 */
+	public static String[] getMemberCtgIds(String ctgId) {
+		return ctgId.split("\\" + SEPARATOR);
+	}
+
+	/**
+	 * @return the ID of the combined Communication Task Graph
+	 */
+	public String getCtgId() {
+		return ctgId;
+	}
+
+	/**
+	 * @return the IDs of the member CTGs
+	 */
+	public String[] getMemberCtgIds() {
+		return memberCtgIds.clone();
+	}
+
+	@Override
+	public String getSchedulerId() {
+		// all the members are created by the same factory
+		return members[0].getSchedulerId();
+	}
+
+	@Override
+	public String schedule() {
+		ScheduleResult scheduleResult = computeSchedule();
+		return scheduleResult == null ? null : scheduleResult.toXml();
+	}
+
+	@Override
+	public ScheduleResult computeSchedule() {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Combined scheduling of CTG " + ctgId + " started");
+		}
+
+		ScheduleResult[] memberResults = new ScheduleResult[members.length];
+		if (executor == null) {
+			for (int i = 0; i < members.length; i++) {
+				memberResults[i] = members[i].computeSchedule();
+			}
+		} else {
+			List<Future<ScheduleResult>> futures = new ArrayList<Future<ScheduleResult>>(
+					members.length);
+			for (int i = 0; i < members.length; i++) {
+				final Scheduler member = members[i];
+				futures.add(executor.submit(new Callable<ScheduleResult>() {
+
+					@Override
+					public ScheduleResult call() {
+						return member.computeSchedule();
+					}
+				}));
+			}
+			try {
+				for (int i = 0; i < members.length; i++) {
+					memberResults[i] = futures.get(i).get();
+				}
+			} catch (InterruptedException e) {
+				logger.error("The combined scheduling of CTG " + ctgId
+						+ " was interrupted", e);
+				Thread.currentThread().interrupt();
+				return null;
+			} catch (ExecutionException e) {
+				logger.error("A member CTG of CTG " + ctgId
+						+ " could not be scheduled", e.getCause());
+				return null;
+			} finally {
+				for (Future<ScheduleResult> future : futures) {
+					future.cancel(true);
+				}
+			}
+		}
+
+		ScheduleResult scheduleResult = merge(memberResults);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Combined scheduling of CTG " + ctgId + " finished");
+		}
+
+		return scheduleResult;
+	}
+
+	/**
+	 * Merges the APCGs of the member CTGs into the APCG of the combined CTG.
+	 *
+	 * @return the combined APCG, or <tt>null</tt> if a member CTG could not be
+	 *         scheduled or if two member CTGs have a task with the same ID
+	 */
+	private ScheduleResult merge(ScheduleResult[] memberResults) {
+		ScheduleResult.Builder builder = new ScheduleResult.Builder(ctgId
+				+ "_" + getSchedulerId(), ctgId);
+		// the ID of each task, mapped to the member CTG which has it
+		Map<String, String> taskCtgIds = new HashMap<String, String>();
+		int uid = 0;
+		for (int i = 0; i < memberResults.length; i++) {
+			ScheduleResult memberResult = memberResults[i];
+			if (memberResult == null) {
+				logger.error("Member CTG " + memberCtgIds[i] + " of CTG "
+						+ ctgId + " could not be scheduled");
+				return null;
+			}
+			for (int j = 0; j < memberResult.getCoreCount(); j++) {
+				// the UIDs of the members overlap, so they are renumbered
+				builder.startCore(Integer.toString(uid++), memberResult
+						.getCoreId(j));
+				for (int k = 0; k < memberResult.getTaskCount(j); k++) {
+					String taskId = memberResult.getTaskId(j, k);
+					String taskCtgId = taskCtgIds.put(taskId, memberCtgIds[i]);
+					if (taskCtgId != null) {
+						logger.error("Task " + taskId + " of member CTG "
+								+ memberCtgIds[i] + " of CTG " + ctgId
+								+ " has the same ID as a task of member CTG "
+								+ taskCtgId);
+						return null;
+					}
+					builder.addTask(taskId, memberResult.getExecTime(j, k),
+							memberResult.getPower(j, k));
+				}
+			}
+		}
+		return builder.build();
+	}
+
+}
@@ -3,27 +3,27 @@ package ro.ulbsibiu.acaps.scheduler.direct;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.log4j.Logger;
 
 import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ObjectFactory;
-import ro.ulbsibiu.acaps.ctg.xml.core.CoreType;
-import ro.ulbsibiu.acaps.ctg.xml.task.TaskType;
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
 import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.MetricsCollector;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibrary;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibraryCache;
+import ro.ulbsibiu.acaps.scheduler.workspace.BenchmarkWorkspace;
+import ro.ulbsibiu.acaps.scheduler.workspace.TaskRecordMemo;
+import ro.ulbsibiu.acaps.scheduler.xml.TaskRecord;
 
 /**
  * This @link{Scheduler} directly assigns tasks to cores: task 0 is assigned to
@@ -43,19 +43,22 @@ public class DirectScheduler implements Scheduler {
 	private static final String SCHEDULER_ID = "1";
 
 	/** the ID of the Application Characterization Graph */
-	private String apcgId;
+	private final String apcgId;
 
 	/** the ID of the Communication Task Graph */
-	private String ctgId;
+	private final String ctgId;
 
 	/** the XML files containing the tasks */
-	private File[] taskXmls;
+	private final File[] taskXmls;
 
-	/** the XML files containing the cores */
-	private File[] coreXmls;
+	/** the directory with the XML files containing the cores */
+	private final File coresDir;
 
-	/** each task is mapped to a core */
-	private Map<File, File> tasksToCores;
+	/**
+	 * the workspace from which the tasks and the cores are taken (
+	 * <tt>null</tt> if they are read from their XMLs)
+	 */
+	private final BenchmarkWorkspace workspace;
 
 	/**
 	 * Constructor
@@ -98,15 +101,31 @@ public class DirectScheduler implements Scheduler {
 			}
 		});
 
-		coreXmls = coresFile.listFiles(new FilenameFilter() {
+		coresDir = coresFile;
 
-			@Override
-			public boolean accept(File file, String name) {
-				return name.endsWith(".xml");
-			}
-		});
+		workspace = null;
+	}
+
+	/**
+	 * Constructor (the tasks and the cores are taken from a workspace, so
+	 * they are not read again)
+	 * 
+	 * @param workspace
+	 *            the workspace of the benchmark
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (it must be in the
+	 *            workspace)
+	 */
+	public DirectScheduler(BenchmarkWorkspace workspace, String ctgId) {
+		logger.assertLog(workspace != null, "A workspace must be specified");
+		logger.assertLog(workspace.getCtg(ctgId) != null,
+				"The workspace has no CTG " + ctgId);
 
-		tasksToCores = null;
+		this.apcgId = ctgId + "_" + getSchedulerId();
+		this.ctgId = ctgId;
+		this.taskXmls = workspace.getCtg(ctgId).getTaskXmls();
+		this.coresDir = workspace.getCoresDir();
+		this.workspace = workspace;
 	}
 
 	@Override
@@ -114,17 +133,11 @@ public class DirectScheduler implements Scheduler {
 		return SCHEDULER_ID;
 	}
 
-	private int findCoreIndex(String coreId) throws JAXBException {
-		int coreIndex = -1;
-		logger.debug("Searching for a core with ID " + coreId);
-		for (int i = 0; i < coreXmls.length; i++) {
-			CoreType core = getCore(coreXmls[i]);
-			if (core.getID().equals(coreId)) {
-				coreIndex = i;
-				logger.debug("Found core " + coreXmls[i] + " for task "
-						+ coreId + " at index " + i);
-				break;
-			}
+	private int findCoreIndex(CoreLibrary coreLibrary, String coreId) {
+		int coreIndex = coreLibrary.getCoreIndex(coreId);
+		if (coreIndex != -1 && logger.isDebugEnabled()) {
+			logger.debug("Found core " + coreLibrary.getCoreXml(coreIndex)
+					+ " for task " + coreId + " at index " + coreIndex);
 		}
 		return coreIndex;
 	}
@@ -139,19 +152,38 @@ public class DirectScheduler implements Scheduler {
 	 */
 	@Override
 	public String schedule() {
+		ScheduleResult scheduleResult = computeSchedule();
+		return scheduleResult == null ? null : scheduleResult.toXml();
+	}
+
+	@Override
+	public ScheduleResult computeSchedule() {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Direct scheduling started");
 		}
 
-		tasksToCores = new HashMap<File, File>(taskXmls.length);
+		CoreLibrary coreLibrary = null;
+		try {
+			coreLibrary = loadCoreLibrary();
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
+			// without the cores, the CTG cannot be scheduled at all
+			return null;
+		}
+
+		// each task XML is parsed only once, although the task is needed
+		// again to build the APCG
+		TaskRecordMemo taskMemo = newTaskMemo();
+		Map<File, Integer> tasksToCores = new LinkedHashMap<File, Integer>(
+				taskXmls.length);
 		for (int i = 0; i < taskXmls.length; i++) {
 			int coreIndex = -1;
 			String taskId = null;
 			try {
-				taskId = getTask(taskXmls[i]).getID();
-				coreIndex = findCoreIndex(taskId);
-			} catch (JAXBException e) {
-				logger.error("JAXB encountered an error", e);
+				taskId = taskMemo.get(taskXmls[i]).getID();
+				coreIndex = findCoreIndex(coreLibrary, taskId);
+			} catch (XMLStreamException e) {
+				logger.error("StAX encountered an error", e);
 			}
 			if (coreIndex == -1) {
 				logger.assertLog(
@@ -165,72 +197,74 @@ public class DirectScheduler implements Scheduler {
 					logger.info("Task " + i + " is scheduled to core " + i);
 				}
 				logger.debug("Assigning task " + taskXmls[i] + " to core "
-						+ coreXmls[coreIndex]);
-				tasksToCores.put(taskXmls[i], coreXmls[coreIndex]);
+						+ coreLibrary.getCoreXml(coreIndex));
+				tasksToCores.put(taskXmls[i], coreIndex);
 			}
 		}
-		String apcgXml = null;
+		ScheduleResult scheduleResult = null;
 		try {
-			apcgXml = generateApcg();
-		} catch (JAXBException e) {
-			logger.error("JAXB encountered an error", e);
+			scheduleResult = buildScheduleResult(coreLibrary, tasksToCores,
+					taskMemo);
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
 		}
 
 		if (logger.isDebugEnabled()) {
 			logger.debug("Direct scheduling finished");
 		}
 
-		return apcgXml;
+		return scheduleResult;
 	}
 
-	private CoreType getCore(File file) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext
-				.newInstance("ro.ulbsibiu.acaps.ctg.xml.core");
-		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-		@SuppressWarnings("unchecked")
-		JAXBElement<CoreType> coreXml = (JAXBElement<CoreType>) unmarshaller
-				.unmarshal(file);
-		return coreXml.getValue();
+	/**
+	 * @return a memo for the tasks of one run
+	 */
+	private TaskRecordMemo newTaskMemo() {
+		return new TaskRecordMemo(workspace == null ? null : workspace
+				.getCtg(ctgId));
 	}
 
-	private TaskType getTask(File file) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext
-				.newInstance("ro.ulbsibiu.acaps.ctg.xml.task");
-		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-		@SuppressWarnings("unchecked")
-		JAXBElement<TaskType> taskXml = (JAXBElement<TaskType>) unmarshaller
-				.unmarshal(file);
-		return taskXml.getValue();
+	private CoreLibrary loadCoreLibrary() throws XMLStreamException {
+		if (workspace != null) {
+			return workspace.getCoreLibrary();
+		}
+		return CoreLibraryCache.load(coresDir);
 	}
 
-	private ro.ulbsibiu.acaps.ctg.xml.core.TaskType getCoreTask(
-			List<ro.ulbsibiu.acaps.ctg.xml.core.TaskType> tasks, String type) {
-		ro.ulbsibiu.acaps.ctg.xml.core.TaskType theTaskType = null;
-		for (ro.ulbsibiu.acaps.ctg.xml.core.TaskType taskType : tasks) {
-			if (type.equals(taskType.getType())) {
-				theTaskType = taskType;
-				break;
-			}
+	/**
+	 * @return the index of the task type, or -1 if the core doesn't specify it
+	 */
+	private int getCoreTask(CoreLibrary coreLibrary, int coreIndex,
+			String type) {
+		int taskTypeIndex = coreLibrary.getTaskTypeIndex(type);
+		if (taskTypeIndex == -1
+				|| !coreLibrary.hasTaskType(coreIndex, taskTypeIndex)) {
+			logger.error("The task type " + type
+					+ " was not found in the specification of core with ID "
+					+ coreLibrary.getCoreId(coreIndex));
+			taskTypeIndex = -1;
 		}
-		return theTaskType;
+		return taskTypeIndex;
 	}
 
-	private String generateApcg() throws JAXBException {
+	private ScheduleResult buildScheduleResult(CoreLibrary coreLibrary,
+			Map<File, Integer> tasksToCores, TaskRecordMemo taskMemo)
+			throws XMLStreamException {
 		logger.assertLog(tasksToCores != null, "No task was scheduled!");
 
 		if (logger.isDebugEnabled()) {
-			logger.debug("Generating an XML String with the scheduling");
+			logger.debug("Building the scheduling result");
 		}
 
-		ObjectFactory apcgFactory = new ObjectFactory();
-		ApcgType apcgType = new ApcgType();
-		apcgType.setId(apcgId);
-		apcgType.setCtg(ctgId);
+		ScheduleResult.Builder builder = new ScheduleResult.Builder(apcgId,
+				ctgId);
 
-		Map<File, Set<File>> coreToTasks = new HashMap<File, Set<File>>();
+		// the tasks are kept in their order, and the cores come in the order
+		// of their first task, so the APCG XML doesn't depend on hashing
+		Map<Integer, Set<File>> coreToTasks = new LinkedHashMap<Integer, Set<File>>();
 		Set<File> tasks = tasksToCores.keySet();
 		for (File task : tasks) {
-			File core = tasksToCores.get(task);
+			Integer core = tasksToCores.get(task);
 			Set<File> set = coreToTasks.get(core);
 			if (set == null) {
 				set = new LinkedHashSet<File>();
@@ -239,44 +273,55 @@ public class DirectScheduler implements Scheduler {
 			coreToTasks.put(core, set);
 		}
 
-		Set<File> cores = coreToTasks.keySet();
-		for (File core : cores) {
-			String coreId = getCore(core).getID();
+		Set<Integer> cores = coreToTasks.keySet();
+		for (Integer core : cores) {
+			String coreId = coreLibrary.getCoreId(core);
 			Set<File> set = coreToTasks.get(core);
-			ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType coreType = new ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType();
 			// core UID = core ID = task ID (only one task per core) 
-			coreType.setUid(coreId);
-			coreType.setId(coreId);
+			builder.startCore(coreId, coreId);
 			for (File task : set) {
-				String taskId = getTask(task).getID();
-				ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType taskType = new ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType();
-				taskType.setId(taskId);
-				taskType.setExecTime(getCoreTask(getCore(core).getTask(),
-						getTask(task).getType()).getExecTime());
-				taskType.setPower(getCoreTask(getCore(core).getTask(),
-						getTask(task).getType()).getPower());
-				coreType.getTask().add(taskType);
+				TaskRecord taskRecord = taskMemo.get(task);
+				int coreTask = getCoreTask(coreLibrary, core,
+						taskRecord.getType());
+				if (coreTask == -1) {
+					// the execution time and the power would be the ones of
+					// another task type (or NaN)
+					return null;
+				}
+				builder.addTask(taskRecord.getID(),
+						coreLibrary.getExecTime(core, coreTask),
+						coreLibrary.getPower(core, coreTask));
 			}
-			apcgType.getCore().add(coreType);
 		}
 
-		JAXBContext jaxbContext = JAXBContext.newInstance(ApcgType.class);
-		Marshaller marshaller = jaxbContext.createMarshaller();
-		marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
-		StringWriter stringWriter = new StringWriter();
-		JAXBElement<ApcgType> apcg = apcgFactory.createApcg(apcgType);
-		marshaller.marshal(apcg, stringWriter);
-
-		return stringWriter.toString();
+		return builder.build();
 	}
 
 	public static void main(String[] args) throws FileNotFoundException {
-		System.err.println("usage:   java DirectScheduler.class [E3S benchmarks]");
+		System.err.println("usage:   java DirectScheduler.class [-report {CSV or JSON file}] [E3S benchmarks]");
 		System.err.println("note:	 each CTG is only scheduled individually (e.g.: folders named like ctg-0+1 are ignored)");
 		System.err.println("example 1 (specify the tgff file): java DirectScheduler.class ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff ../CTG-XML/xml/e3s/telecom-mocsyn.tgff");
 		System.err.println("example 2 (schedule the entire E3S benchmark suite): java DirectScheduler.class");
+		System.err.println("example 3 (report the time of each phase, for each CTG): java DirectScheduler.class -report phases.csv");
+		File report = null;
+		int first = 0;
+		while (args != null && first + 1 < args.length
+				&& args[first].startsWith("-")) {
+			if ("-report".equals(args[first])) {
+				report = new File(args[first + 1]);
+			} else {
+				logger.error("Unknown option " + args[first]);
+				return;
+			}
+			first += 2;
+		}
+		MetricsCollector metrics = null;
+		if (report != null) {
+			metrics = new MetricsCollector();
+			metrics.register();
+		}
 		File[] tgffFiles = null;
-		if (args == null || args.length == 0) {
+		if (args == null || args.length == first) {
 			File e3sDir = new File(".." + File.separator + "CTG-XML"
 					+ File.separator + "xml" + File.separator + "e3s");
 			logger.assertLog(e3sDir.isDirectory(),
@@ -289,9 +334,9 @@ public class DirectScheduler implements Scheduler {
 				}
 			});
 		} else {
-			tgffFiles = new File[args.length];
-			for (int i = 0; i < args.length; i++) {
-				tgffFiles[i] = new File(args[i]);
+			tgffFiles = new File[args.length - first];
+			for (int i = first; i < args.length; i++) {
+				tgffFiles[i - first] = new File(args[i]);
 			}
 		}
 		for (int i = 0; i < tgffFiles.length; i++) {
@@ -310,18 +355,43 @@ public class DirectScheduler implements Scheduler {
 					Scheduler scheduler = new DirectScheduler(ctgId, path + "ctg-"
 							+ ctgId + File.separator + "tasks", path + "cores");
 					String apcgId = ctgId + "_" + scheduler.getSchedulerId();
-					String apcgXml = scheduler.schedule();
-					String xmlFileName = path + "ctg-" + ctgId + File.separator
-							+ "apcg-" + apcgId + ".xml";
-					PrintWriter pw = new PrintWriter(xmlFileName);
-					logger.info("Saving the scheduling XML file " + xmlFileName);
-					pw.write(apcgXml);
-					pw.close();
+					Instrumentation.beginCtg(e3sBenchmark.getName(), ctgId,
+							scheduler.getSchedulerId());
+					try {
+						ScheduleResult scheduleResult;
+						Instrumentation.enter(Phase.SEARCH);
+						try {
+							scheduleResult = scheduler.computeSchedule();
+						} finally {
+							Instrumentation.exit();
+						}
+						String xmlFileName = path + "ctg-" + ctgId
+								+ File.separator + "apcg-" + apcgId + ".xml";
+						if (scheduleResult == null) {
+							logger.error("CTG " + ctgId
+									+ " could not be scheduled; " + xmlFileName
+									+ " is not written");
+							continue;
+						}
+						logger.info("Saving the scheduling XML file "
+								+ xmlFileName);
+						try {
+							scheduleResult.write(new File(xmlFileName));
+						} catch (IOException e) {
+							logger.error("Could not write " + xmlFileName, e);
+						}
+					} finally {
+						Instrumentation.endCtg();
+					}
 				}
 			}
 			logger.info("Finished with e3s" + File.separator
 					+ tgffFiles[i].getName());
 		}
+		if (metrics != null) {
+			metrics.unregister();
+			metrics.writeReport(report);
+		}
 		logger.info("Done.");
 	}
 
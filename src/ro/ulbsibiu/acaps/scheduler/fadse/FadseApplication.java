@@ -0,0 +1,250 @@
+package ro.ulbsibiu.acaps.scheduler.fadse;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.batch.SuiteRunner;
+
+/**
+ * The models of all the CTGs of an application (a .tgff directory), loaded
+ * from the template APCGs produced by another scheduler. The combined CTGs
+ * (folders named like ctg-0+1) are ignored, like in
+ * {@link FadseOutputBasedScheduler#main(String[])}.
+ * <p>
+ * An application is immutable, so it can be used by more threads at the same
+ * time. When {@link #isUpToDate()} returns <tt>false</tt>, the application
+ * must be loaded again.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class FadseApplication {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(FadseApplication.class);
+
+	/** the application (.tgff) directory */
+	private final File application;
+
+	/** the ID of the scheduler which produced the template APCGs */
+	private final String templateApcgId;
+
+	/** the IDs of the CTGs, when the application was loaded */
+	private final String[] ctgIds;
+
+	/** the model of each CTG, in the order of the CTG IDs */
+	private final List<FadseCtgModel> ctgModels;
+
+	private FadseApplication(File application, String templateApcgId,
+			String[] ctgIds, List<FadseCtgModel> ctgModels) {
+		this.application = application;
+		this.templateApcgId = templateApcgId;
+		this.ctgIds = ctgIds;
+		this.ctgModels = Collections.unmodifiableList(ctgModels);
+	}
+
+	/**
+	 * Loads all the CTGs of an application.
+	 *
+	 * @param application
+	 *            the application (.tgff) directory
+	 * @param templateApcgId
+	 *            the ID of the scheduler which produced the template APCGs
+	 *            (the template of CTG x is
+	 *            <tt>ctg-x/apcg-x_{template APCG ID}.xml</tt>)
+	 * @return the application
+	 *
+	 * @throws JAXBException
+	 *             if a template APCG cannot be unmarshalled
+	 * @throws XMLStreamException
+	 *             if a task XML cannot be read
+	 */
+	public static FadseApplication load(File application,
+			String templateApcgId) throws JAXBException, XMLStreamException {
+		logger.assertLog(application.isDirectory(), "The application "
+				+ application + " is not a directory");
+		String path = application.getPath() + File.separator;
+		String[] ctgIds = SuiteRunner.findCtgIds(application);
+		List<FadseCtgModel> ctgModels = new ArrayList<FadseCtgModel>(
+				ctgIds.length);
+		for (int i = 0; i < ctgIds.length; i++) {
+			String ctgId = ctgIds[i];
+			ctgModels.add(FadseCtgModel.load(ctgId, ctgId + "_"
+					+ FadseOutputBasedScheduler.SCHEDULER_ID, new File(path
+					+ "ctg-" + ctgId + File.separator + "apcg-" + ctgId + "_"
+					+ templateApcgId + ".xml"), new File(path + "ctg-" + ctgId
+					+ File.separator + "tasks"), new File(path + "cores")));
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Loaded the application " + application + " ("
+					+ ctgIds.length + " CTGs)");
+		}
+		return new FadseApplication(application, templateApcgId, ctgIds,
+				ctgModels);
+	}
+
+	/**
+	 * @return whether or not the application still has the same CTGs, with
+	 *         the same template APCGs and task XMLs, as when it was loaded
+	 */
+	public boolean isUpToDate() {
+		boolean upToDate = Arrays.equals(ctgIds, SuiteRunner
+				.findCtgIds(application));
+		for (int i = 0; upToDate && i < ctgModels.size(); i++) {
+			upToDate = ctgModels.get(i).isUpToDate();
+		}
+		return upToDate;
+	}
+
+	/**
+	 * @return the application (.tgff) directory
+	 */
+	public File getApplication() {
+		return application;
+	}
+
+	/**
+	 * @return the ID of the scheduler which produced the template APCGs
+	 */
+	public String getTemplateApcgId() {
+		return templateApcgId;
+	}
+
+	/**
+	 * @return the model of each CTG
+	 */
+	public List<FadseCtgModel> getCtgModels() {
+		return ctgModels;
+	}
+
+	/**
+	 * @param ctgModel
+	 *            the model of a CTG of this application
+	 * @return the file where the APCG of the CTG is written
+	 */
+	public File getApcgFile(FadseCtgModel ctgModel) {
+		return new File(application, "ctg-" + ctgModel.getCtgId()
+				+ File.separator + "apcg-" + ctgModel.getApcgId() + ".xml");
+	}
+
+	/**
+	 * Builds the APCGs of all CTGs, for the given FADSE solution (see
+	 * {@link FadseCtgModel#buildScheduleResult(FadseSolution)}).
+	 *
+	 * @param fadseSolution
+	 *            the FADSE solution
+	 * @return the APCG of each CTG (in the order of {@link #getCtgModels()}),
+	 *         or <tt>null</tt> if an APCG cannot be built for some CTG (the
+	 *         problems are logged)
+	 *
+	 * @throws XMLStreamException
+	 *             if the core library cannot be loaded
+	 */
+	public List<ScheduleResult> buildScheduleResults(FadseSolution fadseSolution)
+			throws XMLStreamException {
+		List<ScheduleResult> scheduleResults = new ArrayList<ScheduleResult>(
+				ctgModels.size());
+		for (FadseCtgModel ctgModel : ctgModels) {
+			ScheduleResult scheduleResult = ctgModel
+					.buildScheduleResult(fadseSolution);
+			if (scheduleResult == null) {
+				logger.error("No APCG is built, because CTG "
+						+ ctgModel.getCtgId() + " has no APCG");
+				return null;
+			}
+			scheduleResults.add(scheduleResult);
+		}
+		return scheduleResults;
+	}
+
+	/**
+	 * Writes the APCGs of all CTGs, for the given FADSE solution (to the same
+	 * files as {@link FadseOutputBasedScheduler#main(String[])}). All the APCGs
+	 * are built before anything is written, and each one is first written
+	 * under a temporary name; the files are renamed only after all of them
+	 * were written. Hence, a FADSE solution which doesn't fit some CTG, or a
+	 * failed write, leaves the previous APCGs as they were.
+	 *
+	 * @param fadseSolution
+	 *            the FADSE solution
+	 * @return the written files, or <tt>null</tt> if an APCG cannot be built
+	 *         for some CTG (nothing is written then; the problems are logged)
+	 *
+	 * @throws IOException
+	 *             if a file cannot be written
+	 * @throws XMLStreamException
+	 *             if the core library cannot be loaded or an APCG cannot be
+	 *             written
+	 */
+	public List<File> writeApcgs(FadseSolution fadseSolution)
+			throws IOException, XMLStreamException {
+		List<ScheduleResult> scheduleResults = buildScheduleResults(fadseSolution);
+		if (scheduleResults == null) {
+			return null;
+		}
+
+		List<File> files = new ArrayList<File>(ctgModels.size());
+		List<File> tempFiles = new ArrayList<File>(ctgModels.size());
+		boolean written = false;
+		try {
+			for (int i = 0; i < ctgModels.size(); i++) {
+				File file = getApcgFile(ctgModels.get(i));
+				File tempFile = File.createTempFile(file.getName(), ".tmp",
+						file.getParentFile());
+				tempFiles.add(tempFile);
+				Writer writer = new BufferedWriter(new OutputStreamWriter(
+						new FileOutputStream(tempFile), "UTF-8"));
+				try {
+					scheduleResults.get(i).write(writer, true);
+				} finally {
+					writer.close();
+				}
+				files.add(file);
+			}
+			written = true;
+		} finally {
+			if (!written) {
+				for (File tempFile : tempFiles) {
+					tempFile.delete();
+				}
+			}
+		}
+		for (int i = 0; i < files.size(); i++) {
+			File file = files.get(i);
+			File tempFile = tempFiles.get(i);
+			logger.info("Saving the scheduling XML file " + file);
+			// File.renameTo(...) doesn't replace an existing file on all
+			// platforms
+			if (!tempFile.renameTo(file)) {
+				file.delete();
+				if (!tempFile.renameTo(file)) {
+					for (int k = i; k < tempFiles.size(); k++) {
+						tempFiles.get(k).delete();
+					}
+					throw new IOException("Could not rename " + tempFile
+							+ " to " + file);
+				}
+			}
+		}
+		return files;
+	}
+
+}
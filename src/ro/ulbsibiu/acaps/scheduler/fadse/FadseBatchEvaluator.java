@@ -0,0 +1,355 @@
+package ro.ulbsibiu.acaps.scheduler.fadse;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Turns a whole generation of FADSE solutions into APCGs, in parallel. The
+ * template APCG and the tasks are parsed once, into a {@link FadseCtgModel};
+ * each solution is then written straight from the (immutable) model, so
+ * nothing needs to be unmarshalled or copied per solution.
+ * <p>
+ * The APCGs are either returned as XML strings (see
+ * {@link #evaluate(List)}) or written to files (see
+ * {@link #evaluate(List, File)}). In both cases, the results are in the order
+ * of the solutions. A solution from which no APCG can be built (see
+ * {@link FadseCtgModel#buildScheduleResult(FadseSolution)}), or whose APCG
+ * cannot be written, is reported and gets no APCG (<tt>null</tt>); the other
+ * solutions of the generation are still evaluated.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class FadseBatchEvaluator {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(FadseBatchEvaluator.class);
+
+	/** the model of the CTG (the parsed template APCG) */
+	private final FadseCtgModel ctgModel;
+
+	/** how many solutions are evaluated at the same time */
+	private final int parallelism;
+
+	/**
+	 * Constructor
+	 *
+	 * @param ctgModel
+	 *            the model of the CTG (the parsed template APCG)
+	 * @param parallelism
+	 *            how many solutions are evaluated at the same time (at least
+	 *            1)
+	 */
+	public FadseBatchEvaluator(FadseCtgModel ctgModel, int parallelism) {
+		logger.assertLog(ctgModel != null, "A CTG model is required");
+		logger.assertLog(parallelism > 0, "The parallelism must be positive");
+		this.ctgModel = ctgModel;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return the model of the CTG (the parsed template APCG)
+	 */
+	public FadseCtgModel getCtgModel() {
+		return ctgModel;
+	}
+
+	/**
+	 * Evaluates the solution with the given index.
+	 */
+	private abstract class Evaluation<T> implements Callable<T> {
+
+		private final int index;
+
+		private final String outputFromFadse;
+
+		Evaluation(int index, String outputFromFadse) {
+			this.index = index;
+			this.outputFromFadse = outputFromFadse;
+		}
+
+		/**
+		 * @return the parsed solution, or <tt>null</tt> if it is not well
+		 *         formed (whether an APCG can be built from it is checked only
+		 *         once, while the APCG is built)
+		 */
+		FadseSolution parse() {
+			FadseSolution fadseSolution = FadseSolution.parse(outputFromFadse);
+			if (!fadseSolution.getErrors().isEmpty()) {
+				logger.error("Solution " + index + " is skipped (errors "
+						+ fadseSolution.getErrors() + ")");
+				fadseSolution = null;
+			}
+			return fadseSolution;
+		}
+
+		int getIndex() {
+			return index;
+		}
+	}
+
+	private <T> List<T> run(List<? extends Callable<T>> evaluations)
+			throws IOException, XMLStreamException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+				parallelism, Math.max(1, evaluations.size())));
+		try {
+			List<Future<T>> futures = executor.invokeAll(evaluations);
+			List<T> results = new ArrayList<T>(futures.size());
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while evaluating the solutions",
+					e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof XMLStreamException) {
+				throw (XMLStreamException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Evaluates the given FADSE solutions, keeping the APCGs in memory.
+	 *
+	 * @param outputsFromFadse
+	 *            the solutions
+	 * @return the APCG XML of each solution (<tt>null</tt> for a solution
+	 *         which has problems or whose APCG cannot be written)
+	 *
+	 * @throws XMLStreamException
+	 *             if an APCG cannot be written
+	 */
+	public List<String> evaluate(List<String> outputsFromFadse)
+			throws XMLStreamException {
+		List<Evaluation<String>> evaluations = new ArrayList<Evaluation<String>>(
+				outputsFromFadse.size());
+		for (int i = 0; i < outputsFromFadse.size(); i++) {
+			evaluations.add(new Evaluation<String>(i, outputsFromFadse.get(i)) {
+
+				@Override
+				public String call() {
+					String apcg = null;
+					try {
+						FadseSolution fadseSolution = parse();
+						if (fadseSolution != null) {
+							StringWriter stringWriter = new StringWriter();
+							if (ctgModel.writeApcg(fadseSolution, stringWriter)) {
+								apcg = stringWriter.toString();
+							}
+						}
+					} catch (XMLStreamException e) {
+						logger.error("StAX encountered an error", e);
+					} catch (RuntimeException e) {
+						logger.error("Solution " + getIndex()
+								+ " could not be evaluated", e);
+					}
+					return apcg;
+				}
+			});
+		}
+		try {
+			return run(evaluations);
+		} catch (IOException e) {
+			// only an interruption can get here, nothing is written to files
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param outputDir
+	 *            the directory where the APCGs are written
+	 * @param index
+	 *            the index of a solution
+	 * @return the file where the APCG of the solution is written
+	 */
+	public File getApcgFile(File outputDir, int index) {
+		return new File(outputDir, "apcg-" + ctgModel.getApcgId() + "-" + index
+				+ ".xml");
+	}
+
+	/**
+	 * Evaluates the given FADSE solutions, writing the APCG of solution
+	 * <tt>i</tt> to the file given by {@link #getApcgFile(File, int)}.
+	 *
+	 * @param outputsFromFadse
+	 *            the solutions
+	 * @param outputDir
+	 *            the directory where the APCGs are written
+	 * @return the file of each solution (<tt>null</tt> for a solution which
+	 *         has problems or whose APCG cannot be written)
+	 *
+	 * @throws IOException
+	 *             if a file cannot be written
+	 * @throws XMLStreamException
+	 *             if an APCG cannot be written
+	 */
+	public List<File> evaluate(List<String> outputsFromFadse,
+			final File outputDir) throws IOException, XMLStreamException {
+		logger.assertLog(outputDir.isDirectory() || outputDir.mkdirs(),
+				"Cannot create the output directory " + outputDir);
+		List<Evaluation<File>> evaluations = new ArrayList<Evaluation<File>>(
+				outputsFromFadse.size());
+		for (int i = 0; i < outputsFromFadse.size(); i++) {
+			evaluations.add(new Evaluation<File>(i, outputsFromFadse.get(i)) {
+
+				@Override
+				public File call() {
+					File file = getApcgFile(outputDir, getIndex());
+					boolean written = false;
+					try {
+						FadseSolution fadseSolution = parse();
+						if (fadseSolution != null) {
+							Writer writer = new BufferedWriter(
+									new OutputStreamWriter(new FileOutputStream(
+											file), "UTF-8"));
+							try {
+								written = ctgModel.writeApcg(fadseSolution,
+										writer);
+							} finally {
+								writer.close();
+							}
+							if (logger.isDebugEnabled()) {
+								logger.debug("Saving the scheduling XML file "
+										+ file);
+							}
+						}
+					} catch (IOException e) {
+						logger.error("Could not write the APCG of solution "
+								+ getIndex(), e);
+						written = false;
+					} catch (XMLStreamException e) {
+						logger.error("StAX encountered an error", e);
+						written = false;
+					} catch (RuntimeException e) {
+						logger.error("Solution " + getIndex()
+								+ " could not be evaluated", e);
+						written = false;
+					} finally {
+						if (!written) {
+							// no partially written APCG is left behind
+							file.delete();
+						}
+					}
+					return written ? file : null;
+				}
+			});
+		}
+		return run(evaluations);
+	}
+
+	/**
+	 * Reads FADSE solutions, one per line (empty lines are ignored).
+	 *
+	 * @param solutionsFile
+	 *            the file with the solutions
+	 * @return the solutions
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static List<String> readSolutions(File solutionsFile)
+			throws IOException {
+		List<String> outputsFromFadse = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(solutionsFile), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() > 0) {
+					outputsFromFadse.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return outputsFromFadse;
+	}
+
+	public static void main(String[] args) throws IOException,
+			JAXBException, XMLStreamException {
+		System.err
+				.println("usage:   java FadseBatchEvaluator.class {application file path} {CTG ID} {APCG ID} {solutions file} [-threads {N}] [-out {directory}]");
+		System.err
+				.println("note:	 the solutions file has one FADSE output per line; the APCGs are written to the CTG's directory, unless another directory is given");
+		System.err
+				.println("example: java FadseBatchEvaluator.class /home/cradu/workspace/CTG-XML/xml/e3s/telecom-mocsyn.tgff 0 2 generation-7.txt -threads 8");
+		if (args == null || args.length < 4) {
+			logger.error("This evaluator must be invoked with at least 4 parameters!");
+			return;
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		File outputDir = null;
+		for (int i = 4; i < args.length; i++) {
+			if ("-threads".equals(args[i]) && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if ("-out".equals(args[i]) && i + 1 < args.length) {
+				outputDir = new File(args[++i]);
+			} else {
+				logger.error("Unknown option " + args[i]);
+				return;
+			}
+		}
+
+		String ctgId = args[1];
+		File ctgDir = new File(args[0], "ctg-" + ctgId);
+		if (outputDir == null) {
+			outputDir = ctgDir;
+		}
+		long start = System.nanoTime();
+		FadseCtgModel ctgModel = FadseCtgModel.load(ctgId, ctgId + "_"
+				+ FadseOutputBasedScheduler.SCHEDULER_ID, new File(ctgDir,
+				"apcg-" + ctgId + "_" + args[2] + ".xml"), new File(ctgDir,
+				"tasks"), new File(args[0], "cores"));
+		List<String> outputsFromFadse = readSolutions(new File(args[3]));
+		List<File> files = new FadseBatchEvaluator(ctgModel, threads).evaluate(
+				outputsFromFadse, outputDir);
+		int written = 0;
+		for (File file : files) {
+			if (file != null) {
+				written++;
+			}
+		}
+		logger.info("Wrote " + written + " of " + files.size() + " APCGs to "
+				+ outputDir + " in "
+				+ ((System.nanoTime() - start) / 1000000) + " ms");
+		logger.info("Done.");
+	}
+
+}
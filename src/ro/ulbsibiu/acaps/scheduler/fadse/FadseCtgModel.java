@@ -0,0 +1,474 @@
+package ro.ulbsibiu.acaps.scheduler.fadse;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
+import ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType;
+import ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType;
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibrary;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibraryCache;
+import ro.ulbsibiu.acaps.scheduler.workspace.BenchmarkWorkspace;
+import ro.ulbsibiu.acaps.scheduler.workspace.CtgTaskSet;
+import ro.ulbsibiu.acaps.scheduler.xml.JaxbContextPool;
+import ro.ulbsibiu.acaps.scheduler.xml.SchedulingXmlReader;
+import ro.ulbsibiu.acaps.scheduler.xml.TaskRecord;
+
+/**
+ * Everything needed to turn FADSE solutions into APCGs, for one CTG: the
+ * template APCG, the type of each task and the core library. The template
+ * APCG and the tasks are read only once, when the model is loaded; the core
+ * library is taken from the {@link CoreLibraryCache}. Hence, a model can
+ * evaluate any number of FADSE solutions. A model can also be built without
+ * reading any file, from a template APCG and a {@link BenchmarkWorkspace}
+ * which are already in memory.
+ * <p>
+ * The template APCG is kept as arrays (the core UIDs and, for each core, the
+ * IDs and the types of its tasks), not as a JAXB object tree. It is never
+ * modified: each APCG is built straight from the template and the FADSE
+ * solution, so a model can be used by more threads at the same time.
+ * {@link #isUpToDate()} tells whether the template APCG or the task XMLs
+ * changed since the model was loaded.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class FadseCtgModel {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(FadseCtgModel.class);
+
+	/** the ID of the Communication Task Graph */
+	private final String ctgId;
+
+	/** the ID of the generated APCGs */
+	private final String apcgId;
+
+	/** the template APCG XML file */
+	private final File templateApcgFile;
+
+	/** the directory with the XML files containing the tasks */
+	private final File tasksDir;
+
+	/** the directory with the XML files containing the cores */
+	private final File coresDir;
+
+	/**
+	 * the core library (<tt>null</tt> if it is taken from the
+	 * {@link CoreLibraryCache})
+	 */
+	private final CoreLibrary coreLibrary;
+
+	/** the ctg attribute of the template APCG */
+	private final String templateCtg;
+
+	/** the UIDs of the template APCG's cores */
+	private final String[] coreUids;
+
+	/** the IDs of the tasks of each template APCG core */
+	private final String[][] taskIds;
+
+	/** the types of the tasks of each template APCG core */
+	private final String[][] taskTypes;
+
+	/** the files from which this model was loaded */
+	private final File[] inputFiles;
+
+	/** the last modification time of each input file, when it was loaded */
+	private final long[] lastModified;
+
+	/** the size of each input file, when it was loaded */
+	private final long[] lengths;
+
+	private FadseCtgModel(String ctgId, String apcgId, File templateApcgFile,
+			File tasksDir, File coresDir, CoreLibrary coreLibrary,
+			String templateCtg, String[] coreUids, String[][] taskIds,
+			String[][] taskTypes, File[] inputFiles) {
+		this.ctgId = ctgId;
+		this.apcgId = apcgId;
+		this.templateApcgFile = templateApcgFile;
+		this.tasksDir = tasksDir;
+		this.coresDir = coresDir;
+		this.coreLibrary = coreLibrary;
+		this.templateCtg = templateCtg;
+		this.coreUids = coreUids;
+		this.taskIds = taskIds;
+		this.taskTypes = taskTypes;
+		this.inputFiles = inputFiles;
+		this.lastModified = new long[inputFiles.length];
+		this.lengths = new long[inputFiles.length];
+		for (int i = 0; i < inputFiles.length; i++) {
+			lastModified[i] = inputFiles[i].lastModified();
+			lengths[i] = inputFiles[i].length();
+		}
+	}
+
+	private static File[] listInputFiles(File templateApcgFile, File tasksDir) {
+		File[] taskXmls = tasksDir.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File file, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+		if (taskXmls == null) {
+			taskXmls = new File[0];
+		}
+		Arrays.sort(taskXmls);
+		if (templateApcgFile == null) {
+			// the template APCG is in memory
+			return taskXmls;
+		}
+		File[] inputFiles = new File[taskXmls.length + 1];
+		inputFiles[0] = templateApcgFile;
+		System.arraycopy(taskXmls, 0, inputFiles, 1, taskXmls.length);
+		return inputFiles;
+	}
+
+	/**
+	 * Indexes the type of a task by its ID. When more tasks have the same ID,
+	 * this is reported and, like a linear search, the first one wins.
+	 */
+	private static void indexTaskType(Map<String, String> typesById,
+			TaskRecord task, String ctgId) {
+		if (!typesById.containsKey(task.getID())) {
+			typesById.put(task.getID(), task.getType());
+		} else {
+			logger.assertLog(false, "CTG " + ctgId
+					+ " has more tasks with ID " + task.getID()
+					+ "; only the first one is used");
+		}
+	}
+
+	/**
+	 * Loads the model of a CTG.
+	 *
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (cannot be empty)
+	 * @param apcgId
+	 *            the ID of the generated APCGs (cannot be empty)
+	 * @param templateApcgFile
+	 *            the template APCG XML file
+	 * @param tasksDir
+	 *            the directory with the XML files containing the tasks
+	 * @param coresDir
+	 *            the directory with the XML files containing the cores
+	 * @return the model
+	 *
+	 * @throws JAXBException
+	 *             if the template APCG cannot be unmarshalled
+	 * @throws XMLStreamException
+	 *             if a task XML cannot be read
+	 */
+	public static FadseCtgModel load(String ctgId, String apcgId,
+			File templateApcgFile, File tasksDir, File coresDir)
+			throws JAXBException, XMLStreamException {
+		logger.assertLog(ctgId != null && ctgId.length() > 0,
+				"A CTG must be specified");
+		logger.assertLog(apcgId != null && apcgId.length() > 0,
+				"An APCG must be specified");
+		logger.assertLog(tasksDir.isDirectory(),
+				"The tasks file path doesn't point a directory");
+		logger.assertLog(coresDir.isDirectory(),
+				"The cores file path doesn't point a directory");
+
+		File[] inputFiles = listInputFiles(templateApcgFile, tasksDir);
+		ApcgType templateApcg = JaxbContextPool.APCG.unmarshal(
+				templateApcgFile, ApcgType.class);
+		Map<String, String> typesById = new HashMap<String, String>(
+				inputFiles.length * 2);
+		for (int i = 1; i < inputFiles.length; i++) {
+			indexTaskType(typesById, SchedulingXmlReader
+					.readTask(inputFiles[i]), ctgId);
+		}
+
+		List<CoreType> coreList = templateApcg.getCore();
+		String[] coreUids = new String[coreList.size()];
+		String[][] taskIds = new String[coreList.size()][];
+		String[][] taskTypes = new String[coreList.size()][];
+		for (int i = 0; i < coreUids.length; i++) {
+			CoreType coreType = coreList.get(i);
+			coreUids[i] = coreType.getUid();
+			List<TaskType> taskList = coreType.getTask();
+			taskIds[i] = new String[taskList.size()];
+			taskTypes[i] = new String[taskList.size()];
+			for (int j = 0; j < taskIds[i].length; j++) {
+				taskIds[i][j] = taskList.get(j).getId();
+				taskTypes[i][j] = typesById.get(taskIds[i][j]);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded the model of CTG " + ctgId + " (template "
+					+ templateApcgFile + ", " + typesById.size() + " tasks)");
+		}
+		return new FadseCtgModel(ctgId, apcgId, templateApcgFile, tasksDir,
+				coresDir, null, templateApcg.getCtg(), coreUids, taskIds,
+				taskTypes, inputFiles);
+	}
+
+	/**
+	 * Builds the model of a CTG from an in-memory template APCG (e.g. just
+	 * computed by another scheduler) and from tasks and cores which were
+	 * already read. Nothing is read from files.
+	 *
+	 * @param apcgId
+	 *            the ID of the generated APCGs (cannot be empty)
+	 * @param templateApcg
+	 *            the template APCG
+	 * @param workspace
+	 *            the workspace of the benchmark, with the tasks of the CTG
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (it must be in the
+	 *            workspace)
+	 * @return the model
+	 */
+	public static FadseCtgModel fromTemplate(String apcgId,
+			ScheduleResult templateApcg, BenchmarkWorkspace workspace,
+			String ctgId) {
+		logger.assertLog(apcgId != null && apcgId.length() > 0,
+				"An APCG must be specified");
+		logger.assertLog(templateApcg != null,
+				"A template APCG must be specified");
+		CtgTaskSet taskSet = workspace.getCtg(ctgId);
+		logger.assertLog(taskSet != null, "The workspace has no CTG " + ctgId);
+
+		Map<String, String> typesById = new HashMap<String, String>(taskSet
+				.getTaskCount() * 2);
+		for (int i = 0; i < taskSet.getTaskCount(); i++) {
+			indexTaskType(typesById, taskSet.getTask(i), ctgId);
+		}
+
+		String[] coreUids = new String[templateApcg.getCoreCount()];
+		String[][] taskIds = new String[coreUids.length][];
+		String[][] taskTypes = new String[coreUids.length][];
+		for (int i = 0; i < coreUids.length; i++) {
+			coreUids[i] = templateApcg.getCoreUid(i);
+			taskIds[i] = new String[templateApcg.getTaskCount(i)];
+			taskTypes[i] = new String[taskIds[i].length];
+			for (int j = 0; j < taskIds[i].length; j++) {
+				taskIds[i][j] = templateApcg.getTaskId(i, j);
+				taskTypes[i][j] = typesById.get(taskIds[i][j]);
+			}
+		}
+		return new FadseCtgModel(ctgId, apcgId, null, taskSet.getTasksDir(),
+				workspace.getCoresDir(), workspace.getCoreLibrary(),
+				templateApcg.getCtgId(), coreUids, taskIds, taskTypes,
+				listInputFiles(null, taskSet.getTasksDir()));
+	}
+
+	/**
+	 * @return whether or not the template APCG and the task XMLs are the same
+	 *         (name, modification time and size) as when this model was
+	 *         loaded; the core library is always up to date
+	 */
+	public boolean isUpToDate() {
+		File[] files = listInputFiles(templateApcgFile, tasksDir);
+		boolean upToDate = Arrays.equals(files, inputFiles);
+		for (int i = 0; upToDate && i < files.length; i++) {
+			upToDate = files[i].lastModified() == lastModified[i]
+					&& files[i].length() == lengths[i];
+		}
+		return upToDate;
+	}
+
+	/**
+	 * @return the ID of the Communication Task Graph
+	 */
+	public String getCtgId() {
+		return ctgId;
+	}
+
+	/**
+	 * @return the ID of the generated APCGs
+	 */
+	public String getApcgId() {
+		return apcgId;
+	}
+
+	/**
+	 * @return the template APCG XML file (<tt>null</tt> if the template APCG
+	 *         was given in memory)
+	 */
+	public File getTemplateApcgFile() {
+		return templateApcgFile;
+	}
+
+	private int findCoreIndex(CoreLibrary coreLibrary, String coreId) {
+		int coreIndex = coreLibrary.getCoreIndex(coreId);
+		logger.assertLog(coreIndex != -1, "Could not find a core with ID "
+				+ coreId);
+		return coreIndex;
+	}
+
+	/**
+	 * @return the index of the task type, or -1 if the core doesn't specify it
+	 */
+	private int getCoreTask(CoreLibrary coreLibrary, int coreIndex,
+			String type) {
+		int taskTypeIndex = coreLibrary.getTaskTypeIndex(type);
+		if (taskTypeIndex == -1
+				|| !coreLibrary.hasTaskType(coreIndex, taskTypeIndex)) {
+			logger.error("The task type " + type
+					+ " was not found in the specification of core with ID "
+					+ coreLibrary.getCoreId(coreIndex));
+			taskTypeIndex = -1;
+		}
+		return taskTypeIndex;
+	}
+
+	/**
+	 * @param fadseSolution
+	 *            a FADSE solution
+	 * @return the UIDs of the template APCG's cores for which the FADSE
+	 *         solution doesn't give a core ID (empty if there is none)
+	 */
+	public List<String> findMissingCoreUids(FadseSolution fadseSolution) {
+		return fadseSolution.findMissing(ctgId, Arrays.asList(coreUids));
+	}
+
+	/**
+	 * Checks that an APCG can be built from the given FADSE solution: each core
+	 * UID of the template APCG gets a core ID, each core ID is in the core
+	 * library, each template task has a type and the chosen core supports it.
+	 *
+	 * @param fadseSolution
+	 *            a FADSE solution
+	 * @return the problems of the FADSE solution, for this CTG (empty if there
+	 *         is none)
+	 *
+	 * @throws XMLStreamException
+	 *             if the core library cannot be loaded
+	 */
+	public List<String> findProblems(FadseSolution fadseSolution)
+			throws XMLStreamException {
+		return findProblems(this.coreLibrary != null ? this.coreLibrary
+				: CoreLibraryCache.load(coresDir), fadseSolution);
+	}
+
+	private List<String> findProblems(CoreLibrary coreLibrary,
+			FadseSolution fadseSolution) {
+		List<String> problems = new ArrayList<String>();
+		List<String> missing = findMissingCoreUids(fadseSolution);
+		if (!missing.isEmpty()) {
+			problems.add("no core IDs for CTG " + ctgId + " and core UIDs "
+					+ missing);
+		}
+		for (int i = 0; i < coreUids.length; i++) {
+			String coreId = fadseSolution.getCoreId(ctgId, coreUids[i]);
+			if (coreId == null) {
+				continue;
+			}
+			int core = coreLibrary.getCoreIndex(coreId);
+			if (core == -1) {
+				problems.add("unknown core ID " + coreId + " for CTG " + ctgId
+						+ " and core UID " + coreUids[i]);
+				continue;
+			}
+			for (int j = 0; j < taskIds[i].length; j++) {
+				if (taskTypes[i][j] == null) {
+					problems.add("no type for task " + taskIds[i][j]
+							+ " of CTG " + ctgId);
+				} else {
+					int taskType = coreLibrary.getTaskTypeIndex(taskTypes[i][j]);
+					if (taskType == -1
+							|| !coreLibrary.hasTaskType(core, taskType)) {
+						problems.add("core ID " + coreId + " cannot run task "
+								+ taskIds[i][j] + " (type " + taskTypes[i][j]
+								+ ") of CTG " + ctgId);
+					}
+				}
+			}
+		}
+		return problems;
+	}
+
+	/**
+	 * Builds the APCG which results from the template APCG, by changing the
+	 * core types as indicated by the given FADSE solution.
+	 *
+	 * @param fadseSolution
+	 *            the FADSE solution
+	 * @return the APCG, or <tt>null</tt> if the FADSE solution has problems
+	 *         (see {@link #findProblems(FadseSolution)})
+	 *
+	 * @throws XMLStreamException
+	 *             if the core library cannot be loaded
+	 */
+	public ScheduleResult buildScheduleResult(FadseSolution fadseSolution)
+			throws XMLStreamException {
+		CoreLibrary coreLibrary = this.coreLibrary != null ? this.coreLibrary
+				: CoreLibraryCache.load(coresDir);
+
+		List<String> problems = findProblems(coreLibrary, fadseSolution);
+		if (!problems.isEmpty()) {
+			logger.error("Could not build an APCG from FADSE output ("
+					+ fadseSolution.getOutputFromFadse() + "): " + problems);
+			return null;
+		}
+
+		ScheduleResult.Builder builder = new ScheduleResult.Builder(apcgId,
+				templateCtg);
+		for (int i = 0; i < coreUids.length; i++) {
+			String coreId = fadseSolution.getCoreId(ctgId, coreUids[i]);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Found for CTG " + ctgId + " and core UID "
+						+ coreUids[i] + " core ID " + coreId + "");
+			}
+			builder.startCore(coreUids[i], coreId);
+			int core = findCoreIndex(coreLibrary, coreId);
+			for (int j = 0; j < taskIds[i].length; j++) {
+				int coreTask = getCoreTask(coreLibrary, core, taskTypes[i][j]);
+				if (coreTask == -1) {
+					// the execution time and the power would be the ones of
+					// another task type (or NaN)
+					return null;
+				}
+				builder.addTask(taskIds[i][j],
+						coreLibrary.getExecTime(core, coreTask),
+						coreLibrary.getPower(core, coreTask));
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Writes the APCG which results from the template APCG, by changing the
+	 * core types as indicated by the given FADSE solution.
+	 *
+	 * @param fadseSolution
+	 *            the FADSE solution
+	 * @param writer
+	 *            where the APCG XML is written (pretty printed)
+	 * @return whether or not the APCG was written (nothing is written if the
+	 *         FADSE solution has problems)
+	 *
+	 * @throws XMLStreamException
+	 *             if the core library cannot be loaded or the XML cannot be
+	 *             written
+	 */
+	public boolean writeApcg(FadseSolution fadseSolution, Writer writer)
+			throws XMLStreamException {
+		ScheduleResult scheduleResult = buildScheduleResult(fadseSolution);
+		if (scheduleResult == null) {
+			return false;
+		}
+		scheduleResult.write(writer, true);
+		return true;
+	}
+
+}
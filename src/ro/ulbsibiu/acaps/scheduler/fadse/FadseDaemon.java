@@ -0,0 +1,286 @@
+package ro.ulbsibiu.acaps.scheduler.fadse;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+
+/**
+ * Keeps an application loaded and turns FADSE solutions into APCGs, without
+ * starting a JVM for each solution (like
+ * {@link FadseOutputBasedScheduler#main(String[])} requires). The template
+ * APCGs and the tasks are loaded once, and again only when their files change;
+ * the core library is kept by the
+ * {@link ro.ulbsibiu.acaps.scheduler.library.CoreLibraryCache}.
+ * <p>
+ * The requests are read line by line, either from the standard input or from
+ * a socket bound to the loopback interface. Each request gets a response:
+ * <ul>
+ * <li><tt>{FADSE output}</tt> or <tt>write {FADSE output}</tt>: the APCGs of
+ * all the CTGs are written to the same files as
+ * {@link FadseOutputBasedScheduler#main(String[])} does; the response is
+ * <tt>OK {number of APCGs}</tt></li>
+ * <li><tt>print {FADSE output}</tt>: the APCG XML of each CTG is sent back,
+ * followed by a line with <tt>END</tt>; after the last APCG comes
+ * <tt>OK {number of APCGs}</tt></li>
+ * <li><tt>reload</tt>: the application is loaded again; the response is
+ * <tt>OK</tt></li>
+ * <li><tt>quit</tt>: ends the session (on the standard input, it stops the
+ * daemon)</li>
+ * </ul>
+ * A request which cannot be served gets <tt>ERROR {message}</tt>.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class FadseDaemon {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(FadseDaemon.class);
+
+	/** the application (.tgff) directory */
+	private final File application;
+
+	/** the ID of the scheduler which produced the template APCGs */
+	private final String templateApcgId;
+
+	/** the loaded application (guarded by this) */
+	private FadseApplication fadseApplication;
+
+	/** APCGs of the same CTG are written to the same file */
+	private final Object writeLock = new Object();
+
+	/**
+	 * Constructor
+	 *
+	 * @param application
+	 *            the application (.tgff) directory
+	 * @param templateApcgId
+	 *            the ID of the scheduler which produced the template APCGs
+	 */
+	public FadseDaemon(File application, String templateApcgId) {
+		logger.assertLog(application != null && application.isDirectory(),
+				"The application must be a directory");
+		logger.assertLog(templateApcgId != null && templateApcgId.length() > 0,
+				"The APCG ID must be specified");
+		this.application = application;
+		this.templateApcgId = templateApcgId;
+	}
+
+	/**
+	 * @param forceReload
+	 *            whether the application is loaded again even if its files
+	 *            did not change
+	 * @return the application, loaded again if any of its files changed
+	 */
+	private synchronized FadseApplication getApplication(boolean forceReload)
+			throws JAXBException, XMLStreamException {
+		if (fadseApplication == null || forceReload
+				|| !fadseApplication.isUpToDate()) {
+			if (fadseApplication != null && logger.isInfoEnabled()) {
+				logger.info("Reloading the application " + application);
+			}
+			fadseApplication = FadseApplication.load(application,
+					templateApcgId);
+		}
+		return fadseApplication;
+	}
+
+	/**
+	 * Serves requests until the end of the input or until a <tt>quit</tt>
+	 * request.
+	 *
+	 * @param reader
+	 *            where the requests are read from
+	 * @param writer
+	 *            where the responses are written
+	 *
+	 * @throws IOException
+	 *             if the requests cannot be read
+	 */
+	public void serve(BufferedReader reader, PrintWriter writer)
+			throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.length() == 0) {
+				continue;
+			}
+			if ("quit".equals(line)) {
+				break;
+			}
+			try {
+				if ("reload".equals(line)) {
+					getApplication(true);
+					writer.println("OK");
+				} else if (line.startsWith("print ")) {
+					FadseSolution fadseSolution = FadseSolution.parse(line
+							.substring("print ".length()).trim());
+					if (!fadseSolution.getErrors().isEmpty()) {
+						writer.println("ERROR " + fadseSolution.getErrors());
+						writer.flush();
+						continue;
+					}
+					// all the APCGs are built before any is sent back, so a
+					// solution which doesn't fit some CTG gets only an error
+					List<ScheduleResult> scheduleResults = getApplication(false)
+							.buildScheduleResults(fadseSolution);
+					if (scheduleResults == null) {
+						writer.println("ERROR no APCG can be built");
+						writer.flush();
+						continue;
+					}
+					for (ScheduleResult scheduleResult : scheduleResults) {
+						scheduleResult.write(writer, true);
+						writer.println();
+						writer.println("END");
+					}
+					writer.println("OK " + scheduleResults.size());
+				} else {
+					String output = line;
+					if (output.startsWith("write ")) {
+						output = output.substring("write ".length()).trim();
+					}
+					FadseSolution fadseSolution = FadseSolution.parse(output);
+					if (!fadseSolution.getErrors().isEmpty()) {
+						writer.println("ERROR " + fadseSolution.getErrors());
+						writer.flush();
+						continue;
+					}
+					FadseApplication fadseApplication = getApplication(false);
+					List<File> files;
+					synchronized (writeLock) {
+						files = fadseApplication.writeApcgs(fadseSolution);
+					}
+					if (files == null) {
+						writer.println("ERROR no APCG was written");
+					} else {
+						writer.println("OK " + files.size());
+					}
+				}
+			} catch (JAXBException e) {
+				logger.error("JAXB encountered an error", e);
+				writer.println("ERROR " + e);
+			} catch (XMLStreamException e) {
+				logger.error("StAX encountered an error", e);
+				writer.println("ERROR " + e);
+			} catch (IOException e) {
+				logger.error("Could not write an APCG", e);
+				writer.println("ERROR " + e);
+			} catch (RuntimeException e) {
+				logger.error("Could not serve the request " + line, e);
+				writer.println("ERROR " + e);
+			}
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Accepts connections on the given port (of the loopback interface) and
+	 * serves each of them on its own thread. This method never returns
+	 * normally.
+	 *
+	 * @param port
+	 *            the port
+	 *
+	 * @throws IOException
+	 *             if the port cannot be listened on
+	 */
+	public void listen(int port) throws IOException {
+		ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress
+				.getByName("127.0.0.1"));
+		logger.info("Listening on " + serverSocket.getLocalSocketAddress());
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			while (true) {
+				final Socket socket = serverSocket.accept();
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							try {
+								serve(new BufferedReader(new InputStreamReader(
+										socket.getInputStream(), "UTF-8")),
+										new PrintWriter(new OutputStreamWriter(
+												socket.getOutputStream(),
+												"UTF-8")));
+							} finally {
+								socket.close();
+							}
+						} catch (IOException e) {
+							logger.error("The connection with "
+									+ socket.getRemoteSocketAddress()
+									+ " failed", e);
+						}
+					}
+				});
+			}
+		} finally {
+			executor.shutdownNow();
+			serverSocket.close();
+		}
+	}
+
+	/**
+	 * The responses go to the standard output, so the console log messages
+	 * are moved to the standard error.
+	 */
+	private static void logToStandardError() {
+		Enumeration<?> appenders = Logger.getRootLogger().getAllAppenders();
+		while (appenders.hasMoreElements()) {
+			Appender appender = (Appender) appenders.nextElement();
+			if (appender instanceof ConsoleAppender) {
+				ConsoleAppender consoleAppender = (ConsoleAppender) appender;
+				consoleAppender.setTarget(ConsoleAppender.SYSTEM_ERR);
+				consoleAppender.activateOptions();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		System.err
+				.println("usage:   java FadseDaemon.class {application file path} {APCG ID} [-port {port}]");
+		System.err
+				.println("note:	 without a port, the FADSE outputs are read from the standard input (one per line)");
+		System.err
+				.println("example: java FadseDaemon.class /home/cradu/workspace/CTG-XML/xml/e3s/telecom-mocsyn.tgff 2 -port 4321");
+		if (args == null || (args.length != 2 && args.length != 4)
+				|| (args.length == 4 && !"-port".equals(args[2]))) {
+			logger.error("This daemon must be invoked with 2 or 4 parameters!");
+			return;
+		}
+		FadseDaemon daemon = new FadseDaemon(new File(args[0]), args[1]);
+		if (args.length == 4) {
+			daemon.listen(Integer.parseInt(args[3]));
+		} else {
+			logToStandardError();
+			daemon.serve(new BufferedReader(new InputStreamReader(System.in,
+					"UTF-8")), new PrintWriter(new OutputStreamWriter(
+					System.out, "UTF-8")));
+			logger.info("Done.");
+		}
+	}
+
+}
@@ -3,23 +3,20 @@ package ro.ulbsibiu.acaps.scheduler.fadse;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.util.List;
+import java.io.IOException;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.log4j.Logger;
 
 import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ObjectFactory;
-import ro.ulbsibiu.acaps.ctg.xml.core.CoreType;
-import ro.ulbsibiu.acaps.ctg.xml.task.TaskType;
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
 import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.MetricsCollector;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.workspace.BenchmarkWorkspace;
 
 /**
  * This @link{Scheduler} starts from already generated APCGs (with another
@@ -43,25 +40,37 @@ public class FadseOutputBasedScheduler implements Scheduler {
 	private static final Logger logger = Logger
 			.getLogger(FadseOutputBasedScheduler.class);
 
-	private static final String SCHEDULER_ID = "3";
+	static final String SCHEDULER_ID = "3";
 
 	/** the ID of the Application Characterization Graph */
-	private String apcgId;
+	private final String apcgId;
 
 	/** the ID of the Communication Task Graph */
-	private String ctgId;
+	private final String ctgId;
 	
 	/** the APCG XMl file that will be used by FADSE to create another APCG, by changing the core type */
-	private String templateApcgFilePath;
+	private final String templateApcgFilePath;
 	
-	/** the output from FADSE, which contains the core types */
-	private String outputFromFadse;
+	/** the solution from FADSE, which contains the core types */
+	private final FadseSolution fadseSolution;
 
-	/** the XML files containing the tasks */
-	private File[] taskXmls;
+	/** the directory with the XML files containing the tasks */
+	private final File tasksDir;
 
-	/** the XML files containing the cores */
-	private File[] coreXmls;
+	/** the directory with the XML files containing the cores */
+	private final File coresDir;
+
+	/**
+	 * the template APCG, already in memory (<tt>null</tt> if it is read from
+	 * the template APCG XML file)
+	 */
+	private final ScheduleResult templateApcg;
+
+	/**
+	 * the workspace from which the tasks and the cores are taken (
+	 * <tt>null</tt> if they are read from their XMLs)
+	 */
+	private final BenchmarkWorkspace workspace;
 
 	/**
 	 * Constructor
@@ -80,9 +89,31 @@ public class FadseOutputBasedScheduler implements Scheduler {
 	 */
 	public FadseOutputBasedScheduler(String templateApcgFilePath, String outputFromFadse, String ctgId, String tasksFilePath,
 			String coresFilePath) {
+		this(templateApcgFilePath, FadseSolution.parse(outputFromFadse), ctgId,
+				tasksFilePath, coresFilePath);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param templateApcgFilePath
+	 *            the APCG XMl file that will be used by FADSE to create another
+	 *            APCG, by changing the core type
+	 * @param fadseSolution
+	 *            the (already parsed) solution from FADSE, which contains the
+	 *            core types; it can be shared by all the CTGs of an application
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (cannot be empty)
+	 * @param tasksFilePath
+	 *            the XML files containing the tasks (cannot be empty)
+	 * @param coresFilePath
+	 *            the XML files containing the cores (cannot be empty)
+	 */
+	public FadseOutputBasedScheduler(String templateApcgFilePath, FadseSolution fadseSolution, String ctgId, String tasksFilePath,
+			String coresFilePath) {
 		logger.assertLog(templateApcgFilePath != null && templateApcgFilePath.length() > 0,
 				"A template APCG file path must be specified");
-		logger.assertLog(outputFromFadse != null && outputFromFadse.length() > 0,
+		logger.assertLog(fadseSolution != null,
 				"The output from FADSE is required");
 		logger.assertLog(ctgId != null && ctgId.length() > 0,
 				"A CTG must be specified");
@@ -92,7 +123,7 @@ public class FadseOutputBasedScheduler implements Scheduler {
 				"A tasks file path must be specified");
 
 		this.templateApcgFilePath = templateApcgFilePath;
-		this.outputFromFadse = outputFromFadse;
+		this.fadseSolution = fadseSolution;
 		
 		this.apcgId = ctgId + "_" + getSchedulerId();
 		logger.assertLog(apcgId != null && apcgId.length() > 0,
@@ -108,21 +139,50 @@ public class FadseOutputBasedScheduler implements Scheduler {
 		logger.assertLog(coresFile.isDirectory(),
 				"The cores file path doesn't point a directory");
 
-		taskXmls = tasksFile.listFiles(new FilenameFilter() {
+		tasksDir = tasksFile;
 
-			@Override
-			public boolean accept(File file, String name) {
-				return name.endsWith(".xml");
-			}
-		});
+		coresDir = coresFile;
 
-		coreXmls = coresFile.listFiles(new FilenameFilter() {
+		templateApcg = null;
+		workspace = null;
+	}
 
-			@Override
-			public boolean accept(File file, String name) {
-				return name.endsWith(".xml");
-			}
-		});
+	/**
+	 * Constructor (the template APCG, the tasks and the cores are already in
+	 * memory, so nothing is read)
+	 * 
+	 * @param templateApcg
+	 *            the APCG that will be used by FADSE to create another APCG,
+	 *            by changing the core type (e.g. just computed by another
+	 *            scheduler)
+	 * @param fadseSolution
+	 *            the (already parsed) solution from FADSE, which contains the
+	 *            core types
+	 * @param workspace
+	 *            the workspace of the benchmark
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (it must be in the
+	 *            workspace)
+	 */
+	public FadseOutputBasedScheduler(ScheduleResult templateApcg,
+			FadseSolution fadseSolution, BenchmarkWorkspace workspace,
+			String ctgId) {
+		logger.assertLog(templateApcg != null,
+				"A template APCG must be specified");
+		logger.assertLog(fadseSolution != null,
+				"The output from FADSE is required");
+		logger.assertLog(workspace != null, "A workspace must be specified");
+		logger.assertLog(workspace.getCtg(ctgId) != null,
+				"The workspace has no CTG " + ctgId);
+
+		this.templateApcgFilePath = null;
+		this.fadseSolution = fadseSolution;
+		this.apcgId = ctgId + "_" + getSchedulerId();
+		this.ctgId = ctgId;
+		this.tasksDir = workspace.getCtg(ctgId).getTasksDir();
+		this.coresDir = workspace.getCoresDir();
+		this.templateApcg = templateApcg;
+		this.workspace = workspace;
 	}
 
 	@Override
@@ -130,54 +190,6 @@ public class FadseOutputBasedScheduler implements Scheduler {
 		return SCHEDULER_ID;
 	}
 
-	private String findTaskType(String taskId) throws JAXBException {
-		String taskType = null;
-		if (logger.isDebugEnabled()) {
-			logger.debug("Searching for a task with ID " + taskId);
-		}
-		for (int i = 0; i < taskXmls.length; i++) {
-			TaskType task = getTask(taskXmls[i]);
-			if (task.getID().equals(taskId)) {
-				taskType = task.getType();
-				if (logger.isDebugEnabled()) {
-					logger.debug("Found task type " + taskType + " for task "
-							+ taskId);
-				}
-				break;
-			}
-		}
-		return taskType;
-	}
-	
-	private CoreType findCoreType(String coreId) throws JAXBException {
-		CoreType core = null;
-		if (logger.isDebugEnabled()) {
-			logger.debug("Searching for a core with ID " + coreId);
-		}
-		for (int i = 0; i < coreXmls.length; i++) {
-			core = getCore(coreXmls[i]);
-			if (core.getID().equals(coreId)) {
-				break;
-			}
-		}
-		return core;
-	}
-
-	private String findNewCoreId(String coreUid) {
-		String pattern = "core-" + ctgId + "_" + coreUid + "=";
-		int idx = outputFromFadse.indexOf(pattern);
-		logger.assertLog(idx >= 0, "Could not find in FADSE output ("
-				+ outputFromFadse + ") core with UID " + coreUid + ", for CTG "
-				+ ctgId);
-		String coreId = outputFromFadse.substring(idx + pattern.length());
-		coreId = coreId.substring(0, coreId.indexOf("|"));
-		if (logger.isDebugEnabled()) {
-			logger.debug("Found for CTG " + ctgId + " and core UID " + coreUid
-					+ " core ID " + coreId + "");
-		}
-		return coreId;
-	}
-	
 	/**
 	 * Schedules the CTG tasks to the available cores in a direct fashion: task
 	 * 0 is assigned to core 0, task 1 is assigned to core 1 etc.
@@ -188,95 +200,68 @@ public class FadseOutputBasedScheduler implements Scheduler {
 	 */
 	@Override
 	public String schedule() {
+		ScheduleResult scheduleResult = computeSchedule();
+		return scheduleResult == null ? null : scheduleResult.toXml();
+	}
+
+	@Override
+	public ScheduleResult computeSchedule() {
 		if (logger.isDebugEnabled()) {
 			logger.debug("FADSE output based scheduling started");
-			logger.debug("Template APCG XML file is " + templateApcgFilePath);
-			logger.debug("Output from FADSE is " + outputFromFadse);
+			logger.debug("Template APCG XML file is "
+					+ (templateApcg != null ? "in memory" : templateApcgFilePath));
+			logger.debug("Output from FADSE is "
+					+ fadseSolution.getOutputFromFadse());
 		}
 
-		String apcgXml = null;
+		ScheduleResult scheduleResult = null;
 		try {
-			JAXBContext jaxbContext = JAXBContext.newInstance("ro.ulbsibiu.acaps.ctg.xml.apcg");
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-			@SuppressWarnings("unchecked")
-			JAXBElement<ApcgType> templateApcgElem = (JAXBElement<ApcgType>) unmarshaller
-					.unmarshal(new File(templateApcgFilePath));
-			ApcgType templateApcg = templateApcgElem.getValue();
-			templateApcg.setId(ctgId + "_" + SCHEDULER_ID);
-			List<ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType> coreList = templateApcg.getCore();
-			for (ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType coreType : coreList) {
-				coreType.setId(findNewCoreId(coreType.getUid()));
-				List<ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType> taskList = coreType.getTask();
-				for (ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType taskType : taskList) {
-					String type = findTaskType(taskType.getId());
-					ro.ulbsibiu.acaps.ctg.xml.core.TaskType coreTask = getCoreTask(findCoreType(coreType.getId()).getTask(), type);
-					taskType.setExecTime(coreTask.getExecTime());
-					taskType.setPower(coreTask.getPower());
-				}
+			FadseCtgModel model;
+			if (templateApcg != null) {
+				model = FadseCtgModel.fromTemplate(apcgId, templateApcg,
+						workspace, ctgId);
+			} else {
+				model = FadseCtgModel.load(ctgId, apcgId, new File(
+						templateApcgFilePath), tasksDir, coresDir);
 			}
-			
-			Marshaller marshaller = jaxbContext.createMarshaller();
-			marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
-			StringWriter stringWriter = new StringWriter();
-			ObjectFactory apcgFactory = new ObjectFactory();
-			JAXBElement<ApcgType> apcg = apcgFactory.createApcg(templateApcg);
-			marshaller.marshal(apcg, stringWriter);
-
-			apcgXml = stringWriter.toString();
+			scheduleResult = model.buildScheduleResult(fadseSolution);
 		} catch (JAXBException e) {
 			logger.error("JAXB encountered an error", e);
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
 		}
 
 		if (logger.isDebugEnabled()) {
 			logger.debug("FADSE output based scheduling finished");
 		}
 
-		return apcgXml;
-	}
-
-	private CoreType getCore(File file) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext
-				.newInstance("ro.ulbsibiu.acaps.ctg.xml.core");
-		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-		@SuppressWarnings("unchecked")
-		JAXBElement<CoreType> coreXml = (JAXBElement<CoreType>) unmarshaller
-				.unmarshal(file);
-		return coreXml.getValue();
-	}
-
-	private TaskType getTask(File file) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext
-				.newInstance("ro.ulbsibiu.acaps.ctg.xml.task");
-		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-		@SuppressWarnings("unchecked")
-		JAXBElement<TaskType> taskXml = (JAXBElement<TaskType>) unmarshaller
-				.unmarshal(file);
-		return taskXml.getValue();
-	}
-
-	private ro.ulbsibiu.acaps.ctg.xml.core.TaskType getCoreTask(
-			List<ro.ulbsibiu.acaps.ctg.xml.core.TaskType> tasks, String type) {
-		ro.ulbsibiu.acaps.ctg.xml.core.TaskType theTaskType = null;
-		for (ro.ulbsibiu.acaps.ctg.xml.core.TaskType taskType : tasks) {
-			if (type.equals(taskType.getType())) {
-				theTaskType = taskType;
-				break;
-			}
-		}
-		return theTaskType;
+		return scheduleResult;
 	}
 
 	public static void main(String[] args) throws FileNotFoundException {
 		System.err
-				.println("usage:   java FadseOutputBasedScheduler.class {application file path} {APCG ID} {FADSE output}");
+				.println("usage:   java FadseOutputBasedScheduler.class [-report {CSV or JSON file}] {application file path} {APCG ID} {FADSE output}");
 		System.err
 				.println("note:	 each CTG is only scheduled individually (e.g.: folders named like ctg-0+1 are ignored)");
 		System.err
 				.println("example: java FadseOutputBasedScheduler.class /home/cradu/workspace/CTG-XML/xml/e3s/telecom-mocsyn.tgff 2 core-0_0=12|core-0_1=32|core-0_2=33|core-0_3=29|core-1_0=5|core-1_1=26|core-1_2=33|core-1_3=32|core-1_4=8|core-1_5=22|core-2_0=32|core-2_1=15|core-2_2=33|core-2_3=32|core-2_4=27|core-2_5=8|core-3_0=33|core-3_1=32|core-3_2=22|core-4_0=26|core-4_1=32|core-4_2=22|core-5_0=32|core-5_1=32|core-6_0=30|core-6_1=32|core-7_0=13|core-7_1=15|core-8_0=5|core-8_1=32|");
-		if (args == null || args.length != 3) {
+		File report = null;
+		int first = 0;
+		if (args != null && args.length > 1 && "-report".equals(args[0])) {
+			report = new File(args[1]);
+			first = 2;
+		}
+		if (args == null || args.length - first != 3) {
 			logger.error("This scheduler must be invoked with 3 parameters!");
 		} else {
-			File application = new File(args[0]);
+			MetricsCollector metrics = null;
+			if (report != null) {
+				metrics = new MetricsCollector();
+				metrics.register();
+			}
+			// the FADSE solution is parsed only once, for all CTGs
+			FadseSolution fadseSolution = FadseSolution.parse(args[first + 2]);
+			File application = new File(args[first]);
 			String path = application.getPath() + File.separator;
 			String[] ctgs = application.list(new FilenameFilter() {
 
@@ -289,19 +274,44 @@ public class FadseOutputBasedScheduler implements Scheduler {
 				String ctgId = ctgs[j].substring("ctg-".length());
 				if (!ctgId.contains("+")) {
 					Scheduler scheduler = new FadseOutputBasedScheduler(new File(path + "ctg-" + ctgId + File.separator
-							+ "apcg-" + ctgId + "_" + args[1] + ".xml").getPath(), args[2], ctgId,
+							+ "apcg-" + ctgId + "_" + args[first + 1] + ".xml").getPath(), fadseSolution, ctgId,
 							path + "ctg-" + ctgId + File.separator + "tasks",
 							path + "cores");
 					String apcgId = ctgId + "_" + scheduler.getSchedulerId();
-					String apcgXml = scheduler.schedule();
-					String xmlFileName = path + "ctg-" + ctgId + File.separator
-							+ "apcg-" + apcgId + ".xml";
-					PrintWriter pw = new PrintWriter(xmlFileName);
-					logger.info("Saving the scheduling XML file " + xmlFileName);
-					pw.write(apcgXml);
-					pw.close();
+					Instrumentation.beginCtg(application.getName(), ctgId,
+							scheduler.getSchedulerId());
+					try {
+						ScheduleResult scheduleResult;
+						Instrumentation.enter(Phase.SEARCH);
+						try {
+							scheduleResult = scheduler.computeSchedule();
+						} finally {
+							Instrumentation.exit();
+						}
+						String xmlFileName = path + "ctg-" + ctgId
+								+ File.separator + "apcg-" + apcgId + ".xml";
+						if (scheduleResult == null) {
+							logger.error("CTG " + ctgId
+									+ " could not be scheduled; " + xmlFileName
+									+ " is not written");
+							continue;
+						}
+						logger.info("Saving the scheduling XML file "
+								+ xmlFileName);
+						try {
+							scheduleResult.write(new File(xmlFileName));
+						} catch (IOException e) {
+							logger.error("Could not write " + xmlFileName, e);
+						}
+					} finally {
+						Instrumentation.endCtg();
+					}
 				}
 			}
+			if (metrics != null) {
+				metrics.unregister();
+				metrics.writeReport(report);
+			}
 			logger.info("Done.");
 		}
 	}
@@ -0,0 +1,162 @@
+package ro.ulbsibiu.acaps.scheduler.fadse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A solution found by FADSE, parsed once into a (CTG ID, core UID) to core ID
+ * index. A solution is a string like
+ * <tt>"core-0_0=12|core-0_1=32|core-1_0=5"</tt>: for each item "core-x_y=z",
+ * x is the CTG ID, y is the core UID from the corresponding APCG and z is the
+ * core ID. The trailing "|" is optional.
+ * <p>
+ * All the malformed items are collected while parsing (see
+ * {@link #getErrors()}). When an item is given more than once, its first
+ * occurrence counts. A solution is immutable, so it can be shared by the
+ * schedulers of all the CTGs of an application.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class FadseSolution {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(FadseSolution.class);
+
+	private static final String PREFIX = "core-";
+
+	/** the output from FADSE */
+	private final String outputFromFadse;
+
+	/** CTG ID -> (core UID -> core ID) */
+	private final Map<String, Map<String, String>> coreIds;
+
+	/** the problems found while parsing */
+	private final List<String> errors;
+
+	private FadseSolution(String outputFromFadse,
+			Map<String, Map<String, String>> coreIds, List<String> errors) {
+		this.outputFromFadse = outputFromFadse;
+		this.coreIds = coreIds;
+		this.errors = Collections.unmodifiableList(errors);
+	}
+
+	/**
+	 * Parses a solution found by FADSE. All the malformed items are reported
+	 * at once, through a single {@link Logger#assertLog(boolean, String)}.
+	 *
+	 * @param outputFromFadse
+	 *            the output from FADSE
+	 * @return the parsed solution
+	 */
+	public static FadseSolution parse(String outputFromFadse) {
+		logger.assertLog(outputFromFadse != null,
+				"The output from FADSE is required");
+		Map<String, Map<String, String>> coreIds = new HashMap<String, Map<String, String>>();
+		List<String> errors = new ArrayList<String>();
+		int start = 0;
+		int length = outputFromFadse == null ? 0 : outputFromFadse.length();
+		while (start < length) {
+			int end = outputFromFadse.indexOf('|', start);
+			if (end == -1) {
+				end = length;
+			}
+			String item = outputFromFadse.substring(start, end).trim();
+			start = end + 1;
+			if (item.length() == 0) {
+				continue;
+			}
+			int equals = item.indexOf('=');
+			int underscore = equals == -1 ? -1 : item.lastIndexOf('_', equals);
+			// the CTG ID, the core UID and the core ID cannot be empty
+			if (!item.startsWith(PREFIX) || underscore <= PREFIX.length()
+					|| underscore + 1 == equals || equals + 1 == item.length()) {
+				errors.add("malformed item \"" + item + "\"");
+				continue;
+			}
+			String ctgId = item.substring(PREFIX.length(), underscore);
+			String coreUid = item.substring(underscore + 1, equals);
+			String coreId = item.substring(equals + 1);
+			Map<String, String> ctgCoreIds = coreIds.get(ctgId);
+			if (ctgCoreIds == null) {
+				ctgCoreIds = new HashMap<String, String>();
+				coreIds.put(ctgId, ctgCoreIds);
+			}
+			if (ctgCoreIds.containsKey(coreUid)) {
+				errors.add("duplicate item \"" + item + "\" (core ID "
+						+ ctgCoreIds.get(coreUid) + " is used)");
+			} else {
+				ctgCoreIds.put(coreUid, coreId);
+			}
+		}
+		logger.assertLog(errors.isEmpty(), "The output from FADSE ("
+				+ outputFromFadse + ") has " + errors.size() + " problems: "
+				+ errors);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Parsed a FADSE solution for " + coreIds.size()
+					+ " CTGs");
+		}
+		return new FadseSolution(outputFromFadse, coreIds, errors);
+	}
+
+	/**
+	 * @return the output from FADSE
+	 */
+	public String getOutputFromFadse() {
+		return outputFromFadse;
+	}
+
+	/**
+	 * @return the problems found while parsing (empty if the solution is well
+	 *         formed)
+	 */
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph
+	 * @param coreUid
+	 *            the UID of a core from the CTG's APCG
+	 * @return the ID of the core chosen by FADSE, or <tt>null</tt> if the
+	 *         solution doesn't specify it
+	 */
+	public String getCoreId(String ctgId, String coreUid) {
+		String coreId = null;
+		Map<String, String> ctgCoreIds = coreIds.get(ctgId);
+		if (ctgCoreIds != null) {
+			coreId = ctgCoreIds.get(coreUid);
+		}
+		return coreId;
+	}
+
+	/**
+	 * Finds the core UIDs for which this solution doesn't specify a core ID.
+	 *
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph
+	 * @param coreUids
+	 *            the UIDs of the cores from the CTG's APCG
+	 * @return the missing core UIDs (empty if there is none)
+	 */
+	public List<String> findMissing(String ctgId, Collection<String> coreUids) {
+		List<String> missing = new ArrayList<String>();
+		for (String coreUid : coreUids) {
+			if (getCoreId(ctgId, coreUid) == null) {
+				missing.add(coreUid);
+			}
+		}
+		return missing;
+	}
+
+}
@@ -0,0 +1,204 @@
+package ro.ulbsibiu.acaps.scheduler.hungarian;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Solves the (rectangular) assignment problem with the Hungarian algorithm:
+ * each of the n rows gets a distinct column out of m (n &lt;= m), so that the
+ * sum of the costs is minimum. The rows are added one by one, each time along
+ * a shortest augmenting path (found with Dijkstra's algorithm, on costs made
+ * non-negative by the dual potentials of the rows and of the columns).
+ * <p>
+ * The costs are given as a flat primitive array, row after row. Rows which
+ * have the same costs may share them: each row is given by the offset of its
+ * costs. Rows which share their costs are interchangeable, so they are solved
+ * as a single row which gets more columns; for a scheduler, this means a row
+ * for each task type, not for each task. With g distinct rows, the algorithm
+ * takes O(n g m) time in the worst case (O(n<sup>2</sup>m) when all the rows
+ * are distinct) and O(g + m) memory besides the costs.
+ * </p>
+ * <p>
+ * A column which leads to a group which was already reached is not updated
+ * anymore, so each augmenting path goes back, group after group, through
+ * groups reached earlier. With exact arithmetic, such a column would never get
+ * a shorter distance anyway; with rounding errors (and many ties), updating it
+ * could make the path a cycle.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public final class HungarianAlgorithm {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(HungarianAlgorithm.class);
+
+	/**
+	 * the relative difference below which two distances are considered equal
+	 * (so that rounding errors don't change the shortest paths)
+	 */
+	private static final double EPSILON = 1e-12;
+
+	private HungarianAlgorithm() {
+		// only static methods
+	}
+
+	/**
+	 * Finds a minimum cost assignment of the rows to distinct columns.
+	 *
+	 * @param costs
+	 *            the costs (must be finite), row after row
+	 * @param columnCount
+	 *            the number of columns (m)
+	 * @param rowOffsets
+	 *            the index in <tt>costs</tt> where the costs of each row
+	 *            start; the costs of row i are
+	 *            <tt>costs[rowOffsets[i] ... rowOffsets[i] + columnCount - 1]</tt>
+	 * @return the column assigned to each row
+	 */
+	public static int[] solve(double[] costs, int columnCount, int[] rowOffsets) {
+		int n = rowOffsets.length;
+		int m = columnCount;
+		logger.assertLog(n <= m, "There are more rows (" + n
+				+ ") than columns (" + m + ")");
+
+		// the rows which share their costs form a group
+		Map<Integer, Integer> groups = new HashMap<Integer, Integer>();
+		int[] rowGroups = new int[n];
+		for (int i = 0; i < n; i++) {
+			Integer group = groups.get(rowOffsets[i]);
+			if (group == null) {
+				group = groups.size();
+				groups.put(rowOffsets[i], group);
+			}
+			rowGroups[i] = group;
+		}
+		int g = groups.size();
+		int[] groupOffsets = new int[g];
+		for (Map.Entry<Integer, Integer> entry : groups.entrySet()) {
+			groupOffsets[entry.getValue()] = entry.getKey();
+		}
+
+		// the potentials; the reduced cost c - u - v is never negative and
+		// all the free columns have the same potential (0)
+		double[] u = new double[g];
+		double[] v = new double[m];
+		for (int t = 0; t < g; t++) {
+			u[t] = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < m; j++) {
+				u[t] = Math.min(u[t], costs[groupOffsets[t] + j]);
+			}
+		}
+		// the group which got each column (-1 if none)
+		int[] owner = new int[m];
+		Arrays.fill(owner, -1);
+
+		// the shortest paths, from the group of the added row
+		double[] groupDistances = new double[g];
+		boolean[] visited = new boolean[g];
+		// the column through which each group is reached
+		int[] via = new int[g];
+		double[] columnDistances = new double[m];
+		// the group from which each column is reached
+		int[] previous = new int[m];
+
+		for (int i = 0; i < n; i++) {
+			int source = rowGroups[i];
+			Arrays.fill(groupDistances, Double.POSITIVE_INFINITY);
+			Arrays.fill(visited, false);
+			Arrays.fill(columnDistances, Double.POSITIVE_INFINITY);
+			Arrays.fill(via, -1);
+			Arrays.fill(previous, -1);
+			groupDistances[source] = 0;
+			double freeDistance = Double.POSITIVE_INFINITY;
+			int freeColumn = -1;
+			int t = source;
+			while (t != -1) {
+				visited[t] = true;
+				double dt = groupDistances[t] - u[t];
+				int offset = groupOffsets[t];
+				for (int j = 0; j < m; j++) {
+					double d = dt + costs[offset + j] - v[j];
+					int o = owner[j];
+					// a group cannot get a column which it already has, and
+					// the path to a group which was reached doesn't change
+					if (d + EPSILON * Math.abs(d) < columnDistances[j]
+							&& o != t && (o == -1 || !visited[o])) {
+						columnDistances[j] = d;
+						previous[j] = t;
+						if (o == -1) {
+							if (d < freeDistance) {
+								freeDistance = d;
+								freeColumn = j;
+							}
+						} else {
+							// back along the assignment of column j to group o
+							double back = d
+									- (costs[groupOffsets[o] + j] - u[o] - v[j]);
+							if (back < groupDistances[o]) {
+								groupDistances[o] = back;
+								via[o] = j;
+							}
+						}
+					}
+				}
+				// the closest group, unless a free column is closer
+				double min = freeDistance;
+				t = -1;
+				for (int k = 0; k < g; k++) {
+					if (!visited[k] && groupDistances[k] < min) {
+						min = groupDistances[k];
+						t = k;
+					}
+				}
+			}
+
+			for (int k = 0; k < g; k++) {
+				if (visited[k]) {
+					u[k] += freeDistance - groupDistances[k];
+				}
+			}
+			for (int j = 0; j < m; j++) {
+				if (columnDistances[j] < freeDistance) {
+					v[j] -= freeDistance - columnDistances[j];
+				}
+			}
+
+			// augment along the path (each group on it was reached before
+			// the previous one, so at most g groups are on it)
+			int j = freeColumn;
+			for (int steps = 0; steps < g; steps++) {
+				t = previous[j];
+				logger.assertLog(t != -1 && visited[t],
+						"The augmenting path is broken at column " + j);
+				owner[j] = t;
+				if (t == source) {
+					break;
+				}
+				j = via[t];
+			}
+		}
+
+		// the columns of a group go to its rows, in order
+		int[] nextColumn = new int[g];
+		int[] assignment = new int[n];
+		for (int i = 0; i < n; i++) {
+			int t = rowGroups[i];
+			int j = nextColumn[t];
+			while (owner[j] != t) {
+				j++;
+			}
+			assignment[i] = j;
+			nextColumn[t] = j + 1;
+		}
+		return assignment;
+	}
+
+}
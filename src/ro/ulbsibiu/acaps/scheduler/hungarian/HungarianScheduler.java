@@ -0,0 +1,352 @@
+package ro.ulbsibiu.acaps.scheduler.hungarian;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilenameFilter;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
+import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.MetricsCollector;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibrary;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibraryCache;
+import ro.ulbsibiu.acaps.scheduler.xml.SchedulingXmlReader;
+import ro.ulbsibiu.acaps.scheduler.xml.TaskRecord;
+
+/**
+ * This @link{Scheduler} assigns each task to a different core so that the sum
+ * of the execution times of all the tasks is minimum. This is the assignment
+ * problem, solved exactly with the {@link HungarianAlgorithm}.
+ * <p>
+ * Notes:
+ * <ul>
+ * <li>There must be at least as many cores as tasks.</li>
+ * <li>A core which doesn't specify the type of a task cannot get that task.</li>
+ * <li>Like for the minimum execution time scheduler, zero execution times are
+ * assumed to mean that the core didn't run the task: such a core is assigned
+ * to a task only if no assignment can avoid it.</li>
+ * </ul>
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class HungarianScheduler implements Scheduler {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(HungarianScheduler.class);
+
+	private static final String SCHEDULER_ID = "4";
+
+	/** the ID of the Application Characterization Graph */
+	private final String apcgId;
+
+	/** the ID of the Communication Task Graph */
+	private final String ctgId;
+
+	/** the XML files containing the tasks */
+	private final File[] taskXmls;
+
+	/** the directory with the XML files containing the cores */
+	private final File coresDir;
+
+	/**
+	 * Constructor
+	 *
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (cannot be empty)
+	 * @param tasksFilePath
+	 *            the XML files containing the tasks (cannot be empty)
+	 * @param coresFilePath
+	 *            the XML files containing the cores (cannot be empty)
+	 */
+	public HungarianScheduler(String ctgId, String tasksFilePath,
+			String coresFilePath) {
+		logger.assertLog(ctgId != null && ctgId.length() > 0,
+				"A CTG must be specified");
+		logger.assertLog(tasksFilePath != null && tasksFilePath.length() > 0,
+				"A tasks file path must be specified");
+		logger.assertLog(coresFilePath != null && coresFilePath.length() > 0,
+				"A tasks file path must be specified");
+
+		this.apcgId = ctgId + "_" + getSchedulerId();
+		this.ctgId = ctgId;
+
+		File tasksFile = new File(tasksFilePath);
+		logger.assertLog(tasksFile.isDirectory(),
+				"The tasks file path doesn't point a directory");
+
+		File coresFile = new File(coresFilePath);
+		logger.assertLog(coresFile.isDirectory(),
+				"The cores file path doesn't point a directory");
+
+		taskXmls = tasksFile.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File file, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+
+		coresDir = coresFile;
+	}
+
+	@Override
+	public String getSchedulerId() {
+		return SCHEDULER_ID;
+	}
+
+	/**
+	 * Builds the cost matrix: a row for each task type (the tasks of the same
+	 * type share it) and a column for each core.
+	 *
+	 * @param taskTypeIndexes
+	 *            the task type index of each task
+	 * @return the costs, row after row
+	 */
+	private double[] buildCosts(CoreLibrary coreLibrary, int[] taskTypeIndexes) {
+		int coreCount = coreLibrary.getCoreCount();
+		int taskTypeCount = coreLibrary.getTaskTypeCount();
+		// a zero execution time costs more than all the other execution times
+		// of an assignment together, and a missing task type costs more than
+		// all the zero execution times together
+		double maxExecTime = 0;
+		for (int i = 0; i < coreCount; i++) {
+			for (int t = 0; t < taskTypeCount; t++) {
+				double execTime = coreLibrary.getExecTime(i, t);
+				if (execTime > maxExecTime) {
+					maxExecTime = execTime;
+				}
+			}
+		}
+		double zeroCost = 1 + maxExecTime * taskTypeIndexes.length;
+		double missingCost = 1 + zeroCost * taskTypeIndexes.length;
+
+		double[] costs = new double[taskTypeCount * coreCount];
+		for (int t = 0; t < taskTypeCount; t++) {
+			for (int i = 0; i < coreCount; i++) {
+				double execTime = coreLibrary.getExecTime(i, t);
+				double cost;
+				if (!coreLibrary.hasTaskType(i, t)) {
+					cost = missingCost;
+				} else if (execTime == 0) {
+					cost = zeroCost;
+				} else {
+					cost = execTime;
+				}
+				costs[t * coreCount + i] = cost;
+			}
+		}
+		return costs;
+	}
+
+	/**
+	 * Schedules the CTG tasks to the available cores so that the total
+	 * execution time is minimum.
+	 *
+	 * @see ApcgType
+	 *
+	 * @return a String containing the APCG XML
+	 */
+	@Override
+	public String schedule() {
+		ScheduleResult scheduleResult = computeSchedule();
+		return scheduleResult == null ? null : scheduleResult.toXml();
+	}
+
+	@Override
+	public ScheduleResult computeSchedule() {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Hungarian scheduling started");
+		}
+
+		ScheduleResult scheduleResult = null;
+		try {
+			CoreLibrary coreLibrary = CoreLibraryCache.load(coresDir);
+			int coreCount = coreLibrary.getCoreCount();
+			logger.assertLog(taskXmls.length <= coreCount,
+					"The Hungarian scheduler requires a core for each task. However, there are "
+							+ taskXmls.length + " tasks and only " + coreCount
+							+ " cores!");
+			if (taskXmls.length <= coreCount) {
+				TaskRecord[] tasks = new TaskRecord[taskXmls.length];
+				int[] taskTypeIndexes = new int[taskXmls.length];
+				int[] rowOffsets = new int[taskXmls.length];
+				boolean known = true;
+				for (int i = 0; i < taskXmls.length; i++) {
+					tasks[i] = SchedulingXmlReader.readTask(taskXmls[i]);
+					taskTypeIndexes[i] = coreLibrary.getTaskTypeIndex(tasks[i]
+							.getType());
+					if (taskTypeIndexes[i] == -1) {
+						logger.assertLog(false, "The task type "
+								+ tasks[i].getType()
+								+ " was not found in the specification of any core");
+						known = false;
+					}
+					rowOffsets[i] = taskTypeIndexes[i] * coreCount;
+				}
+				if (known) {
+					double[] costs = buildCosts(coreLibrary, taskTypeIndexes);
+					int[] assignment = HungarianAlgorithm.solve(costs,
+							coreCount, rowOffsets);
+					scheduleResult = buildScheduleResult(coreLibrary, tasks,
+							taskTypeIndexes, assignment);
+				}
+			}
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Hungarian scheduling finished");
+		}
+
+		return scheduleResult;
+	}
+
+	private ScheduleResult buildScheduleResult(CoreLibrary coreLibrary,
+			TaskRecord[] tasks, int[] taskTypeIndexes, int[] assignment) {
+		ScheduleResult.Builder builder = new ScheduleResult.Builder(apcgId,
+				ctgId);
+		double totalExecTime = 0;
+		for (int i = 0; i < tasks.length; i++) {
+			int core = assignment[i];
+			int taskType = taskTypeIndexes[i];
+			logger.assertLog(coreLibrary.hasTaskType(core, taskType),
+					"The task type " + tasks[i].getType()
+							+ " was not found in the specification of core with ID "
+							+ coreLibrary.getCoreId(core));
+			if (logger.isInfoEnabled()) {
+				logger.info("Task " + i + " is scheduled to core "
+						+ coreLibrary.getCoreName(core) + " (ID "
+						+ coreLibrary.getCoreId(core) + ")");
+			}
+			double execTime = coreLibrary.getExecTime(core, taskType);
+			totalExecTime += execTime;
+			// each task is assigned to a different core
+			builder.startCore(tasks[i].getID(), coreLibrary.getCoreId(core));
+			builder.addTask(tasks[i].getID(), execTime, coreLibrary.getPower(
+					core, taskType));
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("The total execution time is " + totalExecTime);
+		}
+		return builder.build();
+	}
+
+	public static void main(String[] args) throws FileNotFoundException {
+		System.err
+				.println("usage:   java HungarianScheduler.class [-report {CSV or JSON file}] [E3S benchmarks]");
+		System.err
+				.println("note:	 each CTG is only scheduled individually (e.g.: folders named like ctg-0+1 are ignored)");
+		System.err
+				.println("example 1 (specify the tgff file): java HungarianScheduler.class ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff ../CTG-XML/xml/e3s/telecom-mocsyn.tgff");
+		System.err
+				.println("example 2 (schedule the entire E3S benchmark suite): java HungarianScheduler.class");
+		System.err
+				.println("example 3 (report the time of each phase, for each CTG): java HungarianScheduler.class -report phases.csv");
+		File report = null;
+		int first = 0;
+		while (args != null && first + 1 < args.length
+				&& args[first].startsWith("-")) {
+			if ("-report".equals(args[first])) {
+				report = new File(args[first + 1]);
+			} else {
+				logger.error("Unknown option " + args[first]);
+				return;
+			}
+			first += 2;
+		}
+		MetricsCollector metrics = null;
+		if (report != null) {
+			metrics = new MetricsCollector();
+			metrics.register();
+		}
+		File[] tgffFiles = null;
+		if (args == null || args.length == first) {
+			File e3sDir = new File(".." + File.separator + "CTG-XML"
+					+ File.separator + "xml" + File.separator + "e3s");
+			logger.assertLog(e3sDir.isDirectory(),
+					"Could not find the E3S benchmarks directory!");
+			tgffFiles = e3sDir.listFiles(new FilenameFilter() {
+
+				@Override
+				public boolean accept(File dir, String name) {
+					return name.endsWith(".tgff");
+				}
+			});
+		} else {
+			tgffFiles = new File[args.length - first];
+			for (int i = first; i < args.length; i++) {
+				tgffFiles[i - first] = new File(args[i]);
+			}
+		}
+		for (int i = 0; i < tgffFiles.length; i++) {
+			String path = tgffFiles[i].getPath() + File.separator;
+			File e3sBenchmark = tgffFiles[i];
+			String[] ctgs = e3sBenchmark.list(new FilenameFilter() {
+
+				@Override
+				public boolean accept(File dir, String name) {
+					return dir.isDirectory() && name.startsWith("ctg-");
+				}
+			});
+			for (int j = 0; j < ctgs.length; j++) {
+				String ctgId = ctgs[j].substring("ctg-".length());
+				if (!ctgId.contains("+")) {
+					logger.info("Scheduling " + path + " with a Hungarian scheduler");
+					Scheduler scheduler = new HungarianScheduler(ctgId, path
+							+ "ctg-" + ctgId + File.separator + "tasks", path
+							+ "cores");
+					String apcgId = ctgId + "_" + scheduler.getSchedulerId();
+					Instrumentation.beginCtg(e3sBenchmark.getName(), ctgId,
+							scheduler.getSchedulerId());
+					try {
+						ScheduleResult scheduleResult;
+						Instrumentation.enter(Phase.SEARCH);
+						try {
+							scheduleResult = scheduler.computeSchedule();
+						} finally {
+							Instrumentation.exit();
+						}
+						String xmlFileName = path + "ctg-" + ctgId
+								+ File.separator + "apcg-" + apcgId + ".xml";
+						if (scheduleResult == null) {
+							logger.error("CTG " + ctgId
+									+ " could not be scheduled; " + xmlFileName
+									+ " is not written");
+							continue;
+						}
+						logger.info("Saving the scheduling XML file "
+								+ xmlFileName);
+						try {
+							scheduleResult.write(new File(xmlFileName));
+						} catch (IOException e) {
+							logger.error("Could not write " + xmlFileName, e);
+						}
+					} finally {
+						Instrumentation.endCtg();
+					}
+				}
+			}
+			logger.info("Finished with e3s" + File.separator
+					+ tgffFiles[i].getName());
+		}
+		if (metrics != null) {
+			metrics.unregister();
+			metrics.writeReport(report);
+		}
+		logger.info("Done.");
+	}
+
+}
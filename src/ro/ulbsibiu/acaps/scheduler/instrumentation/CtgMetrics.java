@@ -0,0 +1,126 @@
+package ro.ulbsibiu.acaps.scheduler.instrumentation;
+
+/**
+ * What the {@link Instrumentation} recorded for a CTG: the time spent in each
+ * {@link Phase}, how many XML files were parsed and how many bytes were
+ * written. The phase times are exclusive: the parsing done during the search
+ * counts only as parsing. CTG metrics are immutable.
+ *
+ * @author cradu
+ *
+ */
+public class CtgMetrics {
+
+	/** the benchmark (the .tgff directory) */
+	private final String benchmark;
+
+	/** the ID of the Communication Task Graph */
+	private final String ctgId;
+
+	/** the ID of the scheduler */
+	private final String schedulerId;
+
+	/** the time of each phase, in nanoseconds (indexed by ordinal) */
+	private final long[] phaseNanos;
+
+	/** the time of the entire CTG, in nanoseconds */
+	private final long totalNanos;
+
+	/** how many XML files were parsed */
+	private final int filesParsed;
+
+	/** how many bytes were written */
+	private final long bytesWritten;
+
+	CtgMetrics(String benchmark, String ctgId, String schedulerId,
+			long[] phaseNanos, long totalNanos, int filesParsed,
+			long bytesWritten) {
+		this.benchmark = benchmark;
+		this.ctgId = ctgId;
+		this.schedulerId = schedulerId;
+		this.phaseNanos = phaseNanos;
+		this.totalNanos = totalNanos;
+		this.filesParsed = filesParsed;
+		this.bytesWritten = bytesWritten;
+	}
+
+	/**
+	 * Adds the metrics recorded for the same CTG on another thread (e.g. by
+	 * another stage of a pipeline).
+	 *
+	 * @param other
+	 *            the other metrics of the CTG
+	 * @return the sums of the phase times, of the total times and of the
+	 *         counters
+	 */
+	CtgMetrics add(CtgMetrics other) {
+		long[] sums = phaseNanos.clone();
+		for (int i = 0; i < sums.length; i++) {
+			sums[i] += other.phaseNanos[i];
+		}
+		return new CtgMetrics(benchmark, ctgId, schedulerId, sums, totalNanos
+				+ other.totalNanos, filesParsed + other.filesParsed,
+				bytesWritten + other.bytesWritten);
+	}
+
+	public String getBenchmark() {
+		return benchmark;
+	}
+
+	public String getCtgId() {
+		return ctgId;
+	}
+
+	public String getSchedulerId() {
+		return schedulerId;
+	}
+
+	/**
+	 * @param phase
+	 *            the phase
+	 * @return the time spent in the phase, in nanoseconds
+	 */
+	public long getPhaseNanos(Phase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 * @return the time of the entire CTG, in nanoseconds (including the time
+	 *         which is not spent in any phase)
+	 */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * @return how many XML files were parsed
+	 */
+	public int getFilesParsed() {
+		return filesParsed;
+	}
+
+	/**
+	 * @return how many bytes were written
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(benchmark).append(" ctg-").append(ctgId).append(
+				" (scheduler ").append(schedulerId).append("):");
+		Phase[] phases = Phase.values();
+		for (int i = 0; i < phases.length; i++) {
+			sb.append(' ').append(phases[i].name().toLowerCase()).append(' ')
+					.append(String.format("%.3f", phaseNanos[i] / 1e6)).append(
+							" ms,");
+		}
+		sb.append(" total ").append(String.format("%.3f", totalNanos / 1e6))
+				.append(" ms, ").append(filesParsed).append(" files parsed, ")
+				.append(bytesWritten).append(" bytes written");
+		return sb.toString();
+	}
+
+}
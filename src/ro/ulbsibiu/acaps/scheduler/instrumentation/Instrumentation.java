@@ -0,0 +1,201 @@
+package ro.ulbsibiu.acaps.scheduler.instrumentation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Records where the time of a scheduler run goes, for each CTG: the time of
+ * each {@link Phase}, how many XML files are parsed and how many bytes are
+ * written. A driver marks the CTG processed by the current thread with
+ * {@link #beginCtg(String, String, String)} and {@link #endCtg()}; the
+ * schedulers, the XML readers and writers and the drivers mark their phases
+ * with {@link #enter(Phase)} and {@link #exit()}:
+ *
+ * <pre>
+ * Instrumentation.enter(Phase.PARSE);
+ * try {
+ * 	...
+ * } finally {
+ * 	Instrumentation.exit();
+ * }
+ * </pre>
+ *
+ * The metrics of each CTG are given to the registered
+ * {@link InstrumentationListener}s and they can be written as a report (see
+ * {@link MetricsReport}).
+ * <p>
+ * The instrumentation is disabled by default. Then each call only reads a
+ * volatile flag, so the instrumented code runs as fast as before. The phases
+ * and the counters of a thread which is not processing a CTG are ignored.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public final class Instrumentation {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(Instrumentation.class);
+
+	/** whether or not the instrumentation is enabled */
+	private static volatile boolean enabled;
+
+	/** the recorder of the CTG processed by each thread */
+	private static final ThreadLocal<PhaseRecorder> recorders = new ThreadLocal<PhaseRecorder>();
+
+	private static final List<InstrumentationListener> listeners = new CopyOnWriteArrayList<InstrumentationListener>();
+
+	private Instrumentation() {
+		// only static methods
+	}
+
+	/**
+	 * Enables or disables the instrumentation. The CTGs which are already
+	 * being processed are not affected.
+	 *
+	 * @param enabled
+	 *            whether or not the instrumentation is enabled
+	 */
+	public static void setEnabled(boolean enabled) {
+		Instrumentation.enabled = enabled;
+	}
+
+	/**
+	 * @return whether or not the instrumentation is enabled
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param listener
+	 *            the listener which receives the metrics of each CTG
+	 */
+	public static void addListener(InstrumentationListener listener) {
+		logger.assertLog(listener != null, "A listener must be specified");
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener
+	 *            the listener which no longer receives the metrics
+	 */
+	public static void removeListener(InstrumentationListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Starts recording a CTG, on the current thread (does nothing if the
+	 * instrumentation is disabled).
+	 *
+	 * @param benchmark
+	 *            the benchmark (the .tgff directory)
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph
+	 * @param schedulerId
+	 *            the ID of the scheduler (can be <tt>null</tt> if it is not
+	 *            known yet, see {@link #setSchedulerId(String)})
+	 */
+	public static void beginCtg(String benchmark, String ctgId,
+			String schedulerId) {
+		if (enabled) {
+			recorders.set(new PhaseRecorder(benchmark, ctgId, schedulerId));
+		}
+	}
+
+	/**
+	 * Sets the ID of the scheduler of the CTG of the current thread (for the
+	 * drivers which know it only after creating the scheduler).
+	 *
+	 * @param schedulerId
+	 *            the ID of the scheduler
+	 */
+	public static void setSchedulerId(String schedulerId) {
+		if (enabled) {
+			PhaseRecorder recorder = recorders.get();
+			if (recorder != null) {
+				recorder.setSchedulerId(schedulerId);
+			}
+		}
+	}
+
+	/**
+	 * Ends the CTG of the current thread and gives its metrics to the
+	 * listeners.
+	 *
+	 * @return the metrics of the CTG, or <tt>null</tt> if it was not recorded
+	 */
+	public static CtgMetrics endCtg() {
+		PhaseRecorder recorder = recorders.get();
+		CtgMetrics metrics = null;
+		if (recorder != null) {
+			recorders.remove();
+			metrics = recorder.finish();
+			for (InstrumentationListener listener : listeners) {
+				listener.ctgFinished(metrics);
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Starts a phase, on the current thread. Each call must be followed by a
+	 * call of {@link #exit()} (in a <tt>finally</tt> block).
+	 *
+	 * @param phase
+	 *            the phase
+	 */
+	public static void enter(Phase phase) {
+		if (enabled) {
+			PhaseRecorder recorder = recorders.get();
+			if (recorder != null) {
+				recorder.enter(phase);
+			}
+		}
+	}
+
+	/**
+	 * Ends the innermost phase of the current thread.
+	 */
+	public static void exit() {
+		if (enabled) {
+			PhaseRecorder recorder = recorders.get();
+			if (recorder != null) {
+				recorder.exit();
+			}
+		}
+	}
+
+	/**
+	 * Counts a parsed XML file, for the CTG of the current thread.
+	 */
+	public static void fileParsed() {
+		if (enabled) {
+			PhaseRecorder recorder = recorders.get();
+			if (recorder != null) {
+				recorder.fileParsed();
+			}
+		}
+	}
+
+	/**
+	 * Counts written bytes, for the CTG of the current thread.
+	 *
+	 * @param bytes
+	 *            how many bytes were written
+	 */
+	public static void bytesWritten(long bytes) {
+		if (enabled) {
+			PhaseRecorder recorder = recorders.get();
+			if (recorder != null) {
+				recorder.bytesWritten(bytes);
+			}
+		}
+	}
+
+}
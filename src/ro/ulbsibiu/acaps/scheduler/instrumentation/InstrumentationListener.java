@@ -0,0 +1,21 @@
+package ro.ulbsibiu.acaps.scheduler.instrumentation;
+
+/**
+ * Receives the metrics of each instrumented CTG (see
+ * {@link Instrumentation#addListener(InstrumentationListener)}).
+ *
+ * @author cradu
+ *
+ */
+public interface InstrumentationListener {
+
+	/**
+	 * Called when a CTG is finished, on the thread which processed it (so, for
+	 * parallel runs, the implementations must be thread safe).
+	 *
+	 * @param metrics
+	 *            the metrics of the CTG
+	 */
+	public abstract void ctgFinished(CtgMetrics metrics);
+
+}
@@ -0,0 +1,83 @@
+package ro.ulbsibiu.acaps.scheduler.instrumentation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Collects the {@link CtgMetrics} of a run, for a {@link MetricsReport}. The
+ * metrics recorded for the same CTG and scheduler on several threads (e.g. by
+ * the stages of a pipeline) are added into a single entry. The CTGs are kept
+ * in the order in which they were first finished.
+ *
+ * @author cradu
+ *
+ */
+public class MetricsCollector implements InstrumentationListener {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(MetricsCollector.class);
+
+	/** the metrics, by benchmark, CTG ID and scheduler ID */
+	private final Map<String, CtgMetrics> metrics = new LinkedHashMap<String, CtgMetrics>();
+
+	@Override
+	public synchronized void ctgFinished(CtgMetrics ctgMetrics) {
+		String key = ctgMetrics.getBenchmark() + "/" + ctgMetrics.getCtgId()
+				+ "/" + ctgMetrics.getSchedulerId();
+		CtgMetrics previous = metrics.get(key);
+		metrics.put(key, previous == null ? ctgMetrics : previous
+				.add(ctgMetrics));
+	}
+
+	/**
+	 * @return the metrics collected so far
+	 */
+	public synchronized List<CtgMetrics> getMetrics() {
+		return new ArrayList<CtgMetrics>(metrics.values());
+	}
+
+	/**
+	 * Enables the {@link Instrumentation} and starts collecting.
+	 */
+	public void register() {
+		Instrumentation.addListener(this);
+		Instrumentation.setEnabled(true);
+	}
+
+	/**
+	 * Stops collecting (the instrumentation stays enabled).
+	 */
+	public void unregister() {
+		Instrumentation.removeListener(this);
+	}
+
+	/**
+	 * Writes the collected metrics (see {@link MetricsReport#write(List, File)}).
+	 * An error is only logged.
+	 *
+	 * @param report
+	 *            the report file (CSV or JSON)
+	 * @return whether or not the report was written
+	 */
+	public boolean writeReport(File report) {
+		boolean written = false;
+		try {
+			MetricsReport.write(getMetrics(), report);
+			logger.info("Saved the phase report " + report);
+			written = true;
+		} catch (IOException e) {
+			logger.error("Could not write the phase report " + report, e);
+		}
+		return written;
+	}
+
+}
@@ -0,0 +1,145 @@
+package ro.ulbsibiu.acaps.scheduler.instrumentation;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Writes the {@link CtgMetrics} of a run as a machine readable report: CSV
+ * (a header line and a line for each CTG) or JSON (an array with an object
+ * for each CTG). The times are in nanoseconds.
+ *
+ * @author cradu
+ *
+ */
+public final class MetricsReport {
+
+	private MetricsReport() {
+		// only static methods
+	}
+
+	/**
+	 * Writes the report to a file: JSON if the file name ends with
+	 * <tt>.json</tt>, CSV otherwise.
+	 *
+	 * @param metrics
+	 *            the metrics of the CTGs
+	 * @param file
+	 *            the report file
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void write(List<CtgMetrics> metrics, File file)
+			throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+				Charset.forName("UTF-8"));
+		try {
+			if (file.getName().toLowerCase().endsWith(".json")) {
+				writeJson(metrics, writer);
+			} else {
+				writeCsv(metrics, writer);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the report as CSV.
+	 *
+	 * @param metrics
+	 *            the metrics of the CTGs
+	 * @param writer
+	 *            where the report is written
+	 *
+	 * @throws IOException
+	 *             if the report cannot be written
+	 */
+	public static void writeCsv(List<CtgMetrics> metrics, Writer writer)
+			throws IOException {
+		Phase[] phases = Phase.values();
+		writer.write("benchmark,ctg,scheduler");
+		for (int i = 0; i < phases.length; i++) {
+			writer.write("," + phases[i].name().toLowerCase() + "_ns");
+		}
+		writer.write(",total_ns,files_parsed,bytes_written\n");
+		for (CtgMetrics m : metrics) {
+			writer.write(csv(m.getBenchmark()) + "," + csv(m.getCtgId()) + ","
+					+ csv(m.getSchedulerId()));
+			for (int i = 0; i < phases.length; i++) {
+				writer.write("," + m.getPhaseNanos(phases[i]));
+			}
+			writer.write("," + m.getTotalNanos() + "," + m.getFilesParsed()
+					+ "," + m.getBytesWritten() + "\n");
+		}
+	}
+
+	/**
+	 * Writes the report as JSON.
+	 *
+	 * @param metrics
+	 *            the metrics of the CTGs
+	 * @param writer
+	 *            where the report is written
+	 *
+	 * @throws IOException
+	 *             if the report cannot be written
+	 */
+	public static void writeJson(List<CtgMetrics> metrics, Writer writer)
+			throws IOException {
+		Phase[] phases = Phase.values();
+		writer.write("[");
+		boolean first = true;
+		for (CtgMetrics m : metrics) {
+			writer.write(first ? "\n" : ",\n");
+			first = false;
+			writer.write("  {\"benchmark\": " + json(m.getBenchmark())
+					+ ", \"ctg\": " + json(m.getCtgId()) + ", \"scheduler\": "
+					+ json(m.getSchedulerId()) + ", \"phases_ns\": {");
+			for (int i = 0; i < phases.length; i++) {
+				writer.write((i == 0 ? "" : ", ") + "\""
+						+ phases[i].name().toLowerCase() + "\": "
+						+ m.getPhaseNanos(phases[i]));
+			}
+			writer.write("}, \"total_ns\": " + m.getTotalNanos()
+					+ ", \"files_parsed\": " + m.getFilesParsed()
+					+ ", \"bytes_written\": " + m.getBytesWritten() + "}");
+		}
+		writer.write("\n]\n");
+	}
+
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') == -1 && value.indexOf('"') == -1
+				&& value.indexOf('\n') == -1) {
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	private static String json(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+}
@@ -0,0 +1,27 @@
+package ro.ulbsibiu.acaps.scheduler.instrumentation;
+
+/**
+ * The phases in which the time of a scheduler run is spent (see
+ * {@link Instrumentation}).
+ *
+ * @author cradu
+ *
+ */
+public enum Phase {
+
+	/** listing the task and core XML files */
+	LISTING,
+
+	/** reading (parsing) the task and core XML files */
+	PARSE,
+
+	/** searching for the schedule (assigning the tasks to cores) */
+	SEARCH,
+
+	/** marshalling the APCG XML */
+	MARSHAL,
+
+	/** writing the APCG XML file */
+	WRITE
+
+}
@@ -0,0 +1,94 @@
+package ro.ulbsibiu.acaps.scheduler.instrumentation;
+
+/**
+ * Records the phases of the CTG processed by a thread. The phases nest (e.g.
+ * parsing during the search): while a nested phase runs, the time of the
+ * outer phase is paused. A recorder is used by a single thread.
+ *
+ * @author cradu
+ *
+ */
+class PhaseRecorder {
+
+	private final String benchmark;
+
+	private final String ctgId;
+
+	private String schedulerId;
+
+	/** when the CTG was started */
+	private final long start;
+
+	/** the time of each phase (indexed by ordinal) */
+	private final long[] phaseNanos = new long[Phase.values().length];
+
+	/** the running phases, the innermost last */
+	private Phase[] stack = new Phase[4];
+
+	/** how many phases are running */
+	private int depth;
+
+	/** when the innermost running phase was (re)started */
+	private long phaseStart;
+
+	private int filesParsed;
+
+	private long bytesWritten;
+
+	PhaseRecorder(String benchmark, String ctgId, String schedulerId) {
+		this.benchmark = benchmark;
+		this.ctgId = ctgId;
+		this.schedulerId = schedulerId;
+		this.start = System.nanoTime();
+	}
+
+	void setSchedulerId(String schedulerId) {
+		this.schedulerId = schedulerId;
+	}
+
+	void enter(Phase phase) {
+		long now = System.nanoTime();
+		if (depth > 0) {
+			phaseNanos[stack[depth - 1].ordinal()] += now - phaseStart;
+		}
+		if (depth == stack.length) {
+			Phase[] bigger = new Phase[depth * 2];
+			System.arraycopy(stack, 0, bigger, 0, depth);
+			stack = bigger;
+		}
+		stack[depth++] = phase;
+		phaseStart = now;
+	}
+
+	void exit() {
+		// a phase entered while the instrumentation was disabled is not
+		// on the stack
+		if (depth > 0) {
+			long now = System.nanoTime();
+			phaseNanos[stack[--depth].ordinal()] += now - phaseStart;
+			phaseStart = now;
+		}
+	}
+
+	void fileParsed() {
+		filesParsed++;
+	}
+
+	void bytesWritten(long bytes) {
+		bytesWritten += bytes;
+	}
+
+	/**
+	 * Ends the running phases and the CTG.
+	 *
+	 * @return the metrics of the CTG
+	 */
+	CtgMetrics finish() {
+		while (depth > 0) {
+			exit();
+		}
+		return new CtgMetrics(benchmark, ctgId, schedulerId, phaseNanos
+				.clone(), System.nanoTime() - start, filesParsed, bytesWritten);
+	}
+
+}
@@ -0,0 +1,338 @@
+package ro.ulbsibiu.acaps.scheduler.library;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.xml.CoreRecord;
+import ro.ulbsibiu.acaps.scheduler.xml.SchedulingXmlReader;
+
+/**
+ * An index over a core library (a set of core XMLs). The task types are
+ * interned to consecutive integers and the execution time and power of each
+ * (core, task type) pair are kept in flat primitive arrays. Additionally, for
+ * each task type, the core that executes it in the fastest time is
+ * precomputed, and the cores are indexed by their ID.
+ * <p>
+ * The cores keep the order of the core XMLs from which the library is built.
+ * A core which does not specify a task type has {@link Double#NaN} as
+ * execution time and power for it.
+ * </p>
+ * <p>
+ * A core library is immutable and can be shared by any number of threads.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class CoreLibrary {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(CoreLibrary.class);
+
+	/** the XML files containing the cores */
+	private final File[] coreXmls;
+
+	/** the ID of each core */
+	private final String[] coreIds;
+
+	/** the name of each core */
+	private final String[] coreNames;
+
+	/** the index of each core, by core ID */
+	private final Map<String, Integer> coreIndexes;
+
+	/** the interned task types (task type to task type index) */
+	private final Map<String, Integer> taskTypeIndexes;
+
+	/** the task types, in the order given by their index */
+	private final String[] taskTypes;
+
+	/**
+	 * the execution times, stored core after core (the element at
+	 * <tt>coreIndex * taskTypes.length + taskTypeIndex</tt>)
+	 */
+	private final double[] execTimes;
+
+	/** the power values, stored like the execution times */
+	private final double[] powers;
+
+	/**
+	 * for each task type, the index of the core which executes it in the
+	 * fastest time (or -1, if there is no such core)
+	 */
+	private final int[] fastestCores;
+
+	/**
+	 * Constructor (the arrays are not copied)
+	 * 
+	 * @param coreXmls
+	 *            the XML files containing the cores
+	 * @param coreIds
+	 *            the ID of each core
+	 * @param coreNames
+	 *            the name of each core
+	 * @param taskTypes
+	 *            the task types, in the order given by their index
+	 * @param execTimes
+	 *            the execution times, stored core after core
+	 * @param powers
+	 *            the power values, stored core after core
+	 */
+	CoreLibrary(File[] coreXmls, String[] coreIds, String[] coreNames,
+			String[] taskTypes, double[] execTimes, double[] powers) {
+		logger.assertLog(coreXmls.length == coreIds.length
+				&& coreIds.length == coreNames.length,
+				"Each core must have an XML, an ID and a name");
+		logger.assertLog(execTimes.length == coreIds.length * taskTypes.length
+				&& powers.length == execTimes.length,
+				"Each core must have an execution time and a power for each task type");
+		this.coreXmls = coreXmls;
+		this.coreIds = coreIds;
+		this.coreNames = coreNames;
+		this.coreIndexes = indexCores(coreXmls, coreIds);
+		this.taskTypeIndexes = new HashMap<String, Integer>(
+				taskTypes.length * 2);
+		for (int i = 0; i < taskTypes.length; i++) {
+			taskTypeIndexes.put(taskTypes[i], i);
+		}
+		this.taskTypes = taskTypes;
+		this.execTimes = execTimes;
+		this.powers = powers;
+		this.fastestCores = computeFastestCores();
+	}
+
+	/**
+	 * Builds a core library from the given core XMLs.
+	 *
+	 * @param coreXmls
+	 *            the XML files containing the cores (cannot be empty)
+	 * @return the core library
+	 *
+	 * @throws XMLStreamException
+	 *             if a core XML cannot be read
+	 */
+	public static CoreLibrary load(File[] coreXmls)
+			throws XMLStreamException {
+		logger.assertLog(coreXmls != null && coreXmls.length > 0,
+				"No core XMLs were specified!");
+
+		CoreRecord[] cores = new CoreRecord[coreXmls.length];
+		Map<String, Integer> taskTypeIndexes = new HashMap<String, Integer>();
+		for (int i = 0; i < coreXmls.length; i++) {
+			cores[i] = SchedulingXmlReader.readCore(coreXmls[i]);
+			for (int j = 0; j < cores[i].getTaskTypeCount(); j++) {
+				String type = cores[i].getTaskType(j);
+				if (!taskTypeIndexes.containsKey(type)) {
+					taskTypeIndexes.put(type, taskTypeIndexes.size());
+				}
+			}
+		}
+
+		String[] taskTypes = new String[taskTypeIndexes.size()];
+		for (Map.Entry<String, Integer> entry : taskTypeIndexes.entrySet()) {
+			taskTypes[entry.getValue()] = entry.getKey();
+		}
+
+		String[] coreIds = new String[cores.length];
+		String[] coreNames = new String[cores.length];
+		double[] execTimes = new double[cores.length * taskTypes.length];
+		double[] powers = new double[execTimes.length];
+		Arrays.fill(execTimes, Double.NaN);
+		Arrays.fill(powers, Double.NaN);
+		for (int i = 0; i < cores.length; i++) {
+			coreIds[i] = cores[i].getID();
+			coreNames[i] = cores[i].getName();
+			for (int j = 0; j < cores[i].getTaskTypeCount(); j++) {
+				int k = i * taskTypes.length
+						+ taskTypeIndexes.get(cores[i].getTaskType(j));
+				// like CoreRecord.indexOfTaskType(...), the first
+				// specification of a task type is the one that counts
+				if (Double.isNaN(execTimes[k])) {
+					execTimes[k] = cores[i].getExecTime(j);
+					powers[k] = cores[i].getPower(j);
+				}
+			}
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Built a core library with " + coreIds.length
+					+ " cores and " + taskTypes.length + " task types");
+		}
+
+		return new CoreLibrary(coreXmls.clone(), coreIds, coreNames,
+				taskTypes, execTimes, powers);
+	}
+
+	/**
+	 * Indexes the cores by their ID. When more cores have the same ID, this is
+	 * reported and, like a linear search, the first one wins.
+	 */
+	private static Map<String, Integer> indexCores(File[] coreXmls,
+			String[] coreIds) {
+		Map<String, Integer> coreIndexes = new HashMap<String, Integer>(
+				coreIds.length * 2);
+		for (int i = 0; i < coreIds.length; i++) {
+			Integer first = coreIndexes.get(coreIds[i]);
+			if (first == null) {
+				coreIndexes.put(coreIds[i], i);
+			} else {
+				logger.assertLog(false, "The cores " + coreXmls[first]
+						+ " and " + coreXmls[i] + " have the same ID "
+						+ coreIds[i] + "; only the first one is used");
+			}
+		}
+		return coreIndexes;
+	}
+
+	/**
+	 * Finds, for each task type, the core with the smallest (non zero)
+	 * execution time. Cores with zero execution time are ignored because it is
+	 * assumed they didn't run the task. In case of a tie, the first core wins.
+	 */
+	private int[] computeFastestCores() {
+		int[] fastest = new int[taskTypes.length];
+		for (int j = 0; j < taskTypes.length; j++) {
+			int coreIndex = -1;
+			double min = Integer.MAX_VALUE;
+			for (int i = 0; i < coreIds.length; i++) {
+				double execTime = execTimes[i * taskTypes.length + j];
+				if (execTime > 0 && execTime < min) {
+					min = execTime;
+					coreIndex = i;
+				}
+			}
+			fastest[j] = coreIndex;
+		}
+		return fastest;
+	}
+
+	/**
+	 * @return how many cores this library has
+	 */
+	public int getCoreCount() {
+		return coreIds.length;
+	}
+
+	/**
+	 * @return how many distinct task types this library knows about
+	 */
+	public int getTaskTypeCount() {
+		return taskTypes.length;
+	}
+
+	/**
+	 * @param taskType
+	 *            the task type
+	 * @return the index of the given task type, or -1 if no core specifies it
+	 */
+	public int getTaskTypeIndex(String taskType) {
+		Integer index = taskTypeIndexes.get(taskType);
+		return index == null ? -1 : index.intValue();
+	}
+
+	/**
+	 * @param taskTypeIndex
+	 *            the index of the task type
+	 * @return the task type
+	 */
+	public String getTaskType(int taskTypeIndex) {
+		return taskTypes[taskTypeIndex];
+	}
+
+	/**
+	 * @param coreIndex
+	 *            the index of the core
+	 * @return the XML file containing the core
+	 */
+	public File getCoreXml(int coreIndex) {
+		return coreXmls[coreIndex];
+	}
+
+	/**
+	 * @param coreIndex
+	 *            the index of the core
+	 * @return the ID of the core
+	 */
+	public String getCoreId(int coreIndex) {
+		return coreIds[coreIndex];
+	}
+
+	/**
+	 * @param coreId
+	 *            the ID of a core
+	 * @return the index of the (first) core with the given ID, or -1 if there
+	 *         is no such core
+	 */
+	public int getCoreIndex(String coreId) {
+		Integer index = coreIndexes.get(coreId);
+		return index == null ? -1 : index.intValue();
+	}
+
+	/**
+	 * @param coreIndex
+	 *            the index of the core
+	 * @return the name of the core
+	 */
+	public String getCoreName(int coreIndex) {
+		return coreNames[coreIndex];
+	}
+
+	/**
+	 * @param coreIndex
+	 *            the index of the core
+	 * @param taskTypeIndex
+	 *            the index of the task type
+	 * @return whether or not the core specifies the task type
+	 */
+	public boolean hasTaskType(int coreIndex, int taskTypeIndex) {
+		return !Double.isNaN(execTimes[coreIndex * taskTypes.length
+				+ taskTypeIndex]);
+	}
+
+	/**
+	 * @param coreIndex
+	 *            the index of the core
+	 * @param taskTypeIndex
+	 *            the index of the task type
+	 * @return the time needed by the core to execute the task type (
+	 *         {@link Double#NaN} if the core doesn't specify the task type)
+	 */
+	public double getExecTime(int coreIndex, int taskTypeIndex) {
+		return execTimes[coreIndex * taskTypes.length + taskTypeIndex];
+	}
+
+	/**
+	 * @param coreIndex
+	 *            the index of the core
+	 * @param taskTypeIndex
+	 *            the index of the task type
+	 * @return the power needed by the core to execute the task type (
+	 *         {@link Double#NaN} if the core doesn't specify the task type)
+	 */
+	public double getPower(int coreIndex, int taskTypeIndex) {
+		return powers[coreIndex * taskTypes.length + taskTypeIndex];
+	}
+
+	/**
+	 * Cores which have zero execution time for a task are ignored because it
+	 * is assumed they didn't run the task. In case there are more cores that
+	 * execute the task in the same smallest time, the first core wins.
+	 *
+	 * @param taskTypeIndex
+	 *            the index of the task type
+	 * @return the index of the core that executes the task type in the fastest
+	 *         time, or -1 if all cores have zero execution time for it
+	 */
+	public int getFastestCore(int taskTypeIndex) {
+		return fastestCores[taskTypeIndex];
+	}
+
+}
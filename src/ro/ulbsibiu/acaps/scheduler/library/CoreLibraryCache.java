@@ -0,0 +1,367 @@
+package ro.ulbsibiu.acaps.scheduler.library;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps a compiled, binary form of a core library next to its cores
+ * directory (<tt>cores</tt> is compiled to <tt>cores.lib</tt>). The binary
+ * file contains the interned task types, the core IDs and names and the
+ * execution time and power columns. It is read through a memory mapped
+ * {@link FileChannel}, so loading a core library no longer requires parsing
+ * its core XMLs.
+ * <p>
+ * The binary file also records the name, the last modification time and the
+ * size of each core XML. When any of them changes (or a core XML is added or
+ * removed), the binary file is rebuilt from the XMLs. Additionally, the loaded
+ * core libraries are kept in memory, so that all the schedulers from the same
+ * JVM share them.
+ * </p>
+ * <p>
+ * Format (big endian): magic number, version, the core XMLs (count, then
+ * name, modification time and size for each), the task types (count, then
+ * each type), the cores (count, then ID and name for each), the execution
+ * times and the powers (core after core, like in {@link CoreLibrary}).
+ * Strings are written as their UTF-8 length followed by the UTF-8 bytes (-1
+ * for <tt>null</tt>).
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public final class CoreLibraryCache {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(CoreLibraryCache.class);
+
+	/** the extension of the binary core library file */
+	public static final String EXTENSION = ".lib";
+
+	private static final int MAGIC = 0x55434C42;
+
+	/** must be increased whenever the binary format changes */
+	private static final int VERSION = 1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** the core libraries loaded by this JVM (the key is the cores directory) */
+	private static final ConcurrentMap<File, Entry> loaded = new ConcurrentHashMap<File, Entry>();
+
+	/**
+	 * The name, the last modification time and the size of each core XML.
+	 */
+	private static final class Signature {
+
+		private final String[] names;
+
+		private final long[] lastModified;
+
+		private final long[] lengths;
+
+		Signature(String[] names, long[] lastModified, long[] lengths) {
+			this.names = names;
+			this.lastModified = lastModified;
+			this.lengths = lengths;
+		}
+
+		static Signature of(File[] coreXmls) {
+			String[] names = new String[coreXmls.length];
+			long[] lastModified = new long[coreXmls.length];
+			long[] lengths = new long[coreXmls.length];
+			for (int i = 0; i < coreXmls.length; i++) {
+				names[i] = coreXmls[i].getName();
+				lastModified[i] = coreXmls[i].lastModified();
+				lengths[i] = coreXmls[i].length();
+			}
+			return new Signature(names, lastModified, lengths);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Signature)) {
+				return false;
+			}
+			Signature other = (Signature) obj;
+			return Arrays.equals(names, other.names)
+					&& Arrays.equals(lastModified, other.lastModified)
+					&& Arrays.equals(lengths, other.lengths);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(names) * 31
+					+ Arrays.hashCode(lastModified);
+		}
+	}
+
+	/**
+	 * A core library loaded in memory, together with the signature of the
+	 * core XMLs it was built from.
+	 */
+	private static final class Entry {
+
+		private final Signature signature;
+
+		private final CoreLibrary coreLibrary;
+
+		Entry(Signature signature, CoreLibrary coreLibrary) {
+			this.signature = signature;
+			this.coreLibrary = coreLibrary;
+		}
+	}
+
+	private CoreLibraryCache() {
+		// only static methods
+	}
+
+	/**
+	 * @param coresDir
+	 *            the directory with the core XMLs
+	 * @return the binary core library file for the given directory
+	 */
+	public static File getCompiledFile(File coresDir) {
+		return new File(coresDir.getAbsoluteFile().getParentFile(),
+				coresDir.getName() + EXTENSION);
+	}
+
+	/**
+	 * @param coresDir
+	 *            the directory with the core XMLs
+	 * @return the core XMLs, in the order in which the core library keeps them
+	 */
+	public static File[] listCoreXmls(File coresDir) {
+		File[] coreXmls = coresDir.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File file, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+		if (coreXmls == null) {
+			coreXmls = new File[0];
+		}
+		return coreXmls;
+	}
+
+	/**
+	 * Loads the core library from the given directory. The core library is
+	 * taken, in this order, from memory, from the binary core library file or
+	 * from the core XMLs (in which case the binary file is (re)built).
+	 *
+	 * @param coresDir
+	 *            the directory with the core XMLs
+	 * @return the core library
+	 *
+	 * @throws XMLStreamException
+	 *             if the core library had to be built and a core XML could not
+	 *             be read
+	 */
+	public static CoreLibrary load(File coresDir) throws XMLStreamException {
+		File key = coresDir.getAbsoluteFile();
+		File[] coreXmls = listCoreXmls(coresDir);
+		Signature signature = Signature.of(coreXmls);
+
+		Entry entry = loaded.get(key);
+		if (entry != null && entry.signature.equals(signature)) {
+			return entry.coreLibrary;
+		}
+
+		File compiledFile = getCompiledFile(coresDir);
+		CoreLibrary coreLibrary = null;
+		if (compiledFile.isFile()) {
+			try {
+				coreLibrary = read(compiledFile, coreXmls, signature);
+			} catch (IOException e) {
+				logger.warn("Could not read the compiled core library "
+						+ compiledFile, e);
+			} catch (RuntimeException e) {
+				// a truncated or corrupted file
+				logger.warn("Could not read the compiled core library "
+						+ compiledFile, e);
+			}
+		}
+		if (coreLibrary == null) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Compiling the core library " + coresDir);
+			}
+			coreLibrary = CoreLibrary.load(coreXmls);
+			try {
+				write(coreLibrary, signature, compiledFile);
+			} catch (IOException e) {
+				logger.warn("Could not write the compiled core library "
+						+ compiledFile, e);
+			}
+		}
+		loaded.put(key, new Entry(signature, coreLibrary));
+		return coreLibrary;
+	}
+
+	/**
+	 * Reads a binary core library.
+	 *
+	 * @return the core library, or <tt>null</tt> if the binary file is out of
+	 *         date
+	 */
+	private static CoreLibrary read(File compiledFile, File[] coreXmls,
+			Signature signature) throws IOException {
+		CoreLibrary coreLibrary = null;
+		RandomAccessFile file = new RandomAccessFile(compiledFile, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				logger.info("The compiled core library " + compiledFile
+						+ " has an unknown format");
+			} else {
+				int n = buffer.getInt();
+				String[] names = new String[n];
+				long[] lastModified = new long[n];
+				long[] lengths = new long[n];
+				for (int i = 0; i < n; i++) {
+					names[i] = getString(buffer);
+					lastModified[i] = buffer.getLong();
+					lengths[i] = buffer.getLong();
+				}
+				if (!signature.equals(new Signature(names, lastModified,
+						lengths))) {
+					logger.info("The compiled core library " + compiledFile
+							+ " is out of date");
+				} else {
+					String[] taskTypes = new String[buffer.getInt()];
+					for (int i = 0; i < taskTypes.length; i++) {
+						taskTypes[i] = getString(buffer);
+					}
+					int coreCount = buffer.getInt();
+					String[] coreIds = new String[coreCount];
+					String[] coreNames = new String[coreCount];
+					for (int i = 0; i < coreCount; i++) {
+						coreIds[i] = getString(buffer);
+						coreNames[i] = getString(buffer);
+					}
+					double[] execTimes = new double[coreCount
+							* taskTypes.length];
+					double[] powers = new double[execTimes.length];
+					buffer.asDoubleBuffer().get(execTimes);
+					buffer.position(buffer.position() + execTimes.length * 8);
+					buffer.asDoubleBuffer().get(powers);
+					coreLibrary = new CoreLibrary(coreXmls.clone(), coreIds,
+							coreNames, taskTypes, execTimes, powers);
+					if (logger.isDebugEnabled()) {
+						logger.debug("Loaded the compiled core library "
+								+ compiledFile);
+					}
+				}
+			}
+		} finally {
+			file.close();
+		}
+		return coreLibrary;
+	}
+
+	/**
+	 * Writes a binary core library. The file is first written under a
+	 * temporary name and then renamed, so that concurrent readers never see
+	 * a partially written file.
+	 */
+	private static void write(CoreLibrary coreLibrary, Signature signature,
+			File compiledFile) throws IOException {
+		File tempFile = File.createTempFile(compiledFile.getName(), ".tmp",
+				compiledFile.getParentFile());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tempFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(signature.names.length);
+			for (int i = 0; i < signature.names.length; i++) {
+				putString(out, signature.names[i]);
+				out.writeLong(signature.lastModified[i]);
+				out.writeLong(signature.lengths[i]);
+			}
+			int taskTypeCount = coreLibrary.getTaskTypeCount();
+			out.writeInt(taskTypeCount);
+			for (int j = 0; j < taskTypeCount; j++) {
+				putString(out, coreLibrary.getTaskType(j));
+			}
+			int coreCount = coreLibrary.getCoreCount();
+			out.writeInt(coreCount);
+			for (int i = 0; i < coreCount; i++) {
+				putString(out, coreLibrary.getCoreId(i));
+				putString(out, coreLibrary.getCoreName(i));
+			}
+			for (int i = 0; i < coreCount; i++) {
+				for (int j = 0; j < taskTypeCount; j++) {
+					out.writeDouble(coreLibrary.getExecTime(i, j));
+				}
+			}
+			for (int i = 0; i < coreCount; i++) {
+				for (int j = 0; j < taskTypeCount; j++) {
+					out.writeDouble(coreLibrary.getPower(i, j));
+				}
+			}
+		} finally {
+			out.close();
+		}
+		// File.renameTo(...) doesn't replace an existing file on all platforms
+		if (!tempFile.renameTo(compiledFile)) {
+			compiledFile.delete();
+			if (!tempFile.renameTo(compiledFile)) {
+				tempFile.delete();
+				throw new IOException("Could not rename " + tempFile + " to "
+						+ compiledFile);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Wrote the compiled core library " + compiledFile);
+		}
+	}
+
+	private static void putString(DataOutputStream out, String s)
+			throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = s.getBytes(UTF8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		String s = null;
+		int length = buffer.getInt();
+		if (length >= 0) {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			s = new String(bytes, UTF8);
+		}
+		return s;
+	}
+
+}
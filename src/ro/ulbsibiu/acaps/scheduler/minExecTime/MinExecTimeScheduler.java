@@ -3,27 +3,27 @@ package ro.ulbsibiu.acaps.scheduler.minExecTime;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.log4j.Logger;
 
 import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ObjectFactory;
-import ro.ulbsibiu.acaps.ctg.xml.core.CoreType;
-import ro.ulbsibiu.acaps.ctg.xml.task.TaskType;
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
 import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.MetricsCollector;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibrary;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibraryCache;
+import ro.ulbsibiu.acaps.scheduler.workspace.BenchmarkWorkspace;
+import ro.ulbsibiu.acaps.scheduler.workspace.TaskRecordMemo;
+import ro.ulbsibiu.acaps.scheduler.xml.TaskRecord;
 
 /**
  * This @link{Scheduler} assigns to each task the core that executes it in the
@@ -60,19 +60,22 @@ public class MinExecTimeScheduler implements Scheduler {
 	private static final String SCHEDULER_ID = "2";
 
 	/** the ID of the Application Characterization Graph */
-	private String apcgId;
+	private final String apcgId;
 
 	/** the ID of the Communication Task Graph */
-	private String ctgId;
+	private final String ctgId;
 
 	/** the XML files containing the tasks */
-	private File[] taskXmls;
+	private final File[] taskXmls;
 
-	/** the XML files containing the cores */
-	private File[] coreXmls;
+	/** the directory with the XML files containing the cores */
+	private final File coresDir;
 
-	/** each task is mapped to a core */
-	private Map<File, File> tasksToCores;
+	/**
+	 * the workspace from which the tasks and the cores are taken (
+	 * <tt>null</tt> if they are read from their XMLs)
+	 */
+	private final BenchmarkWorkspace workspace;
 
 	/**
 	 * Constructor
@@ -115,15 +118,31 @@ public class MinExecTimeScheduler implements Scheduler {
 			}
 		});
 
-		coreXmls = coresFile.listFiles(new FilenameFilter() {
+		coresDir = coresFile;
 
-			@Override
-			public boolean accept(File file, String name) {
-				return name.endsWith(".xml");
-			}
-		});
+		workspace = null;
+	}
 
-		tasksToCores = null;
+	/**
+	 * Constructor (the tasks and the cores are taken from a workspace, so
+	 * they are not read again)
+	 * 
+	 * @param workspace
+	 *            the workspace of the benchmark
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (it must be in the
+	 *            workspace)
+	 */
+	public MinExecTimeScheduler(BenchmarkWorkspace workspace, String ctgId) {
+		logger.assertLog(workspace != null, "A workspace must be specified");
+		logger.assertLog(workspace.getCtg(ctgId) != null,
+				"The workspace has no CTG " + ctgId);
+
+		this.apcgId = ctgId + "_" + getSchedulerId();
+		this.ctgId = ctgId;
+		this.taskXmls = workspace.getCtg(ctgId).getTaskXmls();
+		this.coresDir = workspace.getCoresDir();
+		this.workspace = workspace;
 	}
 
 	@Override
@@ -131,42 +150,26 @@ public class MinExecTimeScheduler implements Scheduler {
 		return SCHEDULER_ID;
 	}
 
-	private int findCoreIndex(String taskType) throws JAXBException {
-		logger.assertLog(coreXmls.length > 0, "No core XMLs were specified!");
+	private int findCoreIndex(CoreLibrary coreLibrary, String taskType) {
+		logger.assertLog(coreLibrary.getCoreCount() > 0,
+				"No core XMLs were specified!");
 		int coreIndex = -1;
-		double min = Integer.MAX_VALUE;
-		CoreType bestCore = null;
 		logger.debug("Searching for the core that executes task type "
 				+ taskType + " in the fastest time");
-		for (int i = 0; i < coreXmls.length; i++) {
-			CoreType core = getCore(coreXmls[i]);
-			List<ro.ulbsibiu.acaps.ctg.xml.core.TaskType> tasks = core
-					.getTask();
-			ro.ulbsibiu.acaps.ctg.xml.core.TaskType task = null;
-			for (int j = 0; j < tasks.size(); j++) {
-				task = tasks.get(j);
-				if (taskType.equals(task.getType())) {
-					break;
-				}
-			}
-			logger.assertLog(task != null, "The task type " + taskType
-					+ " was not found in the specification of core with ID "
-					+ core.getID());
-			if (task.getExecTime() > 0 && task.getExecTime() < min) {
-				min = task.getExecTime();
-				bestCore = core;
-				coreIndex = i;
-			}
+		int taskTypeIndex = coreLibrary.getTaskTypeIndex(taskType);
+		logger.assertLog(taskTypeIndex != -1, "The task type " + taskType
+				+ " was not found in the specification of any core");
+		if (taskTypeIndex != -1) {
+			coreIndex = coreLibrary.getFastestCore(taskTypeIndex);
 		}
-		if (bestCore != null) {
-			logger.debug("Found core " + coreXmls[coreIndex]
+		if (coreIndex != -1) {
+			logger.debug("Found core " + coreLibrary.getCoreXml(coreIndex)
 					+ " for task type " + taskType + " at index " + coreIndex);
-		} else {
-			bestCore = getCore(coreXmls[0]);
+		} else if (coreLibrary.getCoreCount() > 0) {
 			logger.debug("No core with non zero execution time was found for task type "
 					+ taskType
 					+ ". Assigned core with ID "
-					+ bestCore.getID()
+					+ coreLibrary.getCoreId(0)
 					+ " (this is the first available core)");
 		}
 		return coreIndex;
@@ -182,20 +185,40 @@ public class MinExecTimeScheduler implements Scheduler {
 	 */
 	@Override
 	public String schedule() {
+		ScheduleResult scheduleResult = computeSchedule();
+		return scheduleResult == null ? null : scheduleResult.toXml();
+	}
+
+	@Override
+	public ScheduleResult computeSchedule() {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Minimum execution time scheduling started");
 		}
 
-		tasksToCores = new HashMap<File, File>(taskXmls.length);
+		CoreLibrary coreLibrary = null;
+		try {
+			// the fastest core of each task type is computed only once
+			coreLibrary = loadCoreLibrary();
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
+			// without the cores, the CTG cannot be scheduled at all
+			return null;
+		}
+
+		// each task XML is parsed only once, although the task is needed
+		// again to build the APCG
+		TaskRecordMemo taskMemo = newTaskMemo();
+		Map<File, Integer> tasksToCores = new HashMap<File, Integer>(
+				taskXmls.length);
 		for (int i = 0; i < taskXmls.length; i++) {
 			int coreIndex = -1;
 			String taskId = null;
 			try {
-				TaskType task = getTask(taskXmls[i]);
-				taskId = getTask(taskXmls[i]).getID();
-				coreIndex = findCoreIndex(task.getType());
-			} catch (JAXBException e) {
-				logger.error("JAXB encountered an error", e);
+				TaskRecord task = taskMemo.get(taskXmls[i]);
+				taskId = task.getID();
+				coreIndex = findCoreIndex(coreLibrary, task.getType());
+			} catch (XMLStreamException e) {
+				logger.error("StAX encountered an error", e);
 			}
 			if (coreIndex == -1) {
 				logger.assertLog(
@@ -206,76 +229,72 @@ public class MinExecTimeScheduler implements Scheduler {
 								+ taskId + "!");
 			} else {
 				if (logger.isInfoEnabled()) {
-					try {
-						CoreType core = getCore(coreXmls[coreIndex]);
-						logger.info("Task " + i + " is scheduled to core "
-								+ core.getName() + " (ID " + core.getID() + ")");
-					} catch (JAXBException e) {
-						logger.error("JAXB encountered an error", e);
-					}
+					logger.info("Task " + i + " is scheduled to core "
+							+ coreLibrary.getCoreName(coreIndex) + " (ID "
+							+ coreLibrary.getCoreId(coreIndex) + ")");
 				}
 				logger.debug("Assigning task " + taskXmls[i] + " to core "
-						+ coreXmls[coreIndex]);
-				tasksToCores.put(taskXmls[i], coreXmls[coreIndex]);
+						+ coreLibrary.getCoreXml(coreIndex));
+				tasksToCores.put(taskXmls[i], coreIndex);
 			}
 		}
-		String apcgXml = null;
+		ScheduleResult scheduleResult = null;
 		try {
-			apcgXml = generateApcg();
-		} catch (JAXBException e) {
-			logger.error("JAXB encountered an error", e);
+			scheduleResult = buildScheduleResult(coreLibrary, tasksToCores,
+					taskMemo);
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
 		}
 
 		if (logger.isDebugEnabled()) {
 			logger.debug("Minimum execution time scheduling finished");
 		}
 
-		return apcgXml;
+		return scheduleResult;
 	}
 
-	private CoreType getCore(File file) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext
-				.newInstance("ro.ulbsibiu.acaps.ctg.xml.core");
-		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-		@SuppressWarnings("unchecked")
-		JAXBElement<CoreType> coreXml = (JAXBElement<CoreType>) unmarshaller
-				.unmarshal(file);
-		return coreXml.getValue();
+	/**
+	 * @return a memo for the tasks of one run
+	 */
+	private TaskRecordMemo newTaskMemo() {
+		return new TaskRecordMemo(workspace == null ? null : workspace
+				.getCtg(ctgId));
 	}
 
-	private TaskType getTask(File file) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext
-				.newInstance("ro.ulbsibiu.acaps.ctg.xml.task");
-		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-		@SuppressWarnings("unchecked")
-		JAXBElement<TaskType> taskXml = (JAXBElement<TaskType>) unmarshaller
-				.unmarshal(file);
-		return taskXml.getValue();
+	private CoreLibrary loadCoreLibrary() throws XMLStreamException {
+		if (workspace != null) {
+			return workspace.getCoreLibrary();
+		}
+		return CoreLibraryCache.load(coresDir);
 	}
 
-	private ro.ulbsibiu.acaps.ctg.xml.core.TaskType getCoreTask(
-			List<ro.ulbsibiu.acaps.ctg.xml.core.TaskType> tasks, String type) {
-		ro.ulbsibiu.acaps.ctg.xml.core.TaskType theTaskType = null;
-		for (ro.ulbsibiu.acaps.ctg.xml.core.TaskType taskType : tasks) {
-			if (type.equals(taskType.getType())) {
-				theTaskType = taskType;
-				break;
-			}
+	/**
+	 * @return the index of the task type, or -1 if the core doesn't specify it
+	 */
+	private int getCoreTask(CoreLibrary coreLibrary, int coreIndex,
+			String type) {
+		int taskTypeIndex = coreLibrary.getTaskTypeIndex(type);
+		if (taskTypeIndex == -1
+				|| !coreLibrary.hasTaskType(coreIndex, taskTypeIndex)) {
+			logger.error("The task type " + type
+					+ " was not found in the specification of core with ID "
+					+ coreLibrary.getCoreId(coreIndex));
+			taskTypeIndex = -1;
 		}
-		return theTaskType;
+		return taskTypeIndex;
 	}
 
-	private String generateApcg() throws JAXBException {
+	private ScheduleResult buildScheduleResult(CoreLibrary coreLibrary,
+			Map<File, Integer> tasksToCores, TaskRecordMemo taskMemo)
+			throws XMLStreamException {
 		logger.assertLog(tasksToCores != null, "No task was scheduled!");
 
 		if (logger.isDebugEnabled()) {
-			logger.debug("Generating an XML String with the scheduling");
+			logger.debug("Building the scheduling result");
 		}
 
-		ObjectFactory apcgFactory = new ObjectFactory();
-		ApcgType apcgType = new ApcgType();
-		apcgType.setId(apcgId);
-		apcgType.setCtg(ctgId);
+		ScheduleResult.Builder builder = new ScheduleResult.Builder(apcgId,
+				ctgId);
 
 		// the following commented code assigns all tasks scheduled to the same core type to a single core of that type  
 		
@@ -313,43 +332,53 @@ public class MinExecTimeScheduler implements Scheduler {
 		// the following code assigns each task to a different core 
 		Set<File> tasks = tasksToCores.keySet();
 		for (File task : tasks) {
-			File core = tasksToCores.get(task);
-			CoreType coreType = getCore(core);
-			ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType apcgCoreType = new ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType();
-			apcgCoreType.setId(coreType.getID());
-			String taskId = getTask(task).getID();
-			apcgCoreType.setUid(taskId);
-			ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType apcgTaskType = new ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType();
-			apcgTaskType.setId(taskId);
-			apcgTaskType.setExecTime(getCoreTask(getCore(core).getTask(),
-					getTask(task).getType()).getExecTime());
-			apcgTaskType.setPower(getCoreTask(getCore(core).getTask(),
-					getTask(task).getType()).getPower());
-			apcgCoreType.getTask().add(apcgTaskType);
-			apcgType.getCore().add(apcgCoreType);
+			int core = tasksToCores.get(task);
+			TaskRecord taskRecord = taskMemo.get(task);
+			String taskId = taskRecord.getID();
+			int coreTask = getCoreTask(coreLibrary, core, taskRecord.getType());
+			if (coreTask == -1) {
+				// the execution time and the power would be the ones of
+				// another task type (or NaN)
+				return null;
+			}
+			builder.startCore(taskId, coreLibrary.getCoreId(core));
+			builder.addTask(taskId, coreLibrary.getExecTime(core, coreTask),
+					coreLibrary.getPower(core, coreTask));
 		}
 
-		JAXBContext jaxbContext = JAXBContext.newInstance(ApcgType.class);
-		Marshaller marshaller = jaxbContext.createMarshaller();
-		marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
-		StringWriter stringWriter = new StringWriter();
-		JAXBElement<ApcgType> apcg = apcgFactory.createApcg(apcgType);
-		marshaller.marshal(apcg, stringWriter);
-
-		return stringWriter.toString();
+		return builder.build();
 	}
 
 	public static void main(String[] args) throws FileNotFoundException {
 		System.err
-				.println("usage:   java MinExecTimeScheduler.class [E3S benchmarks]");
+				.println("usage:   java MinExecTimeScheduler.class [-report {CSV or JSON file}] [E3S benchmarks]");
 		System.err
 				.println("note:	 each CTG is only scheduled individually (e.g.: folders named like ctg-0+1 are ignored)");
 		System.err
 				.println("example 1 (specify the tgff file): java MinExecTimeScheduler.class ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff ../CTG-XML/xml/e3s/telecom-mocsyn.tgff");
 		System.err
 				.println("example 2 (schedule the entire E3S benchmark suite): java MinExecTimeScheduler.class");
+		System.err
+				.println("example 3 (report the time of each phase, for each CTG): java MinExecTimeScheduler.class -report phases.csv");
+		File report = null;
+		int first = 0;
+		while (args != null && first + 1 < args.length
+				&& args[first].startsWith("-")) {
+			if ("-report".equals(args[first])) {
+				report = new File(args[first + 1]);
+			} else {
+				logger.error("Unknown option " + args[first]);
+				return;
+			}
+			first += 2;
+		}
+		MetricsCollector metrics = null;
+		if (report != null) {
+			metrics = new MetricsCollector();
+			metrics.register();
+		}
 		File[] tgffFiles = null;
-		if (args == null || args.length == 0) {
+		if (args == null || args.length == first) {
 			File e3sDir = new File(".." + File.separator + "CTG-XML"
 					+ File.separator + "xml" + File.separator + "e3s");
 			logger.assertLog(e3sDir.isDirectory(),
@@ -362,9 +391,9 @@ public class MinExecTimeScheduler implements Scheduler {
 				}
 			});
 		} else {
-			tgffFiles = new File[args.length];
-			for (int i = 0; i < args.length; i++) {
-				tgffFiles[i] = new File(args[i]);
+			tgffFiles = new File[args.length - first];
+			for (int i = first; i < args.length; i++) {
+				tgffFiles[i - first] = new File(args[i]);
 			}
 		}
 		for (int i = 0; i < tgffFiles.length; i++) {
@@ -385,18 +414,43 @@ public class MinExecTimeScheduler implements Scheduler {
 							+ "ctg-" + ctgId + File.separator + "tasks", path
 							+ "cores");
 					String apcgId = ctgId + "_" + scheduler.getSchedulerId();
-					String apcgXml = scheduler.schedule();
-					String xmlFileName = path + "ctg-" + ctgId + File.separator
-							+ "apcg-" + apcgId + ".xml";
-					PrintWriter pw = new PrintWriter(xmlFileName);
-					logger.info("Saving the scheduling XML file " + xmlFileName);
-					pw.write(apcgXml);
-					pw.close();
+					Instrumentation.beginCtg(e3sBenchmark.getName(), ctgId,
+							scheduler.getSchedulerId());
+					try {
+						ScheduleResult scheduleResult;
+						Instrumentation.enter(Phase.SEARCH);
+						try {
+							scheduleResult = scheduler.computeSchedule();
+						} finally {
+							Instrumentation.exit();
+						}
+						String xmlFileName = path + "ctg-" + ctgId
+								+ File.separator + "apcg-" + apcgId + ".xml";
+						if (scheduleResult == null) {
+							logger.error("CTG " + ctgId
+									+ " could not be scheduled; " + xmlFileName
+									+ " is not written");
+							continue;
+						}
+						logger.info("Saving the scheduling XML file "
+								+ xmlFileName);
+						try {
+							scheduleResult.write(new File(xmlFileName));
+						} catch (IOException e) {
+							logger.error("Could not write " + xmlFileName, e);
+						}
+					} finally {
+						Instrumentation.endCtg();
+					}
 				}
 			}
 			logger.info("Finished with e3s" + File.separator
 					+ tgffFiles[i].getName());
 		}
+		if (metrics != null) {
+			metrics.unregister();
+			metrics.writeReport(report);
+		}
 		logger.info("Done.");
 	}
 
@@ -0,0 +1,164 @@
+package ro.ulbsibiu.acaps.scheduler.random;
+
+/**
+ * The summary statistics of many random schedules of a CTG (see
+ * {@link RandomScheduler#sample(int, int, long)}): the minimum, the mean and
+ * the maximum total execution time and total power. A schedule which gives a
+ * task to a core that doesn't specify the task's type is infeasible and it is
+ * only counted. A summary is immutable.
+ *
+ * @author cradu
+ *
+ */
+public class MonteCarloSummary {
+
+	/** the ID of the Communication Task Graph */
+	private final String ctgId;
+
+	/** how many schedules were generated */
+	private final int scheduleCount;
+
+	/** how many schedules were feasible */
+	private final int feasibleCount;
+
+	private final double minExecTime;
+
+	private final double meanExecTime;
+
+	private final double maxExecTime;
+
+	private final double minPower;
+
+	private final double meanPower;
+
+	private final double maxPower;
+
+	/** how long the sampling took, in nanoseconds */
+	private final long elapsedNanos;
+
+	/**
+	 * Constructor
+	 *
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph
+	 * @param scheduleCount
+	 *            how many schedules were generated
+	 * @param feasibleCount
+	 *            how many schedules were feasible
+	 * @param minExecTime
+	 *            the minimum total execution time of a feasible schedule
+	 * @param meanExecTime
+	 *            the mean total execution time of the feasible schedules
+	 * @param maxExecTime
+	 *            the maximum total execution time of a feasible schedule
+	 * @param minPower
+	 *            the minimum total power of a feasible schedule
+	 * @param meanPower
+	 *            the mean total power of the feasible schedules
+	 * @param maxPower
+	 *            the maximum total power of a feasible schedule
+	 * @param elapsedNanos
+	 *            how long the sampling took, in nanoseconds
+	 */
+	public MonteCarloSummary(String ctgId, int scheduleCount,
+			int feasibleCount, double minExecTime, double meanExecTime,
+			double maxExecTime, double minPower, double meanPower,
+			double maxPower, long elapsedNanos) {
+		this.ctgId = ctgId;
+		this.scheduleCount = scheduleCount;
+		this.feasibleCount = feasibleCount;
+		this.minExecTime = minExecTime;
+		this.meanExecTime = meanExecTime;
+		this.maxExecTime = maxExecTime;
+		this.minPower = minPower;
+		this.meanPower = meanPower;
+		this.maxPower = maxPower;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return the ID of the Communication Task Graph
+	 */
+	public String getCtgId() {
+		return ctgId;
+	}
+
+	/**
+	 * @return how many schedules were generated
+	 */
+	public int getScheduleCount() {
+		return scheduleCount;
+	}
+
+	/**
+	 * @return how many schedules were feasible
+	 */
+	public int getFeasibleCount() {
+		return feasibleCount;
+	}
+
+	/**
+	 * @return the minimum total execution time of a feasible schedule (
+	 *         {@link Double#NaN} if no schedule is feasible)
+	 */
+	public double getMinExecTime() {
+		return minExecTime;
+	}
+
+	/**
+	 * @return the mean total execution time of the feasible schedules (
+	 *         {@link Double#NaN} if no schedule is feasible)
+	 */
+	public double getMeanExecTime() {
+		return meanExecTime;
+	}
+
+	/**
+	 * @return the maximum total execution time of a feasible schedule (
+	 *         {@link Double#NaN} if no schedule is feasible)
+	 */
+	public double getMaxExecTime() {
+		return maxExecTime;
+	}
+
+	/**
+	 * @return the minimum total power of a feasible schedule (
+	 *         {@link Double#NaN} if no schedule is feasible)
+	 */
+	public double getMinPower() {
+		return minPower;
+	}
+
+	/**
+	 * @return the mean total power of the feasible schedules (
+	 *         {@link Double#NaN} if no schedule is feasible)
+	 */
+	public double getMeanPower() {
+		return meanPower;
+	}
+
+	/**
+	 * @return the maximum total power of a feasible schedule (
+	 *         {@link Double#NaN} if no schedule is feasible)
+	 */
+	public double getMaxPower() {
+		return maxPower;
+	}
+
+	/**
+	 * @return how long the sampling took, in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "CTG " + ctgId + ": " + scheduleCount + " random schedules ("
+				+ feasibleCount + " feasible) in " + (elapsedNanos / 1000000)
+				+ " ms; execution time min " + minExecTime + " mean "
+				+ meanExecTime + " max " + maxExecTime + "; power min "
+				+ minPower + " mean " + meanPower + " max " + maxPower;
+	}
+
+}
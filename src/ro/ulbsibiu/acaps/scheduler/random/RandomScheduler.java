@@ -5,32 +5,43 @@ import org.apache.log4j.Logger;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
 
 import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
-import ro.ulbsibiu.acaps.ctg.xml.apcg.ObjectFactory;
-import ro.ulbsibiu.acaps.ctg.xml.core.CoreType;
-import ro.ulbsibiu.acaps.ctg.xml.task.TaskType;
+import ro.ulbsibiu.acaps.scheduler.ScheduleResult;
 import ro.ulbsibiu.acaps.scheduler.Scheduler;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.MetricsCollector;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibrary;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibraryCache;
+import ro.ulbsibiu.acaps.scheduler.workspace.BenchmarkWorkspace;
+import ro.ulbsibiu.acaps.scheduler.workspace.TaskRecordMemo;
+import ro.ulbsibiu.acaps.scheduler.xml.TaskRecord;
 
 /**
  * This @link{Scheduler} assigns tasks to available cores in a random fashion.
  * Each task gets assigned to a different core.
+ * <p>
+ * Besides single schedules, many random schedules can be sampled in parallel
+ * (a Monte Carlo exploration of the schedule space), with only their summary
+ * statistics being kept (see {@link #sample(int, int, long)}).
+ * </p>
  * 
  * @author cipi
  * 
@@ -46,19 +57,22 @@ public class RandomScheduler implements Scheduler {
 	private static final String SCHEDULER_ID = "0";
 
 	/** the ID of the Application Characterization Graph */
-	private String apcgId;
+	private final String apcgId;
 	
 	/** the ID of the Communication Task Graph */
-	private String ctgId;
+	private final String ctgId;
 
 	/** the XML files containing the tasks */
-	private File[] taskXmls;
+	private final File[] taskXmls;
 
-	/** the XML files containing the cores */
-	private File[] coreXmls;
+	/** the directory with the XML files containing the cores */
+	private final File coresDir;
 
-	/** each task is mapped to a core */
-	private Map<File, File> tasksToCores;
+	/**
+	 * the workspace from which the tasks and the cores are taken (
+	 * <tt>null</tt> if they are read from their XMLs)
+	 */
+	private final BenchmarkWorkspace workspace;
 
 	/**
 	 * Constructor
@@ -101,15 +115,31 @@ public class RandomScheduler implements Scheduler {
 			}
 		});
 
-		coreXmls = coresFile.listFiles(new FilenameFilter() {
+		coresDir = coresFile;
 
-			@Override
-			public boolean accept(File file, String name) {
-				return name.endsWith(".xml");
-			}
-		});
+		workspace = null;
+	}
 
-		tasksToCores = null;
+	/**
+	 * Constructor (the tasks and the cores are taken from a workspace, so
+	 * they are not read again)
+	 * 
+	 * @param workspace
+	 *            the workspace of the benchmark
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph (it must be in the
+	 *            workspace)
+	 */
+	public RandomScheduler(BenchmarkWorkspace workspace, String ctgId) {
+		logger.assertLog(workspace != null, "A workspace must be specified");
+		logger.assertLog(workspace.getCtg(ctgId) != null,
+				"The workspace has no CTG " + ctgId);
+
+		this.apcgId = ctgId + "_" + getSchedulerId();
+		this.ctgId = ctgId;
+		this.taskXmls = workspace.getCtg(ctgId).getTaskXmls();
+		this.coresDir = workspace.getCoresDir();
+		this.workspace = workspace;
 	}
 
 	@Override
@@ -126,80 +156,306 @@ public class RandomScheduler implements Scheduler {
 	 */
 	@Override
 	public String schedule() {
+		ScheduleResult scheduleResult = computeSchedule();
+		return scheduleResult == null ? null : scheduleResult.toXml();
+	}
+
+	@Override
+	public ScheduleResult computeSchedule() {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Random scheduling started");
 		}
 		
-		tasksToCores = new HashMap<File, File>(taskXmls.length);
-		Random random = new Random();
-		// using the following temporary list we ensure that each task gets
-		// assigned to a different core
-		List<File> tempCoreXmls = new ArrayList<File>(Arrays.asList(coreXmls)); 
-		for (int i = 0; i < taskXmls.length; i++) {
-			int t = random.nextInt(tempCoreXmls.size());
-			if (logger.isInfoEnabled()) {
-				logger.info("Task " + i + " is scheduled to core " + t);
-			}
-			tasksToCores.put(taskXmls[i], tempCoreXmls.get(t));
-			tempCoreXmls.remove(t);
-		}
-		String apcgXml = null;
+		ScheduleResult scheduleResult = null;
 		try {
-			apcgXml = generateApcg();
-		} catch (JAXBException e) {
-			logger.error("JAXB encountered an error", e);
+			CoreLibrary coreLibrary = loadCoreLibrary();
+			Map<File, Integer> tasksToCores = new LinkedHashMap<File, Integer>(
+					taskXmls.length);
+			Random random = new Random();
+			// a partial Fisher-Yates shuffle ensures that each task gets
+			// assigned to a different core
+			int[] cores = new int[coreLibrary.getCoreCount()];
+			for (int i = 0; i < cores.length; i++) {
+				cores[i] = i;
+			}
+			for (int i = 0; i < taskXmls.length; i++) {
+				int t = i + random.nextInt(cores.length - i);
+				int core = cores[t];
+				cores[t] = cores[i];
+				cores[i] = core;
+				if (logger.isInfoEnabled()) {
+					logger.info("Task " + i + " is scheduled to core " + core);
+				}
+				tasksToCores.put(taskXmls[i], core);
+			}
+			scheduleResult = buildScheduleResult(coreLibrary, tasksToCores,
+					newTaskMemo());
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
 		}
 		
 		if (logger.isDebugEnabled()) {
 			logger.debug("Random scheduling finished");
 		}
 		
-		return apcgXml;
+		return scheduleResult;
 	}
 
-	private CoreType getCore(File file) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext.newInstance("ro.ulbsibiu.acaps.ctg.xml.core");
-		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-		@SuppressWarnings("unchecked")
-		JAXBElement<CoreType> coreXml = (JAXBElement<CoreType>) unmarshaller.unmarshal(file);
-		return coreXml.getValue();
+	/**
+	 * The statistics of the schedules sampled by a thread.
+	 */
+	private static class SampleStatistics {
+
+		/** how many schedules were feasible */
+		private int feasibleCount;
+
+		private double minExecTime = Double.POSITIVE_INFINITY;
+
+		private double execTimeSum;
+
+		private double maxExecTime = Double.NEGATIVE_INFINITY;
+
+		private double minPower = Double.POSITIVE_INFINITY;
+
+		private double powerSum;
+
+		private double maxPower = Double.NEGATIVE_INFINITY;
+
+		private void add(double execTime, double power) {
+			feasibleCount++;
+			minExecTime = Math.min(minExecTime, execTime);
+			execTimeSum += execTime;
+			maxExecTime = Math.max(maxExecTime, execTime);
+			minPower = Math.min(minPower, power);
+			powerSum += power;
+			maxPower = Math.max(maxPower, power);
+		}
+
+		private void add(SampleStatistics statistics) {
+			feasibleCount += statistics.feasibleCount;
+			minExecTime = Math.min(minExecTime, statistics.minExecTime);
+			execTimeSum += statistics.execTimeSum;
+			maxExecTime = Math.max(maxExecTime, statistics.maxExecTime);
+			minPower = Math.min(minPower, statistics.minPower);
+			powerSum += statistics.powerSum;
+			maxPower = Math.max(maxPower, statistics.maxPower);
+		}
 	}
-	
-	private TaskType getTask(File file) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext.newInstance("ro.ulbsibiu.acaps.ctg.xml.task");
-		Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-		@SuppressWarnings("unchecked")
-		JAXBElement<TaskType> taskXml = (JAXBElement<TaskType>) unmarshaller.unmarshal(file);
-		return taskXml.getValue();
+
+	/**
+	 * Samples random schedules, without building them: the schedules of a
+	 * thread are drawn (with a partial Fisher-Yates shuffle) and evaluated in
+	 * place, in the same core index array.
+	 *
+	 * @param execTimes
+	 *            the execution times, a row for each task type (and a last row
+	 *            for the unknown task types) and a column for each core
+	 * @param powers
+	 *            the powers, in the same order as the execution times
+	 * @param coreCount
+	 *            the number of cores
+	 * @param taskRows
+	 *            the offset of the row of each task
+	 * @param scheduleCount
+	 *            how many schedules are sampled
+	 * @param random
+	 *            the random numbers of the thread
+	 * @return the statistics of the sampled schedules
+	 */
+	private static SampleStatistics sample(double[] execTimes,
+			double[] powers, int coreCount, int[] taskRows, int scheduleCount,
+			SplitMix64 random) {
+		SampleStatistics statistics = new SampleStatistics();
+		int[] cores = new int[coreCount];
+		for (int i = 0; i < coreCount; i++) {
+			cores[i] = i;
+		}
+		for (int s = 0; s < scheduleCount; s++) {
+			// shuffling a permutation again gives a uniform permutation, so the
+			// cores don't need to be reset between the schedules
+			double execTime = 0;
+			double power = 0;
+			for (int i = 0; i < taskRows.length; i++) {
+				int t = i + random.nextInt(coreCount - i);
+				int core = cores[t];
+				cores[t] = cores[i];
+				cores[i] = core;
+				execTime += execTimes[taskRows[i] + core];
+				power += powers[taskRows[i] + core];
+			}
+			// a core which doesn't specify the type of its task has a NaN
+			// execution time and power
+			if (!Double.isNaN(execTime) && !Double.isNaN(power)) {
+				statistics.add(execTime, power);
+			}
+		}
+		return statistics;
 	}
-	
-	private ro.ulbsibiu.acaps.ctg.xml.core.TaskType getCoreTask(List<ro.ulbsibiu.acaps.ctg.xml.core.TaskType> tasks, String type) {
-		ro.ulbsibiu.acaps.ctg.xml.core.TaskType theTaskType = null;
-		for (ro.ulbsibiu.acaps.ctg.xml.core.TaskType taskType : tasks) {
-			if (type.equals(taskType.getType())) {
-				theTaskType = taskType;
-				break;
+
+	/**
+	 * Generates many random schedules of the CTG, in parallel, and summarizes
+	 * their total execution times and powers. The schedules are not built,
+	 * nor written. Each thread gets its own stream of random numbers, derived
+	 * from the seed, so a run can be repeated with the same seed and the same
+	 * number of threads.
+	 *
+	 * @param scheduleCount
+	 *            how many schedules are generated
+	 * @param threadCount
+	 *            on how many threads
+	 * @param seed
+	 *            the seed
+	 * @return the summary of the schedules, or <tt>null</tt> if the sampling
+	 *         failed
+	 */
+	public MonteCarloSummary sample(int scheduleCount, int threadCount,
+			long seed) {
+		logger.assertLog(scheduleCount > 0,
+				"At least one schedule must be generated");
+		logger.assertLog(threadCount > 0, "At least one thread is needed");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Random sampling started");
+		}
+
+		long start = System.nanoTime();
+		MonteCarloSummary summary = null;
+		ExecutorService executor = null;
+		try {
+			CoreLibrary coreLibrary = loadCoreLibrary();
+			final int coreCount = coreLibrary.getCoreCount();
+			int taskTypeCount = coreLibrary.getTaskTypeCount();
+			logger.assertLog(taskXmls.length <= coreCount,
+					"Each task needs a different core. However, there are "
+							+ taskXmls.length + " tasks and only " + coreCount
+							+ " cores!");
+			if (taskXmls.length <= coreCount) {
+				// the last row stands for the unknown task types
+				final double[] execTimes = new double[(taskTypeCount + 1)
+						* coreCount];
+				final double[] powers = new double[execTimes.length];
+				Arrays.fill(execTimes, Double.NaN);
+				Arrays.fill(powers, Double.NaN);
+				for (int t = 0; t < taskTypeCount; t++) {
+					for (int i = 0; i < coreCount; i++) {
+						execTimes[t * coreCount + i] = coreLibrary.getExecTime(
+								i, t);
+						powers[t * coreCount + i] = coreLibrary.getPower(i, t);
+					}
+				}
+				TaskRecordMemo taskMemo = newTaskMemo();
+				final int[] taskRows = new int[taskXmls.length];
+				for (int i = 0; i < taskXmls.length; i++) {
+					int taskTypeIndex = coreLibrary.getTaskTypeIndex(taskMemo.get(
+							taskXmls[i]).getType());
+					taskRows[i] = (taskTypeIndex == -1 ? taskTypeCount
+							: taskTypeIndex)
+							* coreCount;
+				}
+
+				executor = Executors.newFixedThreadPool(threadCount);
+				List<Future<SampleStatistics>> futures = new ArrayList<Future<SampleStatistics>>(
+						threadCount);
+				for (int k = 0; k < threadCount; k++) {
+					final int count = scheduleCount / threadCount
+							+ (k < scheduleCount % threadCount ? 1 : 0);
+					final SplitMix64 random = SplitMix64.stream(seed, k);
+					futures.add(executor.submit(new Callable<SampleStatistics>() {
+
+						@Override
+						public SampleStatistics call() {
+							return sample(execTimes, powers, coreCount,
+									taskRows, count, random);
+						}
+					}));
+				}
+				SampleStatistics statistics = new SampleStatistics();
+				for (Future<SampleStatistics> future : futures) {
+					statistics.add(future.get());
+				}
+
+				int feasibleCount = statistics.feasibleCount;
+				if (feasibleCount == 0) {
+					summary = new MonteCarloSummary(ctgId, scheduleCount, 0,
+							Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+							Double.NaN, Double.NaN, System.nanoTime() - start);
+				} else {
+					summary = new MonteCarloSummary(ctgId, scheduleCount,
+							feasibleCount, statistics.minExecTime,
+							statistics.execTimeSum / feasibleCount,
+							statistics.maxExecTime, statistics.minPower,
+							statistics.powerSum / feasibleCount,
+							statistics.maxPower, System.nanoTime() - start);
+				}
+			}
+		} catch (XMLStreamException e) {
+			logger.error("StAX encountered an error", e);
+		} catch (InterruptedException e) {
+			logger.error("The sampling was interrupted", e);
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			logger.error("A sampling thread failed", e.getCause());
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
 		}
-		return theTaskType;
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Random sampling finished");
+		}
+
+		return summary;
+	}
+
+	/**
+	 * @return a memo for the tasks of one run
+	 */
+	private TaskRecordMemo newTaskMemo() {
+		return new TaskRecordMemo(workspace == null ? null : workspace
+				.getCtg(ctgId));
+	}
+
+	private CoreLibrary loadCoreLibrary() throws XMLStreamException {
+		if (workspace != null) {
+			return workspace.getCoreLibrary();
+		}
+		return CoreLibraryCache.load(coresDir);
+	}
+	
+	/**
+	 * @return the index of the task type, or -1 if the core doesn't specify it
+	 */
+	private int getCoreTask(CoreLibrary coreLibrary, int coreIndex,
+			String type) {
+		int taskTypeIndex = coreLibrary.getTaskTypeIndex(type);
+		if (taskTypeIndex == -1
+				|| !coreLibrary.hasTaskType(coreIndex, taskTypeIndex)) {
+			logger.error("The task type " + type
+					+ " was not found in the specification of core with ID "
+					+ coreLibrary.getCoreId(coreIndex));
+			taskTypeIndex = -1;
+		}
+		return taskTypeIndex;
 	}
 	
-	private String generateApcg() throws JAXBException {
+	private ScheduleResult buildScheduleResult(CoreLibrary coreLibrary,
+			Map<File, Integer> tasksToCores, TaskRecordMemo taskMemo)
+			throws XMLStreamException {
 		logger.assertLog(tasksToCores != null, "No task was scheduled!");
 
 		if (logger.isDebugEnabled()) {
-			logger.debug("Generating an XML String with the scheduling");
+			logger.debug("Building the scheduling result");
 		}
 
-		ObjectFactory apcgFactory = new ObjectFactory();
-		ApcgType apcgType = new ApcgType();
-		apcgType.setId(apcgId);
-		apcgType.setCtg(ctgId);
+		ScheduleResult.Builder builder = new ScheduleResult.Builder(apcgId,
+				ctgId);
 		
-		Map<File, Set<File>> coreToTasks = new HashMap<File, Set<File>>();
+		// the tasks are kept in their order, and the cores come in the order
+		// of their first task, so the APCG XML doesn't depend on hashing
+		Map<Integer, Set<File>> coreToTasks = new LinkedHashMap<Integer, Set<File>>();
 		Set<File> tasks = tasksToCores.keySet();
 		for (File task : tasks) {
-			File core = tasksToCores.get(task);
+			Integer core = tasksToCores.get(task);
 			Set<File> set = coreToTasks.get(core);
 			if (set == null) {
 				set = new LinkedHashSet<File>();
@@ -208,43 +464,67 @@ public class RandomScheduler implements Scheduler {
 			coreToTasks.put(core, set);
 		}
 		
-		Set<File> cores = coreToTasks.keySet();
+		Set<Integer> cores = coreToTasks.keySet();
 		int uid = 0;
-		for (File core : cores) {
-			String coreId = getCore(core).getID();
+		for (Integer core : cores) {
+			String coreId = coreLibrary.getCoreId(core);
 			Set<File> set = coreToTasks.get(core);
-			ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType coreType = new ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType();
 			// we need consecutive UIDs starting from 0
-			coreType.setUid(Integer.toString(uid++));
-			coreType.setId(coreId);
+			builder.startCore(Integer.toString(uid++), coreId);
 			for (File task : set) {
-				String taskId = getTask(task).getID();
-				ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType taskType = new ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType();
-				taskType.setId(taskId);
-				taskType.setExecTime(getCoreTask(getCore(core).getTask(), getTask(task).getType()).getExecTime());
-				taskType.setPower(getCoreTask(getCore(core).getTask(), getTask(task).getType()).getPower());
-				coreType.getTask().add(taskType);
+				TaskRecord taskRecord = taskMemo.get(task);
+				int coreTask = getCoreTask(coreLibrary, core,
+						taskRecord.getType());
+				if (coreTask == -1) {
+					// the execution time and the power would be the ones of
+					// another task type (or NaN)
+					return null;
+				}
+				builder.addTask(taskRecord.getID(),
+						coreLibrary.getExecTime(core, coreTask),
+						coreLibrary.getPower(core, coreTask));
 			}
-			apcgType.getCore().add(coreType);
 		}
 		
-		JAXBContext jaxbContext = JAXBContext.newInstance(ApcgType.class);
-		Marshaller marshaller = jaxbContext.createMarshaller();
-		marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
-		StringWriter stringWriter = new StringWriter();
-		JAXBElement<ApcgType> apcg = apcgFactory.createApcg(apcgType);
-		marshaller.marshal(apcg, stringWriter);
-		
-		return stringWriter.toString();
+		return builder.build();
 	}
 
 	public static void main(String[] args) throws FileNotFoundException {
-		System.err.println("usage:   java RandomScheduler.class [E3S benchmarks]");
+		System.err.println("usage:   java RandomScheduler.class [-samples {N}] [-threads {N}] [-seed {seed}] [-report {CSV or JSON file}] [E3S benchmarks]");
 		System.err.println("note:	 each CTG is only scheduled individually (e.g.: folders named like ctg-0+1 are ignored)");
+		System.err.println("note:	 with -samples, N random schedules are generated for each CTG and only their statistics are reported (no XML is written)");
 		System.err.println("example 1 (specify the tgff file): java RandomScheduler.class ../CTG-XML/xml/e3s/auto-indust-mocsyn.tgff ../CTG-XML/xml/e3s/telecom-mocsyn.tgff");
 		System.err.println("example 2 (schedule the entire E3S benchmark suite): java RandomScheduler.class");
+		System.err.println("example 3 (sample 100000 schedules of each CTG): java RandomScheduler.class -samples 100000 -seed 7 ../CTG-XML/xml/e3s/telecom-mocsyn.tgff");
+		System.err.println("example 4 (report the time of each phase, for each CTG): java RandomScheduler.class -report phases.csv");
+		int samples = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = System.nanoTime();
+		File report = null;
+		int first = 0;
+		while (args != null && first + 1 < args.length
+				&& args[first].startsWith("-")) {
+			if ("-samples".equals(args[first])) {
+				samples = Integer.parseInt(args[first + 1]);
+			} else if ("-threads".equals(args[first])) {
+				threads = Integer.parseInt(args[first + 1]);
+			} else if ("-seed".equals(args[first])) {
+				seed = Long.parseLong(args[first + 1]);
+			} else if ("-report".equals(args[first])) {
+				report = new File(args[first + 1]);
+			} else {
+				logger.error("Unknown option " + args[first]);
+				return;
+			}
+			first += 2;
+		}
+		MetricsCollector metrics = null;
+		if (report != null) {
+			metrics = new MetricsCollector();
+			metrics.register();
+		}
 		File[] tgffFiles = null;
-		if (args == null || args.length == 0) {
+		if (args == null || args.length == first) {
 			File e3sDir = new File(".." + File.separator + "CTG-XML"
 					+ File.separator + "xml" + File.separator + "e3s");
 			logger.assertLog(e3sDir.isDirectory(),
@@ -257,9 +537,9 @@ public class RandomScheduler implements Scheduler {
 				}
 			});
 		} else {
-			tgffFiles = new File[args.length];
-			for (int i = 0; i < args.length; i++) {
-				tgffFiles[i] = new File(args[i]);
+			tgffFiles = new File[args.length - first];
+			for (int i = first; i < args.length; i++) {
+				tgffFiles[i - first] = new File(args[i]);
 			}
 		}
 		for (int i = 0; i < tgffFiles.length; i++) {
@@ -275,21 +555,52 @@ public class RandomScheduler implements Scheduler {
 			for (int j = 0; j < ctgs.length; j++) {
 				String ctgId = ctgs[j].substring("ctg-".length());
 				if (!ctgId.contains("+")) {
-					Scheduler scheduler = new RandomScheduler(ctgId, path + "ctg-"
-							+ ctgId + File.separator + "tasks", path + "cores");
+					RandomScheduler scheduler = new RandomScheduler(ctgId, path
+							+ "ctg-" + ctgId + File.separator + "tasks", path
+							+ "cores");
+					if (samples > 0) {
+						logger.info(path + " " + scheduler.sample(samples,
+								threads, seed));
+						continue;
+					}
 					String apcgId = ctgId + "_" + scheduler.getSchedulerId();
-					String apcgXml = scheduler.schedule();
-					String xmlFileName = path + "ctg-" + ctgId + File.separator
-							+ "apcg-" + apcgId + ".xml";
-					PrintWriter pw = new PrintWriter(xmlFileName);
-					logger.info("Saving the scheduling XML file " + xmlFileName);
-					pw.write(apcgXml);
-					pw.close();
+					Instrumentation.beginCtg(e3sBenchmark.getName(), ctgId,
+							scheduler.getSchedulerId());
+					try {
+						ScheduleResult scheduleResult;
+						Instrumentation.enter(Phase.SEARCH);
+						try {
+							scheduleResult = scheduler.computeSchedule();
+						} finally {
+							Instrumentation.exit();
+						}
+						String xmlFileName = path + "ctg-" + ctgId
+								+ File.separator + "apcg-" + apcgId + ".xml";
+						if (scheduleResult == null) {
+							logger.error("CTG " + ctgId
+									+ " could not be scheduled; " + xmlFileName
+									+ " is not written");
+							continue;
+						}
+						logger.info("Saving the scheduling XML file "
+								+ xmlFileName);
+						try {
+							scheduleResult.write(new File(xmlFileName));
+						} catch (IOException e) {
+							logger.error("Could not write " + xmlFileName, e);
+						}
+					} finally {
+						Instrumentation.endCtg();
+					}
 				}
 			}
 			logger.info("Finished with e3s" + File.separator
 					+ tgffFiles[i].getName());
 		}
+		if (metrics != null) {
+			metrics.unregister();
+			metrics.writeReport(report);
+		}
 		logger.info("Done.");
 	}
 
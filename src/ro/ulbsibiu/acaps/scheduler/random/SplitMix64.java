@@ -0,0 +1,78 @@
+package ro.ulbsibiu.acaps.scheduler.random;
+
+/**
+ * The SplitMix64 pseudo random number generator (the generator behind
+ * <tt>java.util.SplittableRandom</tt>, which is not available before Java 8).
+ * It is fast, it has a 64 bit state and it is good enough for sampling
+ * schedules. Independent streams are derived from a single seed, so that
+ * parallel samplers don't share (and don't synchronize on) a generator.
+ * <p>
+ * A generator is not thread safe: each thread must use its own stream.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+class SplitMix64 {
+
+	/** the increment of the state (the odd integer closest to 2^64 / phi) */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private long state;
+
+	/**
+	 * Constructor
+	 *
+	 * @param seed
+	 *            the seed
+	 */
+	SplitMix64(long seed) {
+		this.state = seed;
+	}
+
+	/**
+	 * Derives a stream from a seed. The streams of the same seed are
+	 * independent of each other.
+	 *
+	 * @param seed
+	 *            the seed
+	 * @param index
+	 *            the index of the stream
+	 * @return the generator of the stream
+	 */
+	static SplitMix64 stream(long seed, int index) {
+		return new SplitMix64(mix(seed + (index + 1) * GOLDEN_GAMMA));
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return the next pseudo random long
+	 */
+	long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	}
+
+	/**
+	 * @param bound
+	 *            the upper bound (exclusive, must be positive)
+	 * @return a uniformly distributed pseudo random int, between 0 and the
+	 *         bound
+	 */
+	int nextInt(int bound) {
+		// the values above the largest multiple of the bound are rejected, so
+		// all the results are equally likely
+		long r = nextLong() >>> 33;
+		long limit = (1L << 31) - (1L << 31) % bound;
+		while (r >= limit) {
+			r = nextLong() >>> 33;
+		}
+		return (int) (r % bound);
+	}
+
+}
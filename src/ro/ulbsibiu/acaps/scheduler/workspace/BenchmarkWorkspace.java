@@ -0,0 +1,183 @@
+package ro.ulbsibiu.acaps.scheduler.workspace;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibrary;
+import ro.ulbsibiu.acaps.scheduler.library.CoreLibraryCache;
+
+/**
+ * A benchmark (a .tgff directory), loaded once in memory: its core library
+ * and the task set of each of its CTGs. All the CTGs of a benchmark share the
+ * same cores directory, so the schedulers created from a workspace neither
+ * list nor read the core and the task XMLs again (they would otherwise do it
+ * for each CTG, and again for each scheduler).
+ * <p>
+ * Combined CTGs (folders named like ctg-0+1) are ignored. A workspace is
+ * immutable and can be shared by any number of schedulers and threads. It
+ * doesn't notice when the files change after it was loaded.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class BenchmarkWorkspace {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(BenchmarkWorkspace.class);
+
+	/** the benchmark (.tgff) directory */
+	private final File benchmark;
+
+	/** the directory with the XML files containing the cores */
+	private final File coresDir;
+
+	private final CoreLibrary coreLibrary;
+
+	/** the task set of each CTG, by CTG ID (sorted by CTG ID) */
+	private final Map<String, CtgTaskSet> ctgs;
+
+	private BenchmarkWorkspace(File benchmark, File coresDir,
+			CoreLibrary coreLibrary, Map<String, CtgTaskSet> ctgs) {
+		this.benchmark = benchmark;
+		this.coresDir = coresDir;
+		this.coreLibrary = coreLibrary;
+		this.ctgs = Collections.unmodifiableMap(ctgs);
+	}
+
+	/**
+	 * Loads a benchmark: its core library (from the {@link CoreLibraryCache})
+	 * and the tasks of all its CTGs.
+	 *
+	 * @param benchmark
+	 *            the benchmark (.tgff) directory
+	 * @return the workspace
+	 *
+	 * @throws XMLStreamException
+	 *             if a core or a task XML cannot be read
+	 */
+	public static BenchmarkWorkspace load(File benchmark)
+			throws XMLStreamException {
+		File coresDir = new File(benchmark, "cores");
+		logger.assertLog(coresDir.isDirectory(),
+				"The cores file path doesn't point a directory");
+		CoreLibrary coreLibrary = CoreLibraryCache.load(coresDir);
+
+		String[] ctgDirs = benchmark.list(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return dir.isDirectory() && name.startsWith("ctg-");
+			}
+		});
+		if (ctgDirs == null) {
+			ctgDirs = new String[0];
+		}
+		Arrays.sort(ctgDirs);
+		Map<String, CtgTaskSet> ctgs = new LinkedHashMap<String, CtgTaskSet>();
+		for (int i = 0; i < ctgDirs.length; i++) {
+			String ctgId = ctgDirs[i].substring("ctg-".length());
+			if (!ctgId.contains("+")) {
+				File tasksDir = new File(benchmark, ctgDirs[i] + File.separator
+						+ "tasks");
+				logger.assertLog(tasksDir.isDirectory(),
+						"The tasks file path doesn't point a directory");
+				ctgs.put(ctgId, CtgTaskSet.load(ctgId, tasksDir));
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded the workspace of " + benchmark + " ("
+					+ coreLibrary.getCoreCount() + " cores, " + ctgs.size()
+					+ " CTGs)");
+		}
+		return new BenchmarkWorkspace(benchmark, coresDir, coreLibrary, ctgs);
+	}
+
+	/**
+	 * Loads a single CTG of a benchmark: the core library (from the
+	 * {@link CoreLibraryCache}) and the tasks of the CTG. The workspace has no
+	 * other CTG.
+	 *
+	 * @param benchmark
+	 *            the benchmark (.tgff) directory
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph
+	 * @return the workspace
+	 *
+	 * @throws XMLStreamException
+	 *             if a core or a task XML cannot be read
+	 */
+	public static BenchmarkWorkspace load(File benchmark, String ctgId)
+			throws XMLStreamException {
+		File coresDir = new File(benchmark, "cores");
+		logger.assertLog(coresDir.isDirectory(),
+				"The cores file path doesn't point a directory");
+		CoreLibrary coreLibrary = CoreLibraryCache.load(coresDir);
+		File tasksDir = new File(benchmark, "ctg-" + ctgId + File.separator
+				+ "tasks");
+		logger.assertLog(tasksDir.isDirectory(),
+				"The tasks file path doesn't point a directory");
+		Map<String, CtgTaskSet> ctgs = new LinkedHashMap<String, CtgTaskSet>();
+		ctgs.put(ctgId, CtgTaskSet.load(ctgId, tasksDir));
+		return new BenchmarkWorkspace(benchmark, coresDir, coreLibrary, ctgs);
+	}
+
+	/**
+	 * @return the benchmark (.tgff) directory
+	 */
+	public File getBenchmark() {
+		return benchmark;
+	}
+
+	/**
+	 * @return the directory with the XML files containing the cores
+	 */
+	public File getCoresDir() {
+		return coresDir;
+	}
+
+	/**
+	 * @return the core library of the benchmark
+	 */
+	public CoreLibrary getCoreLibrary() {
+		return coreLibrary;
+	}
+
+	/**
+	 * @return the IDs of the CTGs, sorted
+	 */
+	public String[] getCtgIds() {
+		return ctgs.keySet().toArray(new String[ctgs.size()]);
+	}
+
+	/**
+	 * @param ctgId
+	 *            the ID of a Communication Task Graph
+	 * @return the tasks of the CTG, or <tt>null</tt> if the benchmark has no
+	 *         such CTG
+	 */
+	public CtgTaskSet getCtg(String ctgId) {
+		return ctgs.get(ctgId);
+	}
+
+	/**
+	 * @param ctgId
+	 *            the ID of a Communication Task Graph
+	 * @return the directory of the CTG (where its APCG XMLs are written)
+	 */
+	public File getCtgDir(String ctgId) {
+		return new File(benchmark, "ctg-" + ctgId);
+	}
+
+}
@@ -0,0 +1,135 @@
+package ro.ulbsibiu.acaps.scheduler.workspace;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import ro.ulbsibiu.acaps.scheduler.xml.SchedulingXmlReader;
+import ro.ulbsibiu.acaps.scheduler.xml.TaskRecord;
+
+/**
+ * The tasks of a CTG, read once: the task XMLs (in the order in which the
+ * schedulers list them) and their {@link TaskRecord}s. A task set is
+ * immutable and can be shared by any number of schedulers and threads.
+ *
+ * @see BenchmarkWorkspace
+ *
+ * @author cradu
+ *
+ */
+public class CtgTaskSet {
+
+	/** the ID of the Communication Task Graph */
+	private final String ctgId;
+
+	/** the directory with the XML files containing the tasks */
+	private final File tasksDir;
+
+	/** the XML files containing the tasks */
+	private final File[] taskXmls;
+
+	/** the task of each task XML */
+	private final TaskRecord[] tasks;
+
+	/** the task of each task XML, by file */
+	private final Map<File, TaskRecord> tasksByFile;
+
+	private CtgTaskSet(String ctgId, File tasksDir, File[] taskXmls,
+			TaskRecord[] tasks) {
+		this.ctgId = ctgId;
+		this.tasksDir = tasksDir;
+		this.taskXmls = taskXmls;
+		this.tasks = tasks;
+		Map<File, TaskRecord> tasksByFile = new HashMap<File, TaskRecord>(
+				taskXmls.length * 2);
+		for (int i = 0; i < taskXmls.length; i++) {
+			tasksByFile.put(taskXmls[i], tasks[i]);
+		}
+		this.tasksByFile = Collections.unmodifiableMap(tasksByFile);
+	}
+
+	/**
+	 * Reads the tasks of a CTG.
+	 *
+	 * @param ctgId
+	 *            the ID of the Communication Task Graph
+	 * @param tasksDir
+	 *            the directory with the XML files containing the tasks
+	 * @return the task set
+	 *
+	 * @throws XMLStreamException
+	 *             if a task XML cannot be read
+	 */
+	public static CtgTaskSet load(String ctgId, File tasksDir)
+			throws XMLStreamException {
+		// listed like the schedulers list them, so that they produce the same
+		// APCGs from a workspace as from the file system
+		File[] taskXmls = tasksDir.listFiles(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File file, String name) {
+				return name.endsWith(".xml");
+			}
+		});
+		if (taskXmls == null) {
+			taskXmls = new File[0];
+		}
+		TaskRecord[] tasks = new TaskRecord[taskXmls.length];
+		for (int i = 0; i < taskXmls.length; i++) {
+			tasks[i] = SchedulingXmlReader.readTask(taskXmls[i]);
+		}
+		return new CtgTaskSet(ctgId, tasksDir, taskXmls, tasks);
+	}
+
+	/**
+	 * @return the ID of the Communication Task Graph
+	 */
+	public String getCtgId() {
+		return ctgId;
+	}
+
+	/**
+	 * @return the directory with the XML files containing the tasks
+	 */
+	public File getTasksDir() {
+		return tasksDir;
+	}
+
+	/**
+	 * @return how many tasks the CTG has
+	 */
+	public int getTaskCount() {
+		return taskXmls.length;
+	}
+
+	/**
+	 * @return the XML files containing the tasks (a copy)
+	 */
+	public File[] getTaskXmls() {
+		return taskXmls.clone();
+	}
+
+	/**
+	 * @param taskIndex
+	 *            the index of the task
+	 * @return the task
+	 */
+	public TaskRecord getTask(int taskIndex) {
+		return tasks[taskIndex];
+	}
+
+	/**
+	 * @param taskXml
+	 *            a task XML of this CTG
+	 * @return its task, or <tt>null</tt> if the file is not a task XML of this
+	 *         CTG
+	 */
+	public TaskRecord getTask(File taskXml) {
+		return tasksByFile.get(taskXml);
+	}
+
+}
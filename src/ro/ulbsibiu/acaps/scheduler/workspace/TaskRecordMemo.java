@@ -0,0 +1,65 @@
+package ro.ulbsibiu.acaps.scheduler.workspace;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import ro.ulbsibiu.acaps.scheduler.xml.SchedulingXmlReader;
+import ro.ulbsibiu.acaps.scheduler.xml.TaskRecord;
+
+/**
+ * The tasks read during one scheduler run, by task XML. A scheduler resolves
+ * a task's ID and type when it assigns the task to a core and again when it
+ * builds the APCG; with a memo, each task XML is parsed at most once per run.
+ * When the tasks come from a {@link CtgTaskSet}, nothing is parsed.
+ * <p>
+ * A memo belongs to a single run, so it is not thread safe (a scheduler which
+ * is run by more threads at the same time creates a memo for each run).
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class TaskRecordMemo {
+
+	/** the tasks which were already read (<tt>null</tt> if none) */
+	private final CtgTaskSet taskSet;
+
+	/** the tasks parsed during this run, by task XML */
+	private final Map<File, TaskRecord> tasks = new HashMap<File, TaskRecord>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param taskSet
+	 *            the tasks which were already read, e.g. from a
+	 *            {@link BenchmarkWorkspace} (<tt>null</tt> if the tasks are
+	 *            read from their XMLs)
+	 */
+	public TaskRecordMemo(CtgTaskSet taskSet) {
+		this.taskSet = taskSet;
+	}
+
+	/**
+	 * @param taskXml
+	 *            a task XML
+	 * @return its task (parsed only the first time it is asked for)
+	 *
+	 * @throws XMLStreamException
+	 *             if the task XML cannot be read
+	 */
+	public TaskRecord get(File taskXml) throws XMLStreamException {
+		if (taskSet != null) {
+			return taskSet.getTask(taskXml);
+		}
+		TaskRecord task = tasks.get(taskXml);
+		if (task == null) {
+			task = SchedulingXmlReader.readTask(taskXml);
+			tasks.put(taskXml, task);
+		}
+		return task;
+	}
+
+}
@@ -0,0 +1,275 @@
+package ro.ulbsibiu.acaps.scheduler.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlNsForm;
+import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.ctg.xml.apcg.ApcgType;
+import ro.ulbsibiu.acaps.ctg.xml.apcg.CoreType;
+import ro.ulbsibiu.acaps.ctg.xml.apcg.ObjectFactory;
+import ro.ulbsibiu.acaps.ctg.xml.apcg.TaskType;
+
+/**
+ * Writes an APCG XML directly to a stream, element by element, without
+ * building an {@link ApcgType} object tree first. The produced XML is the same
+ * as the one marshalled by JAXB: it is either compact or pretty printed
+ * (indented with 4 spaces, like JAXB's formatted output).
+ * <p>
+ * Usage: {@link #startApcg(String, String)}, then for each core
+ * {@link #startCore(String, String)}, {@link #writeTask(String, double, double)}
+ * for each of its tasks and {@link #endCore()}, and finally {@link #endApcg()}.
+ * </p>
+ * <p>
+ * An APCG writer is not thread safe.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public class ApcgWriter {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger.getLogger(ApcgWriter.class);
+
+	/** the XML declaration written by JAXB */
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
+	/** the indentation used by JAXB's formatted output */
+	private static final String INDENT = "    ";
+
+	private static final String LINE_SEPARATOR = "\n";
+
+	/** the namespace of the APCG root element */
+	private static final String APCG_NAMESPACE;
+
+	/** the namespace of the core and task elements */
+	private static final String ELEMENT_NAMESPACE;
+
+	static {
+		QName apcgName = new ObjectFactory().createApcg(new ApcgType())
+				.getName();
+		APCG_NAMESPACE = apcgName.getNamespaceURI();
+		XmlSchema schema = ApcgType.class.getPackage().getAnnotation(
+				XmlSchema.class);
+		if (schema != null && schema.elementFormDefault() == XmlNsForm.QUALIFIED) {
+			ELEMENT_NAMESPACE = APCG_NAMESPACE;
+		} else {
+			ELEMENT_NAMESPACE = "";
+		}
+	}
+
+	private static final XMLOutputFactory outputFactory = XMLOutputFactory
+			.newInstance();
+
+	/** where the XML is written */
+	private final Writer writer;
+
+	/** the StAX writer */
+	private final XMLStreamWriter xmlWriter;
+
+	/** whether or not the XML is pretty printed */
+	private final boolean formatted;
+
+	/** whether or not the current core has tasks */
+	private boolean coreHasTasks;
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer
+	 *            where the APCG XML is written
+	 * @param formatted
+	 *            whether the XML is pretty printed or compact
+	 *
+	 * @throws XMLStreamException
+	 *             if the StAX writer cannot be created
+	 */
+	public ApcgWriter(Writer writer, boolean formatted)
+			throws XMLStreamException {
+		logger.assertLog(writer != null, "A writer must be specified");
+		this.writer = writer;
+		this.xmlWriter = outputFactory.createXMLStreamWriter(writer);
+		this.formatted = formatted;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param outputStream
+	 *            where the APCG XML is written (UTF-8 encoded)
+	 * @param formatted
+	 *            whether the XML is pretty printed or compact
+	 *
+	 * @throws XMLStreamException
+	 *             if the StAX writer cannot be created
+	 */
+	public ApcgWriter(OutputStream outputStream, boolean formatted)
+			throws XMLStreamException {
+		this(new OutputStreamWriter(outputStream, Charset.forName("UTF-8")),
+				formatted);
+	}
+
+	private void newLine(int depth) throws XMLStreamException {
+		if (formatted) {
+			xmlWriter.writeCharacters(LINE_SEPARATOR);
+			for (int i = 0; i < depth; i++) {
+				xmlWriter.writeCharacters(INDENT);
+			}
+		}
+	}
+
+	/**
+	 * Writes the XML declaration and starts the APCG element.
+	 *
+	 * @param apcgId
+	 *            the ID of the APCG
+	 * @param ctgId
+	 *            the ID of the CTG
+	 *
+	 * @throws XMLStreamException
+	 *             if the XML cannot be written
+	 */
+	public void startApcg(String apcgId, String ctgId)
+			throws XMLStreamException {
+		try {
+			// StAX cannot write the standalone pseudo attribute
+			writer.write(XML_DECLARATION);
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+		newLine(0);
+		xmlWriter.setDefaultNamespace(APCG_NAMESPACE);
+		xmlWriter.writeStartElement(APCG_NAMESPACE, "apcg");
+		xmlWriter.writeAttribute("id", apcgId);
+		xmlWriter.writeAttribute("ctg", ctgId);
+		xmlWriter.writeDefaultNamespace(APCG_NAMESPACE);
+	}
+
+	/**
+	 * Starts a core element.
+	 *
+	 * @param uid
+	 *            the unique ID of the core (unique inside the APCG)
+	 * @param id
+	 *            the ID of the core (from the core library)
+	 *
+	 * @throws XMLStreamException
+	 *             if the XML cannot be written
+	 */
+	public void startCore(String uid, String id) throws XMLStreamException {
+		newLine(1);
+		xmlWriter.writeStartElement(ELEMENT_NAMESPACE, "core");
+		xmlWriter.writeAttribute("uid", uid);
+		xmlWriter.writeAttribute("id", id);
+		coreHasTasks = false;
+	}
+
+	/**
+	 * Writes a task element, inside the current core.
+	 *
+	 * @param id
+	 *            the ID of the task
+	 * @param execTime
+	 *            the execution time of the task on the current core
+	 * @param power
+	 *            the power needed by the current core to execute the task
+	 *
+	 * @throws XMLStreamException
+	 *             if the XML cannot be written
+	 */
+	public void writeTask(String id, double execTime, double power)
+			throws XMLStreamException {
+		newLine(2);
+		xmlWriter.writeEmptyElement(ELEMENT_NAMESPACE, "task");
+		xmlWriter.writeAttribute("id", id);
+		xmlWriter.writeAttribute("execTime", printDouble(execTime));
+		xmlWriter.writeAttribute("power", printDouble(power));
+		coreHasTasks = true;
+	}
+
+	/**
+	 * Ends the current core element.
+	 *
+	 * @throws XMLStreamException
+	 *             if the XML cannot be written
+	 */
+	public void endCore() throws XMLStreamException {
+		if (coreHasTasks) {
+			newLine(1);
+		}
+		xmlWriter.writeEndElement();
+	}
+
+	/**
+	 * Ends the APCG element and flushes the XML.
+	 *
+	 * @throws XMLStreamException
+	 *             if the XML cannot be written
+	 */
+	public void endApcg() throws XMLStreamException {
+		newLine(0);
+		xmlWriter.writeEndElement();
+		newLine(0);
+		xmlWriter.flush();
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Writes an entire APCG object tree.
+	 *
+	 * @param apcg
+	 *            the APCG
+	 *
+	 * @throws XMLStreamException
+	 *             if the XML cannot be written
+	 */
+	public void write(ApcgType apcg) throws XMLStreamException {
+		startApcg(apcg.getId(), apcg.getCtg());
+		List<CoreType> cores = apcg.getCore();
+		for (CoreType core : cores) {
+			startCore(core.getUid(), core.getId());
+			List<TaskType> tasks = core.getTask();
+			for (TaskType task : tasks) {
+				writeTask(task.getId(), task.getExecTime(), task.getPower());
+			}
+			endCore();
+		}
+		endApcg();
+	}
+
+	/**
+	 * Prints a double like JAXB does for xs:double values.
+	 */
+	private static String printDouble(double value) {
+		String s;
+		if (Double.isNaN(value)) {
+			s = "NaN";
+		} else if (value == Double.POSITIVE_INFINITY) {
+			s = "INF";
+		} else if (value == Double.NEGATIVE_INFINITY) {
+			s = "-INF";
+		} else {
+			s = String.valueOf(value);
+		}
+		return s;
+	}
+
+}
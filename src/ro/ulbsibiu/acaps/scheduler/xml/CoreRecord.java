@@ -0,0 +1,128 @@
+package ro.ulbsibiu.acaps.scheduler.xml;
+
+/**
+ * The fields of a core XML which are needed for scheduling: the core ID, its
+ * name and, for each task type the core can execute, the execution time and
+ * the power. A core record is immutable.
+ * 
+ * @see SchedulingXmlReader#readCore(java.io.File)
+ * 
+ * @author cradu
+ * 
+ */
+public final class CoreRecord {
+
+	/** the ID of the core */
+	private final String id;
+
+	/** the name of the core */
+	private final String name;
+
+	/** the task types, in the order they are specified in the core XML */
+	private final String[] taskTypes;
+
+	/** the execution time of each task type */
+	private final double[] execTimes;
+
+	/** the power of each task type */
+	private final double[] powers;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param id
+	 *            the ID of the core
+	 * @param name
+	 *            the name of the core
+	 * @param taskTypes
+	 *            the task types
+	 * @param execTimes
+	 *            the execution time of each task type
+	 * @param powers
+	 *            the power of each task type
+	 */
+	public CoreRecord(String id, String name, String[] taskTypes,
+			double[] execTimes, double[] powers) {
+		if (taskTypes.length != execTimes.length
+				|| taskTypes.length != powers.length) {
+			throw new IllegalArgumentException(
+					"Each task type must have an execution time and a power");
+		}
+		this.id = id;
+		this.name = name;
+		this.taskTypes = taskTypes.clone();
+		this.execTimes = execTimes.clone();
+		this.powers = powers.clone();
+	}
+
+	/**
+	 * @return the ID of the core
+	 */
+	public String getID() {
+		return id;
+	}
+
+	/**
+	 * @return the name of the core
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return how many task types are specified for this core
+	 */
+	public int getTaskTypeCount() {
+		return taskTypes.length;
+	}
+
+	/**
+	 * @param index
+	 *            the position of the task type in the core XML
+	 * @return the task type
+	 */
+	public String getTaskType(int index) {
+		return taskTypes[index];
+	}
+
+	/**
+	 * @param index
+	 *            the position of the task type in the core XML
+	 * @return the execution time of the task type
+	 */
+	public double getExecTime(int index) {
+		return execTimes[index];
+	}
+
+	/**
+	 * @param index
+	 *            the position of the task type in the core XML
+	 * @return the power of the task type
+	 */
+	public double getPower(int index) {
+		return powers[index];
+	}
+
+	/**
+	 * @param type
+	 *            the task type
+	 * @return the position of the first specification of the task type, or -1
+	 *         if the core doesn't specify it
+	 */
+	public int indexOfTaskType(String type) {
+		int index = -1;
+		for (int i = 0; i < taskTypes.length; i++) {
+			if (type.equals(taskTypes[i])) {
+				index = i;
+				break;
+			}
+		}
+		return index;
+	}
+
+	@Override
+	public String toString() {
+		return "core " + id + " (" + name + ")";
+	}
+
+}
@@ -0,0 +1,157 @@
+package ro.ulbsibiu.acaps.scheduler.xml;
+
+import java.io.File;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Provides a {@link JAXBContext} which is built only once per JVM, for one of
+ * the CTG-XML packages (cores, tasks and APCGs).
+ * <p>
+ * A {@link JAXBContext} is thread safe but expensive to build, while
+ * {@link Unmarshaller}s and {@link Marshaller}s are cheap but not thread safe.
+ * That is why this class keeps a pool of (un)marshallers: a thread borrows one
+ * for a single (un)marshalling operation and then gives it back. Hence, the
+ * same pool can be used concurrently by any number of schedulers.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public final class JaxbContextPool {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(JaxbContextPool.class);
+
+	/** the pool for the core XMLs */
+	public static final JaxbContextPool CORE = new JaxbContextPool(
+			"ro.ulbsibiu.acaps.ctg.xml.core");
+
+	/** the pool for the task XMLs */
+	public static final JaxbContextPool TASK = new JaxbContextPool(
+			"ro.ulbsibiu.acaps.ctg.xml.task");
+
+	/** the pool for the APCG XMLs */
+	public static final JaxbContextPool APCG = new JaxbContextPool(
+			"ro.ulbsibiu.acaps.ctg.xml.apcg");
+
+	/** the JAXB context path (the package with the generated classes) */
+	private final String contextPath;
+
+	/** the JAXB context, lazily built */
+	private volatile JAXBContext jaxbContext;
+
+	/** the idle unmarshallers */
+	private final Queue<Unmarshaller> unmarshallers;
+
+	/** the idle marshallers */
+	private final Queue<Marshaller> marshallers;
+
+	private JaxbContextPool(String contextPath) {
+		this.contextPath = contextPath;
+		this.unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+		this.marshallers = new ConcurrentLinkedQueue<Marshaller>();
+	}
+
+	/**
+	 * @return the JAXB context path (the package with the generated classes)
+	 */
+	public String getContextPath() {
+		return contextPath;
+	}
+
+	/**
+	 * Builds the JAXB context, the first time this method is invoked. All
+	 * subsequent calls return the same context.
+	 *
+	 * @return the JAXB context
+	 *
+	 * @throws JAXBException
+	 *             if the JAXB context cannot be built
+	 */
+	public JAXBContext getContext() throws JAXBException {
+		JAXBContext context = jaxbContext;
+		if (context == null) {
+			synchronized (this) {
+				context = jaxbContext;
+				if (context == null) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Building the JAXB context for "
+								+ contextPath);
+					}
+					context = JAXBContext.newInstance(contextPath);
+					jaxbContext = context;
+				}
+			}
+		}
+		return context;
+	}
+
+	/**
+	 * Unmarshals the given XML file.
+	 *
+	 * @param file
+	 *            the XML file
+	 * @param type
+	 *            the JAXB type of the XML root element
+	 * @return the JAXB object corresponding to the XML root element
+	 *
+	 * @throws JAXBException
+	 *             if the XML cannot be unmarshalled
+	 */
+	public <T> T unmarshal(File file, Class<T> type) throws JAXBException {
+		Unmarshaller unmarshaller = unmarshallers.poll();
+		if (unmarshaller == null) {
+			unmarshaller = getContext().createUnmarshaller();
+		}
+		try {
+			@SuppressWarnings("unchecked")
+			JAXBElement<T> element = (JAXBElement<T>) unmarshaller
+					.unmarshal(file);
+			return type.cast(element.getValue());
+		} finally {
+			unmarshallers.offer(unmarshaller);
+		}
+	}
+
+	/**
+	 * Marshals the given JAXB element.
+	 *
+	 * @param element
+	 *            the JAXB element
+	 * @param writer
+	 *            where the XML is written
+	 * @param formatted
+	 *            whether or not the XML is indented
+	 *
+	 * @throws JAXBException
+	 *             if the JAXB element cannot be marshalled
+	 */
+	public void marshal(JAXBElement<?> element, Writer writer,
+			boolean formatted) throws JAXBException {
+		Marshaller marshaller = marshallers.poll();
+		if (marshaller == null) {
+			marshaller = getContext().createMarshaller();
+		}
+		try {
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT,
+					Boolean.valueOf(formatted));
+			marshaller.marshal(element, writer);
+		} finally {
+			marshallers.offer(marshaller);
+		}
+	}
+
+}
@@ -0,0 +1,257 @@
+package ro.ulbsibiu.acaps.scheduler.xml;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.log4j.Logger;
+
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Instrumentation;
+import ro.ulbsibiu.acaps.scheduler.instrumentation.Phase;
+
+/**
+ * Reads only the fields needed for scheduling from core and task XMLs, with a
+ * StAX pull parser. Everything else from the XMLs is skipped, without being
+ * bound to objects. The fields are searched for by their local name, so they
+ * can be given either as attributes or as child elements.
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author cradu
+ *
+ */
+public final class SchedulingXmlReader {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logger = Logger
+			.getLogger(SchedulingXmlReader.class);
+
+	private static final XMLInputFactory inputFactory;
+
+	static {
+		inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		inputFactory.setProperty(
+				XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+
+	private SchedulingXmlReader() {
+		// only static methods
+	}
+
+	/**
+	 * Reads the ID, the name and the task types (with their execution time and
+	 * power) of a core.
+	 *
+	 * @param file
+	 *            the core XML
+	 * @return the core record
+	 *
+	 * @throws XMLStreamException
+	 *             if the XML cannot be read
+	 */
+	public static CoreRecord readCore(File file) throws XMLStreamException {
+		Instrumentation.enter(Phase.PARSE);
+		try {
+			CoreRecord core = parseCore(file);
+			Instrumentation.fileParsed();
+			return core;
+		} finally {
+			Instrumentation.exit();
+		}
+	}
+
+	private static CoreRecord parseCore(File file) throws XMLStreamException {
+		String id = null;
+		String name = null;
+		List<String> taskTypes = new ArrayList<String>();
+		double[] execTimes = new double[8];
+		double[] powers = new double[8];
+
+		InputStream inputStream = open(file);
+		XMLStreamReader reader = null;
+		try {
+			reader = inputFactory.createXMLStreamReader(inputStream);
+			reader.nextTag();
+			id = reader.getAttributeValue(null, "ID");
+			name = reader.getAttributeValue(null, "name");
+			while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				String localName = reader.getLocalName();
+				if ("task".equals(localName)) {
+					String type = reader.getAttributeValue(null, "type");
+					String execTime = reader.getAttributeValue(null,
+							"execTime");
+					String power = reader.getAttributeValue(null, "power");
+					while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+						localName = reader.getLocalName();
+						if ("type".equals(localName)) {
+							type = reader.getElementText();
+						} else if ("execTime".equals(localName)) {
+							execTime = reader.getElementText();
+						} else if ("power".equals(localName)) {
+							power = reader.getElementText();
+						} else {
+							skipElement(reader);
+						}
+					}
+					int n = taskTypes.size();
+					if (n == execTimes.length) {
+						execTimes = grow(execTimes);
+						powers = grow(powers);
+					}
+					taskTypes.add(type);
+					try {
+						execTimes[n] = parseDouble(execTime);
+						powers[n] = parseDouble(power);
+					} catch (NumberFormatException e) {
+						throw new XMLStreamException("Invalid number in "
+								+ file + " (task type " + type + ")", e);
+					}
+				} else if ("ID".equals(localName)) {
+					id = reader.getElementText();
+				} else if ("name".equals(localName)) {
+					name = reader.getElementText();
+				} else {
+					skipElement(reader);
+				}
+			}
+		} finally {
+			close(reader, inputStream);
+		}
+
+		int n = taskTypes.size();
+		double[] coreExecTimes = new double[n];
+		double[] corePowers = new double[n];
+		System.arraycopy(execTimes, 0, coreExecTimes, 0, n);
+		System.arraycopy(powers, 0, corePowers, 0, n);
+		return new CoreRecord(id, name, taskTypes.toArray(new String[n]),
+				coreExecTimes, corePowers);
+	}
+
+	/**
+	 * Reads the ID and the type of a task.
+	 *
+	 * @param file
+	 *            the task XML
+	 * @return the task record
+	 *
+	 * @throws XMLStreamException
+	 *             if the XML cannot be read
+	 */
+	public static TaskRecord readTask(File file) throws XMLStreamException {
+		Instrumentation.enter(Phase.PARSE);
+		try {
+			TaskRecord task = parseTask(file);
+			Instrumentation.fileParsed();
+			return task;
+		} finally {
+			Instrumentation.exit();
+		}
+	}
+
+	private static TaskRecord parseTask(File file) throws XMLStreamException {
+		String id = null;
+		String type = null;
+
+		InputStream inputStream = open(file);
+		XMLStreamReader reader = null;
+		try {
+			reader = inputFactory.createXMLStreamReader(inputStream);
+			reader.nextTag();
+			id = reader.getAttributeValue(null, "ID");
+			type = reader.getAttributeValue(null, "type");
+			while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				String localName = reader.getLocalName();
+				if ("ID".equals(localName)) {
+					id = reader.getElementText();
+				} else if ("type".equals(localName)) {
+					type = reader.getElementText();
+				} else {
+					skipElement(reader);
+				}
+			}
+		} finally {
+			close(reader, inputStream);
+		}
+
+		return new TaskRecord(id, type);
+	}
+
+	private static InputStream open(File file) throws XMLStreamException {
+		try {
+			return new BufferedInputStream(new FileInputStream(file));
+		} catch (IOException e) {
+			throw new XMLStreamException("Cannot open " + file, e);
+		}
+	}
+
+	private static void close(XMLStreamReader reader, InputStream inputStream)
+			throws XMLStreamException {
+		try {
+			if (reader != null) {
+				reader.close();
+			}
+		} finally {
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				logger.warn("Could not close an XML input stream", e);
+			}
+		}
+	}
+
+	/**
+	 * Skips the current element (the reader must be positioned on its start
+	 * tag), with everything it contains. The reader is left on the end tag.
+	 */
+	private static void skipElement(XMLStreamReader reader)
+			throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private static double[] grow(double[] array) {
+		double[] bigger = new double[array.length * 2];
+		System.arraycopy(array, 0, bigger, 0, array.length);
+		return bigger;
+	}
+
+	/**
+	 * Parses an xs:double value. A missing value is 0 (like for a primitive
+	 * attribute bound by JAXB).
+	 */
+	private static double parseDouble(String value) {
+		double d = 0;
+		if (value != null) {
+			value = value.trim();
+			if ("INF".equals(value)) {
+				d = Double.POSITIVE_INFINITY;
+			} else if ("-INF".equals(value)) {
+				d = Double.NEGATIVE_INFINITY;
+			} else {
+				d = Double.parseDouble(value);
+			}
+		}
+		return d;
+	}
+
+}
@@ -0,0 +1,52 @@
+package ro.ulbsibiu.acaps.scheduler.xml;
+
+/**
+ * The fields of a task XML which are needed for scheduling: the task ID and
+ * the task type. A task record is immutable.
+ * 
+ * @see SchedulingXmlReader#readTask(java.io.File)
+ * 
+ * @author cradu
+ * 
+ */
+public final class TaskRecord {
+
+	/** the ID of the task */
+	private final String id;
+
+	/** the type of the task */
+	private final String type;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param id
+	 *            the ID of the task
+	 * @param type
+	 *            the type of the task
+	 */
+	public TaskRecord(String id, String type) {
+		this.id = id;
+		this.type = type;
+	}
+
+	/**
+	 * @return the ID of the task
+	 */
+	public String getID() {
+		return id;
+	}
+
+	/**
+	 * @return the type of the task
+	 */
+	public String getType() {
+		return type;
+	}
+
+	@Override
+	public String toString() {
+		return "task " + id + " (type " + type + ")";
+	}
+
+}